@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Base of the benchmarks that compare the expiry cache resolvers with {@link org.springframework.cache.interceptor.SimpleCacheResolver}
+ * <p>
+ * The caches are resolved once on setup, so the benchmarks measure the hot path of resolved caches.
+ * The subclasses run single-threaded, and their nested {@code Contended} subclasses run with as many threads as processors
+ *
+ * @author David Hsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+@Threads(value = 1)
+public abstract class AbstractResolverBenchmark {
+    private final MockBenchmarkTarget target = new MockBenchmarkTarget();
+    private CacheOperationInvocationContext<BasicOperation> constantContext;
+    private CacheOperationInvocationContext<BasicOperation> dynamicContext;
+    private CacheResolver simpleResolver;
+    private CacheResolver expiryResolver;
+
+    @Setup
+    public void setUp() throws Exception {
+        CacheManager cacheManager = createCacheManager();
+        simpleResolver = new SimpleCacheResolver(cacheManager);
+        expiryResolver = createExpiryResolver(cacheManager);
+        constantContext = new MockInvocationContext(target, "constantTerm", "benchmark");
+        dynamicContext = new MockInvocationContext(target, "dynamicTerm", "benchmark", 5L);
+        simpleResolver.resolveCaches(constantContext);
+        expiryResolver.resolveCaches(constantContext);
+        expiryResolver.resolveCaches(dynamicContext);
+    }
+
+    @Benchmark
+    public Collection<? extends Cache> simpleResolver() {
+        return simpleResolver.resolveCaches(constantContext);
+    }
+
+    @Benchmark
+    public Collection<? extends Cache> constantExpiry() {
+        return expiryResolver.resolveCaches(constantContext);
+    }
+
+    @Benchmark
+    public Collection<? extends Cache> dynamicExpiry() {
+        return expiryResolver.resolveCaches(dynamicContext);
+    }
+
+    @Nonnull
+    protected abstract CacheManager createCacheManager() throws Exception;
+
+    @Nonnull
+    protected abstract CacheResolver createExpiryResolver(@Nonnull CacheManager cacheManager);
+
+
+    public static class MockBenchmarkTarget {
+        @CacheExpiry(ttl = 10, unit = ChronoUnit.MINUTES)
+        public String constantTerm() {
+            return "constantTerm";
+        }
+
+        @CacheExpiry(ttlExpression = "#result", unit = ChronoUnit.MINUTES)
+        public long dynamicTerm(long minutes) {
+            return minutes;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver}
+ *
+ * @author David Hsing
+ */
+public class CaffeineResolverBenchmark extends AbstractResolverBenchmark {
+    @Nonnull
+    @Override
+    protected CacheManager createCacheManager() {
+        CaffeineCacheManager result = new CaffeineCacheManager();
+        result.setCaffeine(Caffeine.newBuilder().expireAfterWrite(1L, TimeUnit.HOURS));
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    protected CacheResolver createExpiryResolver(@Nonnull CacheManager cacheManager) {
+        CaffeineExpiryCacheResolver result = new CaffeineExpiryCacheResolver(cacheManager);
+        result.setBeanFactory(new DefaultListableBeanFactory());
+        return result;
+    }
+
+
+    @Threads(value = Threads.MAX)
+    public static class Contended extends CaffeineResolverBenchmark {
+    }
+}
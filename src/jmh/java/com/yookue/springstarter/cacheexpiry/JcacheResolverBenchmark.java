@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry;
+
+
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import com.yookue.springstarter.cacheexpiry.cache.ContextualExpiryPolicy;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.JcacheExpiryCacheResolver;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.cacheexpiry.resolver.impl.JcacheExpiryCacheResolver} with Ehcache
+ *
+ * @author David Hsing
+ */
+public class JcacheResolverBenchmark extends AbstractResolverBenchmark {
+    private static final String EHCACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";    // $NON-NLS-1$
+
+    private javax.cache.CacheManager originCacheManager;
+
+    @Nonnull
+    @Override
+    protected CacheManager createCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(EHCACHE_PROVIDER);
+        originCacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        if (originCacheManager.getCache("benchmark") == null) {
+            // The simple resolver needs an existing cache, which applies the ttls of the expiry resolver too
+            MutableConfiguration<Object, Object> configuration = new MutableConfiguration<>();
+            configuration.setExpiryPolicyFactory(FactoryBuilder.factoryOf(new ContextualExpiryPolicy(null)));
+            originCacheManager.createCache("benchmark", configuration);
+        }
+        JCacheCacheManager result = new JCacheCacheManager(originCacheManager);
+        result.afterPropertiesSet();
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    protected CacheResolver createExpiryResolver(@Nonnull CacheManager cacheManager) {
+        JcacheExpiryCacheResolver result = new JcacheExpiryCacheResolver(cacheManager);
+        result.setBeanFactory(new DefaultListableBeanFactory());
+        return result;
+    }
+
+    @TearDown
+    public void closeCacheManager() {
+        if (originCacheManager != null) {
+            originCacheManager.close();
+        }
+    }
+
+
+    @Threads(value = Threads.MAX)
+    public static class Contended extends JcacheResolverBenchmark {
+    }
+}
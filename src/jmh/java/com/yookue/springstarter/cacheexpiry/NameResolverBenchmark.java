@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.TargetClassNameResolver;
+import com.yookue.springstarter.cacheexpiry.util.CacheExpiryDetectionUtils;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.cacheexpiry.resolver.impl.TargetClassNameResolver} and {@link com.yookue.springstarter.cacheexpiry.util.CacheExpiryDetectionUtils}
+ *
+ * @author David Hsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+@Threads(value = 1)
+public class NameResolverBenchmark {
+    private final TargetClassNameResolver nameResolver = new TargetClassNameResolver();
+    private CacheOperationInvocationContext<BasicOperation> context;
+    private Method method;
+
+    @Setup
+    public void setUp() {
+        context = new MockInvocationContext(new AbstractResolverBenchmark.MockBenchmarkTarget(), "constantTerm", "benchmark");
+        method = context.getMethod();
+        nameResolver.getCacheNames(context);
+    }
+
+    @Benchmark
+    public Collection<String> targetClassNameResolver() {
+        return nameResolver.getCacheNames(context);
+    }
+
+    @Benchmark
+    public Collection<String> detectCacheNames() {
+        return CacheExpiryDetectionUtils.detectCacheNames(context, nameResolver);
+    }
+
+    @Benchmark
+    public Duration detectCachePeriod() {
+        return CacheExpiryDetectionUtils.detectCachePeriod(method);
+    }
+
+
+    @Threads(value = Threads.MAX)
+    public static class Contended extends NameResolverBenchmark {
+    }
+}
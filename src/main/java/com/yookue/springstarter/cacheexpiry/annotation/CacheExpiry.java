@@ -51,10 +51,13 @@ import org.apache.commons.lang3.StringUtils;
 public @interface CacheExpiry {
     /**
      * Returns the time amount for the cache
+     * <p>
+     * If {@code ttlExpression} is specified, this is the fallback when the expression evaluates to null.
+     * Either a positive ttl or a {@code ttlExpression} must be specified, otherwise indexing the method fails
      *
      * @return the time amount for the cache
      */
-    long ttl();
+    long ttl() default 0L;
 
     /**
      * Returns the time unit for the cache
@@ -63,6 +66,61 @@ public @interface CacheExpiry {
      */
     ChronoUnit unit() default ChronoUnit.SECONDS;
 
+    /**
+     * Returns the SpEL expression that evaluates the time to live of each cached value
+     * <p>
+     * The expression is evaluated against the method arguments (such as {@code #token} or {@code #p0}) and the method result ({@code #result}),
+     * and its value can be a number in {@code unit}, a {@link java.time.Duration}, or a deadline of {@link java.time.Instant} or {@link java.util.Date}.
+     * The entries share one cache per cache name, and expire individually
+     * <p>
+     * For example: {@code @CacheExpiry(ttlExpression = "#result.expiresIn")}
+     *
+     * @return the SpEL expression that evaluates the time to live of each cached value
+     */
+    String ttlExpression() default StringUtils.EMPTY;
+
+    /**
+     * Returns the random jitter that shortens the time to live of each cached value
+     * <p>
+     * The jitter can be a percentage (such as {@code 10%}), a duration (such as {@code 30s} or {@code PT30S}), or a number in {@code unit}.
+     * Blank means using {@code spring.cache-expiry.cache-resolver.default-jitter}, and {@code 0} means no jitter.
+     * The entries share one cache per cache name, and expire individually
+     *
+     * @return the random jitter that shortens the time to live of each cached value
+     */
+    String jitter() default StringUtils.EMPTY;
+
+    /**
+     * Returns the time amount after writing that the cached value is refreshed in background
+     * <p>
+     * The value is refreshed when it is read after this period, and the callers keep getting the current value until the refreshed one is written.
+     * For Redis, the entries that written by other nodes are refreshed by their remaining ttls, while for JCache, only the entries that written locally are refreshed.
+     * The entries share one cache per cache name, and {@code 0} means never refresh
+     *
+     * @return the time amount after writing that the cached value is refreshed in background
+     */
+    long refreshAfter() default 0L;
+
+    /**
+     * Returns whether to guard the loads of the cached values with a lease that shared by the nodes
+     * <p>
+     * The node that acquires the lease loads the value, while the other nodes wait for the value within a bounded time.
+     * This applies to Redis caches with {@code @Cacheable(sync = true)} only
+     *
+     * @return whether to guard the loads of the cached values with a lease that shared by the nodes
+     */
+    boolean lease() default false;
+
+    /**
+     * Returns the name of the codec that writes the cached values
+     * <p>
+     * Specifies {@code jdk}, {@code compact}, or the name of a {@link com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec} bean.
+     * Blank means using {@code spring.cache-expiry.redis.cache-codecs} or {@code spring.cache-expiry.redis.codec}. This applies to Redis caches only
+     *
+     * @return the name of the codec that writes the cached values
+     */
+    String codec() default StringUtils.EMPTY;
+
     /**
      * Returns the cache names if not specified on method
      * <p>
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+
+
+/**
+ * {@link org.springframework.cache.Cache} that decorates another cache
+ *
+ * @author David Hsing
+ */
+public interface CacheDecorator extends Cache {
+    /**
+     * Returns the cache that decorated by this
+     *
+     * @return the cache that decorated by this
+     */
+    @Nonnull
+    Cache getTargetCache();
+
+    /**
+     * Returns the innermost cache of the {@code type} along the decorators of the {@code cache}
+     *
+     * @param cache the cache to unwrap
+     * @param type the type of the cache to find
+     *
+     * @return the innermost cache of the {@code type} along the decorators of the {@code cache}, or {@code null} if not found
+     */
+    @Nullable
+    static <T extends Cache> T unwrap(@Nullable Cache cache, @Nonnull Class<T> type) {
+        Cache current = cache;
+        while (current != null) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+            current = (current instanceof CacheDecorator decorator) ? decorator.getTargetCache() : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Generation counters that shared by the nodes of a cluster, which stamp the key prefixes of caches
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.cache.GenerationalCache
+ */
+public interface CacheGenerations {
+    /**
+     * Returns the current generation of the {@code counterKey}
+     *
+     * @param counterKey the key of the generation counter
+     *
+     * @return the current generation of the {@code counterKey}, {@code 0} if never incremented
+     */
+    long getGeneration(@Nonnull String counterKey);
+
+    /**
+     * Increments the generation of the {@code counterKey}
+     *
+     * @param counterKey the key of the generation counter
+     *
+     * @return the generation of the {@code counterKey} after the increment
+     */
+    long increment(@Nonnull String counterKey);
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Short-lived lease that shared by the nodes of a cluster, which guards the load of a cache key
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.cache.LeaseLoadingCache
+ */
+public interface CacheLease {
+    /**
+     * Acquires the lease of the {@code leaseKey} if absent
+     *
+     * @param leaseKey the key of the lease
+     * @param token the token that identifies the holder
+     * @param leaseTime the time that the lease expires after
+     *
+     * @return whether the lease is acquired or not
+     */
+    boolean tryAcquire(@Nonnull String leaseKey, @Nonnull String token, @Nonnull Duration leaseTime);
+
+    /**
+     * Releases the lease of the {@code leaseKey} if it is still held by the {@code token}
+     *
+     * @param leaseKey the key of the lease
+     * @param token the token that identifies the holder
+     */
+    void release(@Nonnull String leaseKey, @Nonnull String token);
+}
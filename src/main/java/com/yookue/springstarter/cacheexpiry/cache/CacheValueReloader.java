@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Reloader of a cached value, which captures the invocation that produced the value
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#refreshAfter()
+ */
+public interface CacheValueReloader {
+    /**
+     * Returns the value that produced by invoking again
+     *
+     * @return the value that produced by invoking again
+     *
+     * @throws Exception if the invocation failed
+     */
+    @Nullable
+    Object reload() throws Exception;
+
+    /**
+     * Returns the ttl of the {@code value}
+     *
+     * @param value the reloaded value
+     *
+     * @return the ttl of the {@code value}, or {@code null} to use the default ttl of the cache
+     */
+    @Nullable
+    Duration getTtl(@Nullable Object value);
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * {@link javax.cache.expiry.ExpiryPolicy} that prefers the ttl of {@link com.yookue.springstarter.cacheexpiry.cache.ExpiryTtlContextHolder}
+ * <p>
+ * JCache has no per-entry ttl on writes, so this relies on the provider consulting the policy on the writing thread, as in-process providers do
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ContextualExpiryPolicy implements ExpiryPolicy, Serializable {
+    private final Duration fallbackDuration;
+
+    public ContextualExpiryPolicy(@Nullable Duration fallbackDuration) {
+        this.fallbackDuration = (fallbackDuration == null) ? Duration.ETERNAL : fallbackDuration;
+    }
+
+    @Override
+    public Duration getExpiryForCreation() {
+        Duration duration = getContextDuration();
+        return (duration != null) ? duration : fallbackDuration;
+    }
+
+    @Override
+    public Duration getExpiryForAccess() {
+        return null;
+    }
+
+    @Override
+    public Duration getExpiryForUpdate() {
+        return getContextDuration();
+    }
+
+    @Nullable
+    private Duration getContextDuration() {
+        java.time.Duration ttl = ExpiryTtlContextHolder.getTtl();
+        return (ttl == null) ? null : new Duration(TimeUnit.MILLISECONDS, Math.max(ttl.toMillis(), 1L));
+    }
+}
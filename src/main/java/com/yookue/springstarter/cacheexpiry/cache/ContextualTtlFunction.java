@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.data.redis.cache.RedisCacheWriter.TtlFunction} that prefers the ttl of {@link com.yookue.springstarter.cacheexpiry.cache.ExpiryTtlContextHolder}
+ * <p>
+ * Asynchronous retrievals write on the threads that complete the loads, so their ttls are taken from {@link #getDeferredTtls()} instead
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ContextualTtlFunction implements RedisCacheWriter.TtlFunction {
+    private final RedisCacheWriter.TtlFunction fallbackFunction;
+
+    @Getter
+    private final DeferredExpiryTtls deferredTtls = new DeferredExpiryTtls();
+
+    public ContextualTtlFunction(@Nonnull RedisCacheWriter.TtlFunction fallbackFunction) {
+        this.fallbackFunction = fallbackFunction;
+    }
+
+    @Nonnull
+    @Override
+    public Duration getTimeToLive(@Nonnull Object key, @Nullable Object value) {
+        Duration ttl = ExpiryTtlContextHolder.getTtl();
+        if (ttl == null) {
+            ttl = deferredTtls.take(key, value);
+        }
+        return (ttl != null) ? ttl : fallbackFunction.getTimeToLive(key, value);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.support.NullValue;
+
+
+/**
+ * Ttls of the values that loaded asynchronously, keyed by cache keys and the loaded values
+ * <p>
+ * Asynchronous loads complete on other threads, where {@link com.yookue.springstarter.cacheexpiry.cache.ExpiryTtlContextHolder} is not populated,
+ * so the ttls are handed over to the caches, and taken once when the values are written.
+ * Each ttl is bound to the identity of its loaded value, which the caches write as is,
+ * so that concurrent loads of the same key never take the ttls of each other, unless they load the very same instance
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.cache.ExpressionExpiryCache#retrieve(Object, java.util.function.Supplier)
+ */
+@SuppressWarnings("unused")
+public class DeferredExpiryTtls {
+    private final Map<LoadToken, Duration> ttls = new ConcurrentHashMap<>();
+
+    /**
+     * Records the {@code ttl} of the {@code value} that is about to be written with the {@code key}
+     *
+     * @param key the key of the value
+     * @param value the loaded value
+     * @param ttl the ttl of the value, {@code null} means the default ttl of the cache
+     */
+    public void defer(@Nonnull Object key, @Nullable Object value, @Nullable Duration ttl) {
+        if (ttl != null) {
+            ttls.put(new LoadToken(key, value), ttl);
+        }
+    }
+
+    /**
+     * Returns and removes the ttl that recorded with the {@code key} and the {@code value}
+     *
+     * @param key the key of the value
+     * @param value the value to write, {@link org.springframework.cache.support.NullValue} is treated as {@code null}
+     *
+     * @return the ttl that recorded with the {@code key} and the {@code value}, or {@code null} if absent
+     */
+    @Nullable
+    public Duration take(@Nonnull Object key, @Nullable Object value) {
+        return ttls.isEmpty() ? null : ttls.remove(new LoadToken(key, value));
+    }
+
+    /**
+     * Removes the ttl that recorded with the {@code key} and the {@code value} if it has not been taken, such as when the write failed
+     *
+     * @param key the key of the value
+     * @param value the loaded value
+     */
+    public void discard(@Nonnull Object key, @Nullable Object value) {
+        if (!ttls.isEmpty()) {
+            ttls.remove(new LoadToken(key, value));
+        }
+    }
+
+    /**
+     * Returns the number of the ttls that have not been taken
+     *
+     * @return the number of the ttls that have not been taken
+     */
+    public int size() {
+        return ttls.size();
+    }
+
+
+    /**
+     * Token of a load, which compares the keys by equality and the values by identity
+     *
+     * @author David Hsing
+     */
+    private static final class LoadToken {
+        private final Object key;
+        private final Object value;
+
+        private LoadToken(@Nonnull Object key, @Nullable Object value) {
+            this.key = key;
+            this.value = (value == null) ? NullValue.INSTANCE : value;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object other) {
+            return this == other || (other instanceof LoadToken token && value == token.value && key.equals(token.key));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + System.identityHashCode(value);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Instant;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Interface for cache values that expose their own expiry deadlines
+ * <p>
+ * The caches that support per-entry expiry will expire the values at the deadline, rather than the ttl of {@link com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry}
+ *
+ * @author David Hsing
+ */
+public interface ExpiryDeadlineAware {
+    /**
+     * Returns the instant that the value expires at
+     *
+     * @return the instant that the value expires at, or {@code null} to use the ttl of the cache
+     */
+    @Nullable
+    Instant getExpiryDeadline();
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Holder that exposes the ttl and the reloader of the entry being written to the current thread
+ * <p>
+ * They are set around a single cache write, so that the per-entry hooks of the cache providers can pick them up
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.cache.ExpressionExpiryCache
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public abstract class ExpiryTtlContextHolder {
+    private static final ThreadLocal<Duration> TTL_HOLDER = new ThreadLocal<>();
+    private static final ThreadLocal<CacheValueReloader> RELOADER_HOLDER = new ThreadLocal<>();
+
+    /**
+     * Returns the ttl of the entry being written
+     *
+     * @return the ttl of the entry being written, or {@code null} if absent
+     */
+    @Nullable
+    public static Duration getTtl() {
+        return TTL_HOLDER.get();
+    }
+
+    /**
+     * Sets the ttl of the entry being written
+     *
+     * @param ttl the ttl of the entry being written, {@code null} to remove it
+     *
+     * @return the previous ttl, which is expected to be restored after writing
+     */
+    @Nullable
+    public static Duration setTtl(@Nullable Duration ttl) {
+        Duration previous = TTL_HOLDER.get();
+        if (ttl == null) {
+            TTL_HOLDER.remove();
+        } else {
+            TTL_HOLDER.set(ttl);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the reloader of the entry being written
+     *
+     * @return the reloader of the entry being written, or {@code null} if absent
+     */
+    @Nullable
+    public static CacheValueReloader getReloader() {
+        return RELOADER_HOLDER.get();
+    }
+
+    /**
+     * Sets the reloader of the entry being written
+     *
+     * @param reloader the reloader of the entry being written, {@code null} to remove it
+     *
+     * @return the previous reloader, which is expected to be restored after writing
+     */
+    @Nullable
+    public static CacheValueReloader setReloader(@Nullable CacheValueReloader reloader) {
+        CacheValueReloader previous = RELOADER_HOLDER.get();
+        if (reloader == null) {
+            RELOADER_HOLDER.remove();
+        } else {
+            RELOADER_HOLDER.set(reloader);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that computes the ttl of each written value, and exposes it by {@link com.yookue.springstarter.cacheexpiry.cache.ExpiryTtlContextHolder}
+ * along with the reloader of the invocation if any
+ * <p>
+ * The decorator is lightweight and created per cache invocation, while the target cache is shared.
+ * The ttls of asynchronous retrievals are handed over with the loaded values by the {@link com.yookue.springstarter.cacheexpiry.cache.DeferredExpiryTtls} of the target cache if any,
+ * otherwise the values they load expire after the default ttl of the target cache
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#ttlExpression()
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ExpressionExpiryCache implements CacheDecorator {
+    private final Cache targetCache;
+    private final Function<Object, Duration> ttlFunction;
+    private final CacheValueReloader reloader;
+    private final DeferredExpiryTtls deferredTtls;
+
+    public ExpressionExpiryCache(@Nonnull Cache targetCache, @Nonnull Function<Object, Duration> ttlFunction) {
+        this(targetCache, ttlFunction, null);
+    }
+
+    public ExpressionExpiryCache(@Nonnull Cache targetCache, @Nonnull Function<Object, Duration> ttlFunction, @Nullable CacheValueReloader reloader) {
+        this(targetCache, ttlFunction, reloader, null);
+    }
+
+    public ExpressionExpiryCache(@Nonnull Cache targetCache, @Nonnull Function<Object, Duration> ttlFunction, @Nullable CacheValueReloader reloader, @Nullable DeferredExpiryTtls deferredTtls) {
+        this.targetCache = targetCache;
+        this.ttlFunction = ttlFunction;
+        this.reloader = reloader;
+        this.deferredTtls = deferredTtls;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        return targetCache.get(key);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        return targetCache.get(key, type);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        Duration previousTtl = ExpiryTtlContextHolder.getTtl();
+        CacheValueReloader previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            return targetCache.get(key, () -> {
+                T value = valueLoader.call();
+                ExpiryTtlContextHolder.setTtl(ttlFunction.apply(value));
+                return value;
+            });
+        } finally {
+            ExpiryTtlContextHolder.setTtl(previousTtl);
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        if (deferredTtls == null) {
+            return targetCache.retrieve(key, valueLoader);
+        }
+        // The reloader is captured by the target cache on the calling thread, while the ttl is known when the loader completes
+        AtomicReference<Supplier<Object>> loadedValue = new AtomicReference<>();
+        CacheValueReloader previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            return targetCache.retrieve(key, () -> valueLoader.get().thenApply(value -> {
+                deferredTtls.defer(key, value, ttlFunction.apply(value));
+                loadedValue.set(() -> value);
+                return value;
+            })).whenComplete((value, ex) -> {
+                Supplier<Object> loaded = loadedValue.get();
+                if (loaded != null) {
+                    deferredTtls.discard(key, loaded.get());
+                }
+            });
+        } finally {
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        Duration previousTtl = ExpiryTtlContextHolder.setTtl(ttlFunction.apply(value));
+        CacheValueReloader previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            targetCache.put(key, value);
+        } finally {
+            ExpiryTtlContextHolder.setTtl(previousTtl);
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        Duration previousTtl = ExpiryTtlContextHolder.setTtl(ttlFunction.apply(value));
+        CacheValueReloader previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            return targetCache.putIfAbsent(key, value);
+        } finally {
+            ExpiryTtlContextHolder.setTtl(previousTtl);
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return targetCache.invalidate();
+    }
+}
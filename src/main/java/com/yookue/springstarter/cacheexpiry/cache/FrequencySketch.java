@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Count-min sketch with 4-bit counters that estimates the access frequencies of keys, in the style of TinyLFU
+ * <p>
+ * Each long packs sixteen counters, and each key increments one counter in each of four rows, so the estimate is the minimum of them.
+ * The counters are halved after a sample of increments, so that the frequencies age and the keys that cooled down fall back.
+ * Updates are lock-free and approximate, which is acceptable for an estimate
+ *
+ * @author David Hsing
+ * @reference "https://arxiv.org/abs/1512.00727"
+ */
+@SuppressWarnings({"unused", "JavadocDeclaration"})
+public final class FrequencySketch {
+    /**
+     * The maximum value of a counter
+     */
+    public static final int MAXIMUM_FREQUENCY = 15;
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int ROWS = 4;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructs a new sketch
+     *
+     * @param expectedKeys the expected number of distinct keys to track, which determines the width of the sketch
+     */
+    public FrequencySketch(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(Math.min(expectedKeys, 1 << 24), 16) * 2 - 1);
+        this.table = new AtomicLongArray(capacity);
+        this.tableMask = capacity - 1;
+        this.sampleSize = capacity * 10;
+    }
+
+    /**
+     * Returns the estimated frequency of the {@code key}
+     *
+     * @param key the key to estimate
+     *
+     * @return the estimated frequency of the {@code key}, between 0 and {@link #MAXIMUM_FREQUENCY}
+     */
+    public int frequency(@Nonnull Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAXIMUM_FREQUENCY;
+        for (int i = 0; i < ROWS; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table.get(indexOf(hash, i)) >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments the frequency of the {@code key}
+     *
+     * @param key the key that accessed
+     *
+     * @return the estimated frequency of the {@code key} after the increment
+     */
+    public int increment(@Nonnull Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAXIMUM_FREQUENCY;
+        for (int i = 0; i < ROWS; i++) {
+            frequency = Math.min(frequency, incrementAt(indexOf(hash, i), (start + i) << 2));
+        }
+        if (size.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+        return frequency;
+    }
+
+    private int incrementAt(int index, int offset) {
+        while (true) {
+            long value = table.get(index);
+            int count = (int) ((value >>> offset) & 0xfL);
+            if (count == MAXIMUM_FREQUENCY || table.compareAndSet(index, value, value + (1L << offset))) {
+                return Math.min(count + 1, MAXIMUM_FREQUENCY);
+            }
+        }
+    }
+
+    private void reset() {
+        int current = size.get();
+        if (current < sampleSize || !size.compareAndSet(current, current / 2)) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.getAndUpdate(i, value -> (value >>> 1) & RESET_MASK);
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        long result = (hash + SEEDS[row]) * SEEDS[row];
+        result += (result >>> 32);
+        return ((int) result) & tableMask;
+    }
+
+    private static int spread(int hash) {
+        int result = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        result = ((result >>> 16) ^ result) * 0x45d9f3b;
+        return (result >>> 16) ^ result;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that clears the target cache by incrementing the generation in its key prefix
+ * <p>
+ * The target cache is expected to prefix its keys with the current generation of the {@code counterKey},
+ * so a clear takes one increment instead of removing every key, and the entries of old generations age out through their ttls
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.cache.CacheGenerations
+ */
+@SuppressWarnings("unused")
+public class GenerationalCache implements CacheDecorator {
+    @Getter
+    private final Cache targetCache;
+
+    private final CacheGenerations generations;
+
+    @Getter
+    private final String counterKey;
+
+    public GenerationalCache(@Nonnull Cache targetCache, @Nonnull CacheGenerations generations, @Nonnull String counterKey) {
+        this.targetCache = targetCache;
+        this.generations = generations;
+        this.counterKey = counterKey;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        return targetCache.get(key);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        return targetCache.get(key, type);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        return targetCache.get(key, valueLoader);
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        return targetCache.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        generations.increment(counterKey);
+    }
+
+    @Override
+    public boolean invalidate() {
+        generations.increment(counterKey);
+        return true;
+    }
+}
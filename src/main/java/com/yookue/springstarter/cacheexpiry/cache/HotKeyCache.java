@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that tracks the access frequencies of keys, and promotes the hot keys into a small local level
+ * <p>
+ * The frequencies are estimated by a {@link com.yookue.springstarter.cacheexpiry.cache.FrequencySketch}.
+ * Once the frequency of a key that hits the target cache reaches the threshold, the value is kept locally for a short ttl,
+ * which bounds how long the local copy may lag behind the writes of other nodes
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class HotKeyCache implements CacheDecorator {
+    @Getter
+    private final Cache targetCache;
+
+    private final FrequencySketch sketch;
+    private final int threshold;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, ValueWrapper> localCache;
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder localHits = new LongAdder();
+
+    /**
+     * Constructs a new cache
+     *
+     * @param targetCache the cache to decorate
+     * @param threshold the estimated frequency that promotes a key, capped by {@link FrequencySketch#MAXIMUM_FREQUENCY}
+     * @param sketchSize the expected number of distinct keys to track
+     * @param localMaximumSize the maximum number of promoted keys
+     * @param localTtl the ttl of promoted keys
+     */
+    public HotKeyCache(@Nonnull Cache targetCache, int threshold, int sketchSize, long localMaximumSize, @Nonnull Duration localTtl) {
+        this.targetCache = targetCache;
+        this.sketch = new FrequencySketch(sketchSize);
+        this.threshold = Math.max(Math.min(threshold, FrequencySketch.MAXIMUM_FREQUENCY), 1);
+        this.localCache = Caffeine.newBuilder().maximumSize(localMaximumSize).expireAfterWrite(localTtl).build();
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        ValueWrapper local = localCache.getIfPresent(key);
+        if (local != null) {
+            localHits.increment();
+            return local;
+        }
+        ValueWrapper wrapper = targetCache.get(key);
+        if (wrapper != null) {
+            promoteIfHot(key, wrapper);
+        }
+        return wrapper;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = (wrapper == null) ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        ValueWrapper local = localCache.getIfPresent(key);
+        if (local != null) {
+            localHits.increment();
+            return (T) local.get();
+        }
+        T value = targetCache.get(key, valueLoader);
+        promoteIfHot(key, new SimpleValueWrapper(value));
+        return value;
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+        localCache.invalidate(key);
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        ValueWrapper existing = targetCache.putIfAbsent(key, value);
+        localCache.invalidate(key);
+        return existing;
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        localCache.invalidate(key);
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        localCache.invalidate(key);
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        localCache.invalidateAll();
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        localCache.invalidateAll();
+        return targetCache.invalidate();
+    }
+
+    /**
+     * Returns the number of promotions into the local level
+     *
+     * @return the number of promotions into the local level
+     */
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    /**
+     * Returns the number of hits of the local level
+     *
+     * @return the number of hits of the local level
+     */
+    public long getLocalHitCount() {
+        return localHits.sum();
+    }
+
+    /**
+     * Returns the estimated number of the keys that currently promoted into the local level
+     *
+     * @return the estimated number of the keys that currently promoted into the local level
+     */
+    public long getHotKeyCount() {
+        return localCache.estimatedSize();
+    }
+
+    /**
+     * Returns the keys that currently promoted into the local level
+     *
+     * @return the keys that currently promoted into the local level
+     */
+    @Nonnull
+    public List<Object> getHotKeys() {
+        return List.copyOf(localCache.asMap().keySet());
+    }
+
+    /**
+     * Returns the estimated access frequency of the {@code key}
+     *
+     * @param key the key to estimate
+     *
+     * @return the estimated access frequency of the {@code key}
+     */
+    public int getFrequency(@Nonnull Object key) {
+        return sketch.frequency(key);
+    }
+
+    private void promoteIfHot(@Nonnull Object key, @Nonnull ValueWrapper wrapper) {
+        if (sketch.increment(key) >= threshold) {
+            localCache.put(key, wrapper);
+            promotions.increment();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidation;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that broadcasts evictions and clears to the other nodes through a {@link com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus}
+ * <p>
+ * Puts are not broadcast, as each node loads its own values, and broadcasting them would make the nodes evict each other's fresh loads
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class InvalidationBroadcastCache implements CacheDecorator {
+    @Getter
+    private final Cache targetCache;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    public InvalidationBroadcastCache(@Nonnull Cache targetCache, @Nonnull CacheInvalidationBus invalidationBus) {
+        this.targetCache = targetCache;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        return targetCache.get(key);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        return targetCache.get(key, type);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        return targetCache.get(key, valueLoader);
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        return targetCache.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        targetCache.evict(key);
+        invalidationBus.publish(CacheInvalidation.ofKey(getName(), key));
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        boolean result = targetCache.evictIfPresent(key);
+        invalidationBus.publish(CacheInvalidation.ofKey(getName(), key));
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        targetCache.clear();
+        invalidationBus.publish(CacheInvalidation.ofClear(getName()));
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean result = targetCache.invalidate();
+        invalidationBus.publish(CacheInvalidation.ofClear(getName()));
+        return result;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.cache.Cache;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that guards the loads of {@link #get(Object, java.util.concurrent.Callable)} with a {@link com.yookue.springstarter.cacheexpiry.cache.CacheLease}
+ * <p>
+ * The node that acquires the lease of a key loads and writes the value, while the other nodes poll the cache for the value until {@code leaseWait} elapses.
+ * If the lease is released or expired without a value, the next poller takes over; if the wait elapses, the poller loads the value directly.
+ * The decorator is expected to be decorated by {@link com.yookue.springstarter.cacheexpiry.cache.SingleFlightCache}, so that only one caller per JVM polls or loads a key
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#lease()
+ */
+@SuppressWarnings("unused")
+public class LeaseLoadingCache implements CacheDecorator {
+    private static final String LEASE_SUFFIX = "~lease";    // $NON-NLS-1$
+
+    @Getter
+    private final Cache targetCache;
+
+    private final Function<Object, String> keyFunction;
+    private final CacheLease cacheLease;
+    private final Duration leaseTime;
+    private final Duration leaseWait;
+    private final Duration pollInterval;
+
+    /**
+     * Constructs a new cache
+     *
+     * @param targetCache the cache to decorate
+     * @param keyFunction the function that converts cache keys to the keys in the store
+     * @param cacheLease the lease that shared by the nodes
+     * @param leaseTime the time that the leases expire after
+     * @param leaseWait the maximum time to wait for the values that loaded by other nodes, {@code null} means the {@code leaseTime}
+     * @param pollInterval the interval to poll the values that loaded by other nodes
+     */
+    public LeaseLoadingCache(@Nonnull Cache targetCache, @Nonnull Function<Object, String> keyFunction, @Nonnull CacheLease cacheLease, @Nonnull Duration leaseTime, @Nullable Duration leaseWait, @Nonnull Duration pollInterval) {
+        this.targetCache = targetCache;
+        this.keyFunction = keyFunction;
+        this.cacheLease = cacheLease;
+        this.leaseTime = leaseTime;
+        this.leaseWait = ObjectUtils.defaultIfNull(leaseWait, leaseTime);
+        this.pollInterval = pollInterval;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        return targetCache.get(key);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        return targetCache.get(key, type);
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        ValueWrapper wrapper = targetCache.get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        try {
+            return loadWithLease(key, valueLoader);
+        } catch (ValueRetrievalException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        return targetCache.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return targetCache.invalidate();
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <T> T loadWithLease(@Nonnull Object key, @Nonnull Callable<T> valueLoader) throws Exception {
+        String leaseKey = keyFunction.apply(key) + LEASE_SUFFIX;
+        String token = UUID.randomUUID().toString();
+        long deadline = System.nanoTime() + leaseWait.toNanos();
+        while (true) {
+            if (cacheLease.tryAcquire(leaseKey, token, leaseTime)) {
+                try {
+                    // The holder of the previous lease may have written the value
+                    ValueWrapper wrapper = targetCache.get(key);
+                    return (wrapper != null) ? (T) wrapper.get() : loadValue(key, valueLoader);
+                } finally {
+                    cacheLease.release(leaseKey, token);
+                }
+            }
+            if (System.nanoTime() - deadline >= 0L) {
+                return loadValue(key, valueLoader);
+            }
+            try {
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return loadValue(key, valueLoader);
+            }
+            ValueWrapper wrapper = targetCache.get(key);
+            if (wrapper != null) {
+                return (T) wrapper.get();
+            }
+        }
+    }
+
+    @Nullable
+    private <T> T loadValue(@Nonnull Object key, @Nonnull Callable<T> valueLoader) throws Exception {
+        // The value must be written before the lease is released, otherwise the pollers may miss it
+        T value = valueLoader.call();
+        targetCache.put(key, value);
+        return value;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that counts the hits, misses, puts, evictions and loads of the target cache
+ * <p>
+ * The counters are {@link java.util.concurrent.atomic.LongAdder}s, which never contend on concurrent updates.
+ * The decorator is expected to be shared per cache, and only created when the metrics are enabled
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics
+ */
+@SuppressWarnings("unused")
+public class MeteredCache implements CacheDecorator {
+    @Getter
+    private final Cache targetCache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public MeteredCache(@Nonnull Cache targetCache) {
+        this.targetCache = targetCache;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        ValueWrapper result = targetCache.get(key);
+        (result == null ? misses : hits).increment();
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        T result = targetCache.get(key, type);
+        (result == null ? misses : hits).increment();
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        boolean[] loaded = new boolean[1];
+        T result = targetCache.get(key, () -> {
+            loaded[0] = true;
+            long startTime = System.nanoTime();
+            try {
+                T value = valueLoader.call();
+                loadSuccesses.increment();
+                return value;
+            } catch (Exception ex) {
+                loadFailures.increment();
+                throw ex;
+            } finally {
+                loadNanos.add(System.nanoTime() - startTime);
+            }
+        });
+        (loaded[0] ? misses : hits).increment();
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        CompletableFuture<?> result = targetCache.retrieve(key);
+        if (result == null) {
+            misses.increment();
+            return null;
+        }
+        return result.whenComplete((value, ex) -> (value == null ? misses : hits).increment());
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        boolean[] loaded = new boolean[1];
+        return targetCache.retrieve(key, () -> {
+            loaded[0] = true;
+            long startTime = System.nanoTime();
+            return valueLoader.get().whenComplete((value, ex) -> {
+                (ex == null ? loadSuccesses : loadFailures).increment();
+                loadNanos.add(System.nanoTime() - startTime);
+            });
+        }).whenComplete((value, ex) -> (loaded[0] ? misses : hits).increment());
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+        puts.increment();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        ValueWrapper result = targetCache.putIfAbsent(key, value);
+        if (result == null) {
+            puts.increment();
+        }
+        return result;
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        targetCache.evict(key);
+        evictions.increment();
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        boolean result = targetCache.evictIfPresent(key);
+        if (result) {
+            evictions.increment();
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return targetCache.invalidate();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long getTotalLoadTime() {
+        return loadNanos.sum();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.cache.CacheGenerations} that backed by Redis counters, and read through a short-lived local cache
+ * <p>
+ * The increments of other nodes are observed once the local generations expire, so the local ttl bounds how long a node may serve the entries of a cleared generation
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class RedisCacheGenerations implements CacheGenerations {
+    private final RedisConnectionFactory connectionFactory;
+    private final LoadingCache<String, Long> localGenerations;
+
+    public RedisCacheGenerations(@Nonnull RedisConnectionFactory connectionFactory, @Nonnull Duration localTtl) {
+        this.connectionFactory = connectionFactory;
+        this.localGenerations = Caffeine.newBuilder().expireAfterWrite(localTtl).build(this::loadGeneration);
+    }
+
+    @Override
+    public long getGeneration(@Nonnull String counterKey) {
+        Long generation = localGenerations.get(counterKey);
+        return (generation == null) ? 0L : generation;
+    }
+
+    @Override
+    public long increment(@Nonnull String counterKey) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long generation = connection.stringCommands().incr(toBytes(counterKey));
+            long result = (generation == null) ? 0L : generation;
+            localGenerations.put(counterKey, result);
+            return result;
+        }
+    }
+
+    @Nonnull
+    private Long loadGeneration(@Nonnull String counterKey) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] value = connection.stringCommands().get(toBytes(counterKey));
+            return (value == null) ? 0L : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Nonnull
+    private byte[] toBytes(@Nonnull String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.types.Expiration;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.cache.CacheLease} that backed by Redis, with {@code SET NX PX} to acquire and a compare-and-delete script to release
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class RedisCacheLease implements CacheLease {
+    private static final byte[] RELEASE_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end".getBytes(StandardCharsets.UTF_8);    // $NON-NLS-1$
+
+    private final RedisConnectionFactory connectionFactory;
+
+    public RedisCacheLease(@Nonnull RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public boolean tryAcquire(@Nonnull String leaseKey, @Nonnull String token, @Nonnull Duration leaseTime) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Boolean result = connection.stringCommands().set(toBytes(leaseKey), toBytes(token), Expiration.from(leaseTime), RedisStringCommands.SetOption.SET_IF_ABSENT);
+            return Boolean.TRUE.equals(result);
+        }
+    }
+
+    @Override
+    public void release(@Nonnull String leaseKey, @Nonnull String token) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().eval(RELEASE_SCRIPT, ReturnType.INTEGER, 1, toBytes(leaseKey), toBytes(token));
+        }
+    }
+
+    @Nonnull
+    private byte[] toBytes(@Nonnull String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
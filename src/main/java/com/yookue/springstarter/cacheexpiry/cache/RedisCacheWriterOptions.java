@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.BatchStrategy;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Options for creating {@link org.springframework.data.redis.cache.RedisCacheWriter}
+ * <p>
+ * Options that equal each other create equivalent writers, so a writer may be shared by the caches with equal options
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+@SuppressWarnings("unused")
+public class RedisCacheWriterOptions {
+    /**
+     * The strategy to remove keys when the caches are cleared
+     */
+    private BatchStrategyType batchStrategy = BatchStrategyType.SCAN;
+
+    /**
+     * The number of keys per batch of the {@code SCAN} strategy
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Whether to lock the caches while writing or not
+     */
+    private boolean locking = false;
+
+    /**
+     * The ttl of the locks, {@code null} means never expire
+     */
+    private Duration lockTtl;
+
+    /**
+     * The interval to poll the locks that held by others
+     */
+    private Duration lockSleepTime = Duration.ofMillis(50L);
+
+    /**
+     * Whether to collect the statistics of the caches or not
+     */
+    private boolean statistics = false;
+
+    /**
+     * Returns a new writer with the options
+     *
+     * @param connectionFactory the factory of Redis connections
+     *
+     * @return a new writer with the options
+     */
+    @Nonnull
+    public RedisCacheWriter createCacheWriter(@Nonnull RedisConnectionFactory connectionFactory) {
+        BatchStrategy strategy = (batchStrategy == BatchStrategyType.KEYS) ? BatchStrategies.keys() : BatchStrategies.scan(Math.max(batchSize, 1));
+        RedisCacheWriter result;
+        if (locking) {
+            RedisCacheWriter.TtlFunction lockTtlFunction = (lockTtl == null) ? RedisCacheWriter.TtlFunction.persistent() : RedisCacheWriter.TtlFunction.just(lockTtl);
+            result = RedisCacheWriter.lockingRedisCacheWriter(connectionFactory, (lockSleepTime == null) ? Duration.ofMillis(50L) : lockSleepTime, lockTtlFunction, strategy);
+        } else {
+            result = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, strategy);
+        }
+        return statistics ? result.withStatisticsCollector(CacheStatisticsCollector.create()) : result;
+    }
+
+
+    /**
+     * Types of {@link org.springframework.data.redis.cache.BatchStrategy}
+     *
+     * @author David Hsing
+     */
+    public enum BatchStrategyType {
+        /**
+         * Finds keys with {@code KEYS}, which blocks Redis on large key spaces
+         */
+        KEYS,
+
+        /**
+         * Finds keys with {@code SCAN} in batches
+         */
+        SCAN
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that reloads the entries asynchronously, once they are read after the refresh period
+ * <p>
+ * The callers keep getting the current values until the reloaded ones are written.
+ * The refresh deadlines are tracked locally for the entries that written with reloaders by this decorator, up to {@code maxTrackedEntries}.
+ * The entries that written by other nodes are adopted when they are read with reloaders, whose ages are derived from their remaining ttls in the backend,
+ * at the cost of one extra lookup per adoption. Without the remaining ttls, they expire as usual
+ * <p>
+ * Each tracked entry holds its reloader, which retains the target and the arguments of the invocation until the entry is reloaded, evicted or released.
+ * Once the tracked entries reach {@code maxTrackedEntries}, the ones past their deadlines are released, since they are not read since then
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#refreshAfter()
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class RefreshAheadCache implements CacheDecorator {
+    @Getter
+    private final Cache targetCache;
+
+    @Getter
+    private final Duration refreshAfter;
+
+    private final Executor refreshExecutor;
+    private final int maxTrackedEntries;
+    private final long refreshAfterNanos;
+    private final Function<Object, Duration> remainingTtlFunction;
+    private final LongSupplier ticker;
+    private final Map<Object, RefreshEntry> refreshEntries = new ConcurrentHashMap<>();
+    private volatile long releasedAt;
+
+    public RefreshAheadCache(@Nonnull Cache targetCache, @Nonnull Duration refreshAfter, @Nonnull Executor refreshExecutor, int maxTrackedEntries) {
+        this(targetCache, refreshAfter, refreshExecutor, maxTrackedEntries, null);
+    }
+
+    public RefreshAheadCache(@Nonnull Cache targetCache, @Nonnull Duration refreshAfter, @Nonnull Executor refreshExecutor, int maxTrackedEntries, @Nullable Function<Object, Duration> remainingTtlFunction) {
+        this(targetCache, refreshAfter, refreshExecutor, maxTrackedEntries, remainingTtlFunction, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new cache
+     *
+     * @param targetCache the cache to decorate
+     * @param refreshAfter the time amount after writing that the entries are refreshed
+     * @param refreshExecutor the executor that reloads the entries
+     * @param maxTrackedEntries the maximum number of entries to track refresh deadlines
+     * @param remainingTtlFunction the function that returns the remaining ttl of a target key, {@code null} means unknown
+     * @param ticker the source of nanosecond times
+     */
+    public RefreshAheadCache(@Nonnull Cache targetCache, @Nonnull Duration refreshAfter, @Nonnull Executor refreshExecutor, int maxTrackedEntries,
+        @Nullable Function<Object, Duration> remainingTtlFunction, @Nonnull LongSupplier ticker) {
+        this.targetCache = targetCache;
+        this.refreshAfter = refreshAfter;
+        this.refreshExecutor = refreshExecutor;
+        this.maxTrackedEntries = maxTrackedEntries;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.remainingTtlFunction = remainingTtlFunction;
+        this.ticker = ticker;
+        this.releasedAt = ticker.getAsLong() - refreshAfterNanos;
+    }
+
+    /**
+     * Returns the number of the tracked entries
+     *
+     * @return the number of the tracked entries
+     */
+    public int getTrackedCount() {
+        return refreshEntries.size();
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        return afterRead(key, targetCache.get(key));
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        return afterRead(key, targetCache.get(key, type));
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        CacheValueReloader reloader = ExpiryTtlContextHolder.getReloader();
+        boolean[] loaded = new boolean[1];
+        T value = targetCache.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if (loaded[0]) {
+            track(key, reloader);
+        } else {
+            afterRead(key, value);
+        }
+        return value;
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+        track(key, ExpiryTtlContextHolder.getReloader());
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        ValueWrapper existing = targetCache.putIfAbsent(key, value);
+        if (existing == null) {
+            track(key, ExpiryTtlContextHolder.getReloader());
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        refreshEntries.remove(key);
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        refreshEntries.remove(key);
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        refreshEntries.clear();
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        refreshEntries.clear();
+        return targetCache.invalidate();
+    }
+
+    private void track(@Nonnull Object key, @Nullable CacheValueReloader reloader) {
+        if (reloader == null) {
+            refreshEntries.remove(key);
+        } else if (isTrackable(key)) {
+            refreshEntries.put(key, new RefreshEntry(ticker.getAsLong() + refreshAfterNanos, reloader));
+        }
+    }
+
+    @Nullable
+    private RefreshEntry adopt(@Nonnull Object key, @Nonnull Object value) {
+        CacheValueReloader reloader = ExpiryTtlContextHolder.getReloader();
+        if (reloader == null || remainingTtlFunction == null || !isTrackable(key)) {
+            return null;
+        }
+        // The entry is tracked as written now if its age is unknown, so that each key is looked up once
+        long ageNanos = 0L;
+        Duration remaining = remainingTtlFunction.apply(key);
+        if (remaining != null && !remaining.isNegative() && !remaining.isZero()) {
+            Duration ttl = reloader.getTtl((value instanceof ValueWrapper wrapper) ? wrapper.get() : value);
+            ageNanos = (ttl == null) ? 0L : Math.max(ttl.toNanos() - remaining.toNanos(), 0L);
+        }
+        RefreshEntry entry = new RefreshEntry(ticker.getAsLong() + refreshAfterNanos - ageNanos, reloader);
+        RefreshEntry existing = refreshEntries.putIfAbsent(key, entry);
+        return (existing != null) ? existing : entry;
+    }
+
+    private boolean isTrackable(@Nonnull Object key) {
+        if (refreshEntries.size() < maxTrackedEntries || refreshEntries.containsKey(key)) {
+            return true;
+        }
+        // The entries past their deadlines are released at most once per refresh period, along with the targets and arguments of their reloaders
+        long now = ticker.getAsLong();
+        if (now - releasedAt >= refreshAfterNanos) {
+            releasedAt = now;
+            refreshEntries.values().removeIf(entry -> now - entry.deadline >= 0L);
+        }
+        return refreshEntries.size() < maxTrackedEntries;
+    }
+
+    private <T> T afterRead(@Nonnull Object key, @Nullable T value) {
+        RefreshEntry tracked = refreshEntries.get(key);
+        // The entries that read with reloaders but not tracked yet, are written by other nodes or before the capacity was released
+        RefreshEntry entry = (tracked != null || value == null) ? tracked : adopt(key, value);
+        if (entry == null) {
+            return value;
+        }
+        if (value == null) {
+            refreshEntries.remove(key, entry);
+        } else if (ticker.getAsLong() - entry.deadline >= 0L && refreshEntries.remove(key, entry)) {
+            // Only the caller that removes the entry schedules the reload
+            refreshExecutor.execute(() -> reload(key, entry.reloader));
+        }
+        return value;
+    }
+
+    private void reload(@Nonnull Object key, @Nonnull CacheValueReloader reloader) {
+        Duration previousTtl = ExpiryTtlContextHolder.getTtl();
+        CacheValueReloader previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            Object value = reloader.reload();
+            ExpiryTtlContextHolder.setTtl(reloader.getTtl(value));
+            put(key, value);
+        } catch (Exception ex) {
+            if (log.isWarnEnabled()) {
+                log.warn("Failed to refresh entry '{}' of cache '{}'", key, getName(), ex);
+            }
+        } finally {
+            ExpiryTtlContextHolder.setTtl(previousTtl);
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+    }
+
+
+    private record RefreshEntry(long deadline, CacheValueReloader reloader) {
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that coalesces the concurrent loads of the same key in this JVM
+ * <p>
+ * On a miss of {@link #get(Object, java.util.concurrent.Callable)}, the first caller loads the value and writes it, while the other callers of the same key wait for its future.
+ * The futures are held in a {@link java.util.concurrent.ConcurrentHashMap}, whose bins are locked independently, so the loads of different keys never contend.
+ * If the target cache is a {@link com.yookue.springstarter.cacheexpiry.cache.LeaseLoadingCache}, the first caller loads through it, so that the lease is acquired once per JVM.
+ * The decorator is expected to be shared per cache, rather than created per invocation
+ *
+ * @author David Hsing
+ * @see org.springframework.cache.annotation.Cacheable#sync()
+ */
+@SuppressWarnings("unused")
+public class SingleFlightCache implements CacheDecorator {
+    @Getter
+    private final Cache targetCache;
+
+    private final Map<Object, CompletableFuture<Object>> inFlights = new ConcurrentHashMap<>();
+
+    public SingleFlightCache(@Nonnull Cache targetCache) {
+        this.targetCache = targetCache;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        return targetCache.get(key);
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        return targetCache.get(key, type);
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        ValueWrapper wrapper = targetCache.get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlights.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return (T) inFlight.join();
+            } catch (CompletionException ex) {
+                Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new ValueRetrievalException(key, valueLoader, (cause instanceof ValueRetrievalException && cause.getCause() != null) ? cause.getCause() : cause);
+            }
+        }
+        try {
+            // The previous flight may have written the value right before this one started
+            wrapper = targetCache.get(key);
+            T value;
+            if (wrapper != null) {
+                value = (T) wrapper.get();
+            } else if (targetCache instanceof LeaseLoadingCache) {
+                // The lease writes the value before it is released
+                value = targetCache.get(key, valueLoader);
+            } else {
+                value = valueLoader.call();
+                targetCache.put(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (ValueRetrievalException | Error ex) {
+            // Errors are handed over to the waiting callers as is, rather than wrapped
+            future.completeExceptionally(ex);
+            throw ex;
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        } finally {
+            inFlights.remove(key, future);
+        }
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        return targetCache.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return targetCache.invalidate();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.Cache} decorator that keeps a bounded local level in front of the target cache
+ * <p>
+ * The local entries expire after {@code maxLocalTtl}, capped by the remaining ttls of the target entries, so that the local level never outlives the target level.
+ * The values that loaded or written through this decorator are capped by the ttls that the target cache writes with, without looking up their remaining ttls.
+ * If the remaining ttls are unknown, the values that read from the target cache are capped by the write ttls too
+ * <p>
+ * The hits of the local level return without reaching the target cache, so the decorators that act on reads, such as {@link com.yookue.springstarter.cacheexpiry.cache.RefreshAheadCache}, are expected to be in front of this
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class TieredCache implements CacheDecorator {
+    /**
+     * The expiry for the local native caches, which reads the ttls that recorded in entries
+     */
+    public static final Expiry<Object, Object> EXPIRY = new LocalExpiry();
+
+    @Getter
+    private final Cache targetCache;
+
+    @Getter
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache;
+
+    private final long maxLocalTtlNanos;
+    private final BiFunction<Object, Object, Duration> writeTtlFunction;
+    private final Function<Object, Duration> remainingTtlFunction;
+
+    /**
+     * Constructs a new cache
+     *
+     * @param targetCache the cache to decorate
+     * @param localCache the local native cache, which is expected to be bounded and built with {@link #EXPIRY}
+     * @param maxLocalTtl the maximum ttl of the local entries
+     * @param writeTtlFunction the function that returns the ttl that the target cache writes a key and value with, {@code null} or zero means never expire
+     * @param remainingTtlFunction the function that returns the remaining ttl of a target key, {@code null} means unknown
+     */
+    public TieredCache(@Nonnull Cache targetCache, @Nonnull com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache, @Nonnull Duration maxLocalTtl,
+        @Nonnull BiFunction<Object, Object, Duration> writeTtlFunction, @Nullable Function<Object, Duration> remainingTtlFunction) {
+        this.targetCache = targetCache;
+        this.localCache = localCache;
+        this.maxLocalTtlNanos = maxLocalTtl.toNanos();
+        this.writeTtlFunction = writeTtlFunction;
+        this.remainingTtlFunction = remainingTtlFunction;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return targetCache.getName();
+    }
+
+    @Nonnull
+    @Override
+    public Object getNativeCache() {
+        return targetCache.getNativeCache();
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper get(@Nonnull Object key) {
+        Object local = localCache.getIfPresent(key);
+        if (local instanceof LocalValue value) {
+            return value.getWrapper();
+        }
+        ValueWrapper wrapper = targetCache.get(key);
+        if (wrapper != null) {
+            putLocal(key, wrapper, readTtlNanos(key, wrapper.get()));
+        }
+        return wrapper;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = (wrapper == null) ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull Object key, @Nonnull Callable<T> valueLoader) {
+        Object local = localCache.getIfPresent(key);
+        if (local instanceof LocalValue value) {
+            return (T) value.getWrapper().get();
+        }
+        boolean[] loaded = new boolean[1];
+        T value = targetCache.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        // The values that loaded here are written with known ttls, only the ones from the target cache need the lookups
+        putLocal(key, new SimpleValueWrapper(value), loaded[0] ? capTtlNanos(writeTtlFunction.apply(key, value)) : readTtlNanos(key, value));
+        return value;
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        return targetCache.retrieve(key);
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        return targetCache.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@Nonnull Object key, @Nullable Object value) {
+        targetCache.put(key, value);
+        putLocal(key, new SimpleValueWrapper(value), capTtlNanos(writeTtlFunction.apply(key, value)));
+    }
+
+    @Nullable
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull Object key, @Nullable Object value) {
+        ValueWrapper existing = targetCache.putIfAbsent(key, value);
+        if (existing == null) {
+            putLocal(key, new SimpleValueWrapper(value), capTtlNanos(writeTtlFunction.apply(key, value)));
+        } else {
+            localCache.invalidate(key);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(@Nonnull Object key) {
+        localCache.invalidate(key);
+        targetCache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@Nonnull Object key) {
+        localCache.invalidate(key);
+        return targetCache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        localCache.invalidateAll();
+        targetCache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        localCache.invalidateAll();
+        return targetCache.invalidate();
+    }
+
+    /**
+     * Removes the local entry of the {@code key}, without touching the target cache
+     *
+     * @param key the key to remove
+     */
+    public void evictLocal(@Nonnull Object key) {
+        localCache.invalidate(key);
+    }
+
+    /**
+     * Removes all the local entries, without touching the target cache
+     */
+    public void clearLocal() {
+        localCache.invalidateAll();
+    }
+
+    private void putLocal(@Nonnull Object key, @Nonnull ValueWrapper wrapper, long ttlNanos) {
+        if (ttlNanos > 0L) {
+            localCache.put(key, new LocalValue(wrapper, ttlNanos));
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    private long readTtlNanos(@Nonnull Object key, @Nullable Object value) {
+        Duration remaining = (remainingTtlFunction == null) ? null : remainingTtlFunction.apply(key);
+        return capTtlNanos((remaining != null) ? remaining : writeTtlFunction.apply(key, value));
+    }
+
+    private long capTtlNanos(@Nullable Duration ttl) {
+        if (ttl == null || ttl.isZero()) {
+            return maxLocalTtlNanos;
+        }
+        return ttl.isNegative() ? 0L : Math.min(ttl.toNanos(), maxLocalTtlNanos);
+    }
+
+
+    /**
+     * Local value that records its ttl
+     *
+     * @author David Hsing
+     */
+    @Getter
+    private static final class LocalValue {
+        private final ValueWrapper wrapper;
+        private final long ttlNanos;
+
+        private LocalValue(@Nonnull ValueWrapper wrapper, long ttlNanos) {
+            this.wrapper = wrapper;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+
+    /**
+     * {@link com.github.benmanes.caffeine.cache.Expiry} that reads the ttls that recorded in local values
+     *
+     * @author David Hsing
+     */
+    private static final class LocalExpiry implements Expiry<Object, Object> {
+        @Override
+        public long expireAfterCreate(@Nonnull Object key, @Nonnull Object value, long currentTime) {
+            return (value instanceof LocalValue local) ? local.getTtlNanos() : 0L;
+        }
+
+        @Override
+        public long expireAfterUpdate(@Nonnull Object key, @Nonnull Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(@Nonnull Object key, @Nonnull Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.cache;
+
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.cache.caffeine.CaffeineCache} that expires each entry after its own ttl
+ * <p>
+ * Instances with different ttls may share one native cache that built with {@link #EXPIRY}, each entry records the ttl of the instance that wrote it,
+ * the ttl of {@link com.yookue.springstarter.cacheexpiry.cache.ExpiryTtlContextHolder} if present,
+ * or the deadline of the value if it implements {@link com.yookue.springstarter.cacheexpiry.cache.ExpiryDeadlineAware}
+ * <p>
+ * Instances that built on {@link com.github.benmanes.caffeine.cache.AsyncCache} support asynchronous retrievals,
+ * where the ttls of the loaded values are taken from {@link #getDeferredTtls()}, since the loads complete on other threads
+ *
+ * @author David Hsing
+ * @see com.github.benmanes.caffeine.cache.Caffeine#expireAfter
+ */
+@SuppressWarnings("unused")
+public class VariableExpiryCaffeineCache extends CaffeineCache {
+    /**
+     * The expiry for the native caches, which reads the ttls that recorded in entries
+     */
+    public static final Expiry<Object, Object> EXPIRY = new EntryExpiry();
+
+    @Getter
+    private final Duration ttl;
+
+    private final long ttlNanos;
+
+    @Getter
+    private final DeferredExpiryTtls deferredTtls = new DeferredExpiryTtls();
+
+    public VariableExpiryCaffeineCache(@Nonnull String name, @Nonnull Cache<Object, Object> cache, boolean allowNullValues, @Nullable Duration ttl) {
+        super(name, cache, allowNullValues);
+        this.ttl = ttl;
+        this.ttlNanos = (ttl == null) ? Long.MAX_VALUE : ttl.toNanos();
+    }
+
+    public VariableExpiryCaffeineCache(@Nonnull String name, @Nonnull AsyncCache<Object, Object> cache, boolean allowNullValues, @Nullable Duration ttl) {
+        super(name, cache, allowNullValues);
+        this.ttl = ttl;
+        this.ttlNanos = (ttl == null) ? Long.MAX_VALUE : ttl.toNanos();
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<?> retrieve(@Nonnull Object key) {
+        CompletableFuture<?> result = getAsyncCache().getIfPresent(key);
+        return (result == null) ? null : result.thenApply(storeValue -> isAllowNullValues() ? toValueWrapper(storeValue) : fromStoreValue(storeValue));
+    }
+
+    @Nonnull
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> retrieve(@Nonnull Object key, @Nonnull Supplier<CompletableFuture<T>> valueLoader) {
+        // The reloader is captured on the calling thread, while the ttl is taken when the loader completes
+        CacheValueReloader reloader = ExpiryTtlContextHolder.getReloader();
+        return (CompletableFuture<T>) getAsyncCache().get(key, (loadKey, executor) -> valueLoader.get().thenApply(userValue -> toAsyncStoreValue(loadKey, userValue, reloader))).thenApply(this::fromStoreValue);
+    }
+
+    @Override
+    protected Object fromStoreValue(@Nullable Object storeValue) {
+        return super.fromStoreValue((storeValue instanceof ExpiringValue value) ? value.getValue() : storeValue);
+    }
+
+    @Override
+    protected Object toStoreValue(@Nullable Object userValue) {
+        return new ExpiringValue(super.toStoreValue(userValue), determineTtlNanos(userValue), ExpiryTtlContextHolder.getReloader());
+    }
+
+    /**
+     * Returns the ttl in nanoseconds for the {@code userValue}
+     *
+     * @param userValue the value to store
+     *
+     * @return the ttl in nanoseconds for the {@code userValue}
+     */
+    protected long determineTtlNanos(@Nullable Object userValue) {
+        return determineTtlNanos(userValue, ExpiryTtlContextHolder.getTtl(), ttlNanos);
+    }
+
+    @Nullable
+    private Object toAsyncStoreValue(@Nonnull Object key, @Nullable Object userValue, @Nullable CacheValueReloader reloader) {
+        Duration deferredTtl = deferredTtls.take(key, userValue);
+        if (userValue == null && !isAllowNullValues()) {
+            return null;
+        }
+        return new ExpiringValue(super.toStoreValue(userValue), determineTtlNanos(userValue, deferredTtl, ttlNanos), reloader);
+    }
+
+    private static long determineTtlNanos(@Nullable Object userValue, @Nullable Duration ttl, long defaultNanos) {
+        if (userValue instanceof ExpiryDeadlineAware aware) {
+            Instant deadline = aware.getExpiryDeadline();
+            if (deadline != null) {
+                return Math.max(Duration.between(Instant.now(), deadline).toNanos(), 0L);
+            }
+        }
+        return (ttl != null) ? ttl.toNanos() : defaultNanos;
+    }
+
+
+    /**
+     * Store value that records the ttl and the reloader of the entry
+     *
+     * @author David Hsing
+     */
+    @Getter
+    protected static final class ExpiringValue {
+        private final Object value;
+        private final long ttlNanos;
+        private final CacheValueReloader reloader;
+
+        public ExpiringValue(@Nullable Object value, long ttlNanos, @Nullable CacheValueReloader reloader) {
+            this.value = value;
+            this.ttlNanos = ttlNanos;
+            this.reloader = reloader;
+        }
+    }
+
+
+    /**
+     * {@link com.github.benmanes.caffeine.cache.CacheLoader} for the native caches that refresh after write
+     * <p>
+     * The entries are reloaded by the reloaders that recorded in them, and the entries without reloaders are kept as is
+     *
+     * @author David Hsing
+     * @see com.github.benmanes.caffeine.cache.Caffeine#refreshAfterWrite
+     */
+    public static final class RefreshLoader implements CacheLoader<Object, Object> {
+        private final boolean allowNullValues;
+
+        public RefreshLoader(boolean allowNullValues) {
+            this.allowNullValues = allowNullValues;
+        }
+
+        @Override
+        public Object load(@Nonnull Object key) {
+            return null;
+        }
+
+        @Override
+        public Object reload(@Nonnull Object key, @Nonnull Object oldValue) throws Exception {
+            if (!(oldValue instanceof ExpiringValue expiring) || expiring.getReloader() == null) {
+                return oldValue;
+            }
+            CacheValueReloader reloader = expiring.getReloader();
+            Object userValue = reloader.reload();
+            if (userValue == null && !allowNullValues) {
+                return null;
+            }
+            Object storeValue = (userValue == null) ? NullValue.INSTANCE : userValue;
+            return new ExpiringValue(storeValue, determineTtlNanos(userValue, reloader.getTtl(userValue), Long.MAX_VALUE), reloader);
+        }
+    }
+
+
+    /**
+     * {@link com.github.benmanes.caffeine.cache.Expiry} that reads the ttls that recorded in entries
+     *
+     * @author David Hsing
+     */
+    private static final class EntryExpiry implements Expiry<Object, Object> {
+        @Override
+        public long expireAfterCreate(@Nonnull Object key, @Nonnull Object value, long currentTime) {
+            return (value instanceof ExpiringValue expiring) ? expiring.getTtlNanos() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(@Nonnull Object key, @Nonnull Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(@Nonnull Object key, @Nonnull Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.codec;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Codec of cached values, which is identified by a format byte in the header of each encoded value
+ * <p>
+ * Formats {@code 1} to {@code 31} are available to codecs, while {@code 0} denotes the serializer of the cache configuration.
+ * Beans of this type are registered by their names, in addition to the built-in codecs {@code jdk} and {@code compact}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.codec.CodecRedisSerializer
+ */
+public interface CacheValueCodec {
+    /**
+     * The maximum format of codecs
+     */
+    byte MAXIMUM_FORMAT = 0x1f;
+
+    /**
+     * Returns the name of the codec, which is referenced by {@link com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#codec()}
+     *
+     * @return the name of the codec
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Returns the format of the codec, which must be unique among the codecs of all nodes
+     *
+     * @return the format of the codec
+     */
+    byte getFormat();
+
+    /**
+     * Encodes the {@code value}
+     *
+     * @param value the value to encode
+     *
+     * @return the encoded bytes, without header
+     */
+    @Nonnull
+    byte[] encode(@Nullable Object value);
+
+    /**
+     * Decodes the {@code bytes}
+     *
+     * @param bytes the encoded bytes, without header
+     *
+     * @return the decoded value
+     */
+    @Nullable
+    Object decode(@Nonnull byte[] bytes);
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.codec;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.Assert;
+
+
+/**
+ * {@link org.springframework.data.redis.serializer.RedisSerializer} that writes values with a codec, and prepends two magic bytes and a header byte to each value
+ * <p>
+ * The low five bits of the header are the format of the codec, and the high bit marks a deflated payload, which is used above the compression threshold if it is smaller.
+ * Values are read with the codec of their header, so the formats may be mixed during rollout.
+ * Values without the magic bytes or a known header, such as the values that written before, are read with the codec of format {@code 0},
+ * and so are the values that cannot be read with the codec of their header, in case a value written before starts with the magic bytes by chance
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec
+ */
+@SuppressWarnings("unused")
+public class CodecRedisSerializer implements RedisSerializer<Object> {
+    private static final byte[] MAGIC = {(byte) 0xfe, (byte) 0xce};
+    private static final int PREFIX_LENGTH = MAGIC.length + 1;
+    private static final int COMPRESSED_FLAG = 0x80;
+    private static final int HEADER_MASK = 0x60;
+
+    private final CacheValueCodec writeCodec;
+    private final CacheValueCodec[] readCodecs = new CacheValueCodec[CacheValueCodec.MAXIMUM_FORMAT + 1];
+    private final int compressionThreshold;
+
+    /**
+     * Constructs a new serializer
+     *
+     * @param writeCodec the codec to write values
+     * @param readCodecs the codecs to read values, which must contain a codec of format {@code 0}
+     * @param compressionThreshold the number of encoded bytes that values are compressed above, {@code 0} means never compress
+     */
+    public CodecRedisSerializer(@Nonnull CacheValueCodec writeCodec, @Nonnull Collection<? extends CacheValueCodec> readCodecs, int compressionThreshold) {
+        for (CacheValueCodec codec : readCodecs) {
+            Assert.isTrue(codec.getFormat() >= 0 && codec.getFormat() <= CacheValueCodec.MAXIMUM_FORMAT, "Format of codec '" + codec.getName() + "' must be between 0 and 31");
+            this.readCodecs[codec.getFormat()] = codec;
+        }
+        Assert.notNull(this.readCodecs[0], "Codec of format 0 must be present");
+        this.writeCodec = writeCodec;
+        this.readCodecs[writeCodec.getFormat()] = writeCodec;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] serialize(@Nullable Object value) throws SerializationException {
+        byte[] payload = writeCodec.encode(value);
+        int header = writeCodec.getFormat();
+        if (compressionThreshold > 0 && payload.length >= compressionThreshold) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                header |= COMPRESSED_FLAG;
+            }
+        }
+        byte[] result = new byte[payload.length + PREFIX_LENGTH];
+        System.arraycopy(MAGIC, 0, result, 0, MAGIC.length);
+        result[MAGIC.length] = (byte) header;
+        System.arraycopy(payload, 0, result, PREFIX_LENGTH, payload.length);
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public Object deserialize(@Nullable byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        int header = (bytes.length >= PREFIX_LENGTH && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1]) ? (bytes[MAGIC.length] & 0xff) : HEADER_MASK;
+        CacheValueCodec codec = ((header & HEADER_MASK) == 0) ? readCodecs[header & CacheValueCodec.MAXIMUM_FORMAT] : null;
+        if (codec == null) {
+            return readCodecs[0].decode(bytes);
+        }
+        byte[] payload = new byte[bytes.length - PREFIX_LENGTH];
+        System.arraycopy(bytes, PREFIX_LENGTH, payload, 0, payload.length);
+        try {
+            return codec.decode(((header & COMPRESSED_FLAG) == 0) ? payload : inflate(payload));
+        } catch (RuntimeException ex) {
+            try {
+                return readCodecs[0].decode(bytes);
+            } catch (RuntimeException fallbackEx) {
+                fallbackEx.addSuppressed(ex);
+                throw fallbackEx;
+            }
+        }
+    }
+
+    @Nonnull
+    private byte[] deflate(@Nonnull byte[] bytes) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream stream = new DeflaterOutputStream(output, deflater)) {
+            stream.write(bytes);
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot compress value", ex);
+        } finally {
+            deflater.end();
+        }
+        return output.toByteArray();
+    }
+
+    @Nonnull
+    private byte[] inflate(@Nonnull byte[] bytes) {
+        try (InputStream stream = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return stream.readAllBytes();
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot decompress value", ex);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.codec;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.redis.serializer.SerializationException;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec} with a tagged binary format for the common JDK types
+ * <p>
+ * Strings, numbers, booleans, byte arrays, dates and the plain JDK collections of them are written without class descriptors,
+ * which are the bulk of Java serialization for small values. Other values are embedded with Java serialization
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class CompactCacheValueCodec implements CacheValueCodec {
+    public static final String NAME = "compact";    // $NON-NLS-1$
+    public static final byte FORMAT = 2;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_BOOLEAN = 2;
+    private static final int TAG_BYTE = 3;
+    private static final int TAG_SHORT = 4;
+    private static final int TAG_INTEGER = 5;
+    private static final int TAG_LONG = 6;
+    private static final int TAG_FLOAT = 7;
+    private static final int TAG_DOUBLE = 8;
+    private static final int TAG_CHARACTER = 9;
+    private static final int TAG_BYTES = 10;
+    private static final int TAG_BIG_INTEGER = 11;
+    private static final int TAG_BIG_DECIMAL = 12;
+    private static final int TAG_INSTANT = 13;
+    private static final int TAG_LOCAL_DATE = 14;
+    private static final int TAG_LOCAL_DATE_TIME = 15;
+    private static final int TAG_ARRAY_LIST = 16;
+    private static final int TAG_HASH_SET = 17;
+    private static final int TAG_LINKED_HASH_SET = 18;
+    private static final int TAG_HASH_MAP = 19;
+    private static final int TAG_LINKED_HASH_MAP = 20;
+    private static final int TAG_SERIALIZED = 127;
+
+    private final JdkCacheValueCodec fallbackCodec;
+
+    public CompactCacheValueCodec() {
+        this(null);
+    }
+
+    public CompactCacheValueCodec(@Nullable ClassLoader classLoader) {
+        this.fallbackCodec = new JdkCacheValueCodec(classLoader);
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getFormat() {
+        return FORMAT;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] encode(@Nullable Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            writeValue(output, value);
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot encode value of " + value.getClass().getName(), ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    @Override
+    public Object decode(@Nonnull byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return readValue(input);
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot decode value", ex);
+        }
+    }
+
+    private void writeValue(@Nonnull DataOutputStream output, @Nullable Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof String string) {
+            output.writeByte(TAG_STRING);
+            writeBytes(output, string.getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Boolean bool) {
+            output.writeByte(TAG_BOOLEAN);
+            output.writeBoolean(bool);
+        } else if (value instanceof Byte number) {
+            output.writeByte(TAG_BYTE);
+            output.writeByte(number);
+        } else if (value instanceof Short number) {
+            output.writeByte(TAG_SHORT);
+            output.writeShort(number);
+        } else if (value instanceof Integer number) {
+            output.writeByte(TAG_INTEGER);
+            output.writeInt(number);
+        } else if (value instanceof Long number) {
+            output.writeByte(TAG_LONG);
+            output.writeLong(number);
+        } else if (value instanceof Float number) {
+            output.writeByte(TAG_FLOAT);
+            output.writeFloat(number);
+        } else if (value instanceof Double number) {
+            output.writeByte(TAG_DOUBLE);
+            output.writeDouble(number);
+        } else if (value instanceof Character character) {
+            output.writeByte(TAG_CHARACTER);
+            output.writeChar(character);
+        } else if (value instanceof byte[] array) {
+            output.writeByte(TAG_BYTES);
+            writeBytes(output, array);
+        } else if (value.getClass() == BigInteger.class) {
+            output.writeByte(TAG_BIG_INTEGER);
+            writeBytes(output, ((BigInteger) value).toByteArray());
+        } else if (value.getClass() == BigDecimal.class) {
+            output.writeByte(TAG_BIG_DECIMAL);
+            output.writeInt(((BigDecimal) value).scale());
+            writeBytes(output, ((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof Instant instant) {
+            output.writeByte(TAG_INSTANT);
+            output.writeLong(instant.getEpochSecond());
+            output.writeInt(instant.getNano());
+        } else if (value instanceof LocalDate date) {
+            output.writeByte(TAG_LOCAL_DATE);
+            output.writeLong(date.toEpochDay());
+        } else if (value instanceof LocalDateTime dateTime) {
+            output.writeByte(TAG_LOCAL_DATE_TIME);
+            output.writeLong(dateTime.toLocalDate().toEpochDay());
+            output.writeLong(dateTime.toLocalTime().toNanoOfDay());
+        } else if (value.getClass() == ArrayList.class) {
+            writeCollection(output, TAG_ARRAY_LIST, (Collection<?>) value);
+        } else if (value.getClass() == HashSet.class) {
+            writeCollection(output, TAG_HASH_SET, (Collection<?>) value);
+        } else if (value.getClass() == LinkedHashSet.class) {
+            writeCollection(output, TAG_LINKED_HASH_SET, (Collection<?>) value);
+        } else if (value.getClass() == HashMap.class) {
+            writeMap(output, TAG_HASH_MAP, (Map<?, ?>) value);
+        } else if (value.getClass() == LinkedHashMap.class) {
+            writeMap(output, TAG_LINKED_HASH_MAP, (Map<?, ?>) value);
+        } else {
+            output.writeByte(TAG_SERIALIZED);
+            writeBytes(output, fallbackCodec.encode(value));
+        }
+    }
+
+    @Nullable
+    private Object readValue(@Nonnull DataInputStream input) throws IOException {
+        int tag = input.readUnsignedByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> new String(readBytes(input), StandardCharsets.UTF_8);
+            case TAG_BOOLEAN -> input.readBoolean();
+            case TAG_BYTE -> input.readByte();
+            case TAG_SHORT -> input.readShort();
+            case TAG_INTEGER -> input.readInt();
+            case TAG_LONG -> input.readLong();
+            case TAG_FLOAT -> input.readFloat();
+            case TAG_DOUBLE -> input.readDouble();
+            case TAG_CHARACTER -> input.readChar();
+            case TAG_BYTES -> readBytes(input);
+            case TAG_BIG_INTEGER -> new BigInteger(readBytes(input));
+            case TAG_BIG_DECIMAL -> {
+                int scale = input.readInt();
+                yield new BigDecimal(new BigInteger(readBytes(input)), scale);
+            }
+            case TAG_INSTANT -> {
+                long seconds = input.readLong();
+                yield Instant.ofEpochSecond(seconds, input.readInt());
+            }
+            case TAG_LOCAL_DATE -> LocalDate.ofEpochDay(input.readLong());
+            case TAG_LOCAL_DATE_TIME -> {
+                LocalDate date = LocalDate.ofEpochDay(input.readLong());
+                yield LocalDateTime.of(date, LocalTime.ofNanoOfDay(input.readLong()));
+            }
+            case TAG_ARRAY_LIST -> readCollection(input, new ArrayList<>());
+            case TAG_HASH_SET -> readCollection(input, new HashSet<>());
+            case TAG_LINKED_HASH_SET -> readCollection(input, new LinkedHashSet<>());
+            case TAG_HASH_MAP -> readMap(input, new HashMap<>());
+            case TAG_LINKED_HASH_MAP -> readMap(input, new LinkedHashMap<>());
+            case TAG_SERIALIZED -> fallbackCodec.decode(readBytes(input));
+            default -> throw new SerializationException("Unknown tag " + tag + " of compact value");
+        };
+    }
+
+    private void writeCollection(@Nonnull DataOutputStream output, int tag, @Nonnull Collection<?> collection) throws IOException {
+        output.writeByte(tag);
+        output.writeInt(collection.size());
+        for (Object element : collection) {
+            writeValue(output, element);
+        }
+    }
+
+    private void writeMap(@Nonnull DataOutputStream output, int tag, @Nonnull Map<?, ?> map) throws IOException {
+        output.writeByte(tag);
+        output.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(output, entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    @Nonnull
+    private Collection<Object> readCollection(@Nonnull DataInputStream input, @Nonnull Collection<Object> collection) throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(input));
+        }
+        return collection;
+    }
+
+    @Nonnull
+    private Map<Object, Object> readMap(@Nonnull DataInputStream input, @Nonnull Map<Object, Object> map) throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(input);
+            map.put(key, readValue(input));
+        }
+        return map;
+    }
+
+    private void writeBytes(@Nonnull DataOutputStream output, @Nonnull byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @Nonnull
+    private byte[] readBytes(@Nonnull DataInputStream input) throws IOException {
+        byte[] result = new byte[input.readInt()];
+        input.readFully(result);
+        return result;
+    }
+}
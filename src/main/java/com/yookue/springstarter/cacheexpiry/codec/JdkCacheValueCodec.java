@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.codec;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec} with Java serialization
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class JdkCacheValueCodec implements CacheValueCodec {
+    public static final String NAME = "jdk";    // $NON-NLS-1$
+    public static final byte FORMAT = 1;
+
+    private final JdkSerializationRedisSerializer serializer;
+
+    public JdkCacheValueCodec() {
+        this(null);
+    }
+
+    public JdkCacheValueCodec(@Nullable ClassLoader classLoader) {
+        this.serializer = new JdkSerializationRedisSerializer(classLoader);
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getFormat() {
+        return FORMAT;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] encode(@Nullable Object value) {
+        return serializer.serialize(value);
+    }
+
+    @Nullable
+    @Override
+    public Object decode(@Nonnull byte[] bytes) {
+        return serializer.deserialize(bytes);
+    }
+}
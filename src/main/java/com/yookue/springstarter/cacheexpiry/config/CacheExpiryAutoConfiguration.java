@@ -17,9 +17,13 @@
 package com.yookue.springstarter.cacheexpiry.config;
 
 
+import java.time.Duration;
 import java.util.Optional;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -33,10 +37,19 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Role;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import com.yookue.commonplexus.springutil.enumeration.CacheManagerType;
+import com.yookue.springstarter.cacheexpiry.endpoint.CacheExpiryEndpoint;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationChannel;
+import com.yookue.springstarter.cacheexpiry.invalidation.RedisInvalidationChannel;
+import com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.metrics.MicrometerCacheExpiryMetrics;
 import com.yookue.springstarter.cacheexpiry.processor.CacheExpiryResolverProcessor;
 import com.yookue.springstarter.cacheexpiry.property.CacheExpiryProperties;
 import com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.impl.TargetClassNameResolver;
 import jakarta.annotation.Nonnull;
 
@@ -52,8 +65,8 @@ import jakarta.annotation.Nonnull;
 @ConditionalOnProperty(prefix = CacheExpiryAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
 @ConditionalOnClass(value = CacheManager.class)
 @ConditionalOnBean(value = CacheAspectSupport.class)
-@AutoConfigureAfter(value = CacheAutoConfiguration.class)
-@Import(value = {CacheExpiryAutoConfiguration.Entry.class, CacheExpiryAutoConfiguration.Caffeine.class, CacheExpiryAutoConfiguration.Jcache.class, CacheExpiryAutoConfiguration.Redis.class})
+@AutoConfigureAfter(value = CacheAutoConfiguration.class, name = {"org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration", "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"})
+@Import(value = {CacheExpiryAutoConfiguration.Entry.class, CacheExpiryAutoConfiguration.Metrics.class, CacheExpiryAutoConfiguration.Actuator.class, CacheExpiryAutoConfiguration.Invalidation.class, CacheExpiryAutoConfiguration.RedisInvalidation.class, CacheExpiryAutoConfiguration.Caffeine.class, CacheExpiryAutoConfiguration.Jcache.class, CacheExpiryAutoConfiguration.Redis.class})
 public class CacheExpiryAutoConfiguration {
     public static final String PROPERTIES_PREFIX = "spring.cache-expiry";    // $NON-NLS-1$
     public static final String CACHE_MANAGER = "cacheExpiryCacheManager";    // $NON-NLS-1$
@@ -87,6 +100,69 @@ public class CacheExpiryAutoConfiguration {
     }
 
 
+    @Order(value = 0)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnBean(type = "io.micrometer.core.instrument.MeterRegistry")
+    @Role(value = BeanDefinition.ROLE_INFRASTRUCTURE)
+    static class Metrics {
+        @Bean
+        @ConditionalOnMissingBean
+        public CacheExpiryMetrics cacheExpiryMetrics(@Nonnull ObjectProvider<MeterRegistry> registryProvider) {
+            // The registry is looked up on first use, since the resolvers are created while beans are post-processed
+            return new MicrometerCacheExpiryMetrics(registryProvider::getObject);
+        }
+    }
+
+
+    @Order(value = 0)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    @ConditionalOnAvailableEndpoint(endpoint = CacheExpiryEndpoint.class)
+    @Role(value = BeanDefinition.ROLE_INFRASTRUCTURE)
+    static class Actuator {
+        @Bean
+        @ConditionalOnMissingBean
+        public CacheExpiryEndpoint cacheExpiryEndpoint(@Nonnull ObjectProvider<ExpiryCacheResolver> resolverProvider) {
+            // The resolver is looked up per operation, since it is registered while beans are post-processed
+            return new CacheExpiryEndpoint(resolverProvider);
+        }
+    }
+
+
+    @Order(value = 0)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".invalidation", name = "enabled", havingValue = "true")
+    @ConditionalOnClass(name = "org.springframework.data.redis.connection.RedisConnectionFactory")
+    @ConditionalOnBean(type = "org.springframework.data.redis.connection.RedisConnectionFactory")
+    @Role(value = BeanDefinition.ROLE_INFRASTRUCTURE)
+    static class RedisInvalidation {
+        @Bean
+        @ConditionalOnMissingBean
+        public CacheInvalidationChannel cacheExpiryInvalidationChannel(@Nonnull CacheExpiryProperties properties, @Nonnull RedisConnectionFactory connectionFactory) {
+            return new RedisInvalidationChannel(connectionFactory, properties.getInvalidation().getChannel());
+        }
+    }
+
+
+    @Order(value = 0)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".invalidation", name = "enabled", havingValue = "true")
+    @ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
+    @Role(value = BeanDefinition.ROLE_INFRASTRUCTURE)
+    static class Invalidation {
+        @Bean
+        @ConditionalOnMissingBean
+        public CacheInvalidationBus cacheExpiryInvalidationBus(@Nonnull CacheExpiryProperties properties, @Nonnull ObjectProvider<CacheInvalidationChannel> channelProvider) {
+            CacheExpiryProperties.Invalidation props = properties.getInvalidation();
+            // The in-memory channel never reaches other nodes, so it is only used if registered explicitly
+            CacheInvalidationChannel channel = channelProvider.getIfAvailable();
+            if (channel == null) {
+                throw new IllegalStateException("Cache invalidation is enabled, but there is neither a RedisConnectionFactory nor a " + CacheInvalidationChannel.class.getName() + " bean");
+            }
+            Duration batchInterval = ObjectUtils.defaultIfNull(props.getBatchInterval(), Duration.ofMillis(50L));
+            return new CacheInvalidationBus(channel, batchInterval, ObjectUtils.defaultIfNull(props.getBatchSize(), 500));
+        }
+    }
+
+
     @Order(value = 1)
     @ConditionalOnProperty(prefix = "spring.cache", name = "type", havingValue = "caffeine", matchIfMissing = true)
     @ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
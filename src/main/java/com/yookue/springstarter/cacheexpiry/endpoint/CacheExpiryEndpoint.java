@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.endpoint;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.OperationResponseBody;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.util.ClassUtils;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryTtlOverrides;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheStatistics;
+import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * {@link org.springframework.boot.actuate.endpoint.annotation.Endpoint} that inspects and retunes the expiry caches at runtime
+ * <p>
+ * Reads {@code /actuator/cacheexpiry} to list the expiry caches, and {@code /actuator/cacheexpiry/{cacheName}} to list the caches with the name.
+ * Posts {@code {"ttl": "5m"}} to {@code /actuator/cacheexpiry/{cacheName}} to override the ttl of the caches, and posts {@code {}} to restore the declared ttl.
+ * Deletes {@code /actuator/cacheexpiry/{cacheName}} to clear the caches
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.actuate.cache.CachesEndpoint
+ */
+@Endpoint(id = CacheExpiryEndpoint.ENDPOINT_ID)
+@RequiredArgsConstructor
+@SuppressWarnings("unused")
+public class CacheExpiryEndpoint {
+    public static final String ENDPOINT_ID = "cacheexpiry";    // $NON-NLS-1$
+
+    private final ObjectProvider<ExpiryCacheResolver> resolverProvider;
+
+    /**
+     * Returns the descriptor of all the expiry caches
+     *
+     * @return the descriptor of all the expiry caches
+     */
+    @ReadOperation
+    @Nonnull
+    public ExpiryCachesDescriptor caches() {
+        return new ExpiryCachesDescriptor(describeCaches(null), describeTtlOverrides(), describePropertyTtls());
+    }
+
+    /**
+     * Returns the descriptor of the expiry caches with the {@code cacheName}
+     *
+     * @param cacheName the name of the caches
+     *
+     * @return the descriptor of the expiry caches with the {@code cacheName}, or {@code null} if none
+     */
+    @ReadOperation
+    @Nullable
+    public ExpiryCachesDescriptor cache(@Selector @Nonnull String cacheName) {
+        List<ExpiryCacheDescriptor> caches = describeCaches(cacheName);
+        return caches.isEmpty() ? null : new ExpiryCachesDescriptor(caches, describeTtlOverrides(), describePropertyTtls());
+    }
+
+    /**
+     * Overrides the ttl of the caches with the {@code cacheName}, or restores the declared ttl if the {@code ttl} is absent
+     * <p>
+     * The caches are created again with the new ttl on the next calls, and the entries that written before keep their ttls.
+     * The resolvers without an index of expiry metadata are skipped.
+     * The {@code ttl} is annotated with the nullable annotation of Spring, which the endpoints treat as optional
+     *
+     * @param cacheName the name of the caches
+     * @param ttl the ttl to override with, such as {@code 5m} or {@code PT5M}
+     *
+     * @return the descriptor of all the expiry caches
+     *
+     * @throws org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException if none of the resolvers exposes an index of expiry metadata
+     */
+    @WriteOperation
+    @Nonnull
+    public ExpiryCachesDescriptor updateCache(@Selector @Nonnull String cacheName, @org.springframework.lang.Nullable Duration ttl) {
+        List<ExpiryCacheResolver> resolvers = resolverProvider.stream().filter(resolver -> resolver.getMetadataIndex() != null).toList();
+        if (resolvers.isEmpty()) {
+            throw new InvalidEndpointRequestException("None of the cache resolvers takes overrides of the ttls", "Ttl overrides are not supported");
+        }
+        for (ExpiryCacheResolver resolver : resolvers) {
+            CacheExpiryTtlOverrides ttlOverrides = resolver.getMetadataIndex().getTtlOverrides();
+            if (ttl == null) {
+                ttlOverrides.removeTtl(cacheName);
+            } else {
+                ttlOverrides.setTtl(cacheName, ttl);
+            }
+            resolver.releaseCaches(cacheName);
+        }
+        return caches();
+    }
+
+    /**
+     * Removes all the entries of the caches with the {@code cacheName}
+     *
+     * @param cacheName the name of the caches
+     */
+    @DeleteOperation
+    public void clearCache(@Selector @Nonnull String cacheName) {
+        resolverProvider.forEach(resolver -> resolver.clearCaches(cacheName));
+    }
+
+    @Nonnull
+    private List<ExpiryCacheDescriptor> describeCaches(@Nullable String cacheName) {
+        List<ExpiryCacheDescriptor> result = new ArrayList<>();
+        for (ExpiryCacheResolver resolver : resolverProvider) {
+            CacheExpiryMetadataIndex metadataIndex = resolver.getMetadataIndex();
+            Collection<CacheExpiryMetadata> metadata = (metadataIndex == null) ? Collections.emptyList() : metadataIndex.getMetadata();
+            resolver.getExpiryCaches().forEach((key, cache) -> {
+                if (cacheName == null || StringUtils.equals(key.getCacheName(), cacheName)) {
+                    List<CacheExpiryMetadata> owners = metadata.stream().filter(element -> element.getResolvedCacheKeys().contains(key)).toList();
+                    result.add(describeCache(resolver, key, owners, resolver.getStatistics(cache)));
+                }
+            });
+        }
+        result.sort(Comparator.comparing(ExpiryCacheDescriptor::getName).thenComparing(element -> StringUtils.defaultString(element.getTtl())));
+        return result;
+    }
+
+    @Nonnull
+    private ExpiryCacheDescriptor describeCache(@Nonnull ExpiryCacheResolver resolver, @Nonnull ExpiryCacheKey key, @Nonnull List<CacheExpiryMetadata> owners, @Nonnull ExpiryCacheStatistics statistics) {
+        CacheExpiryMetadata.TtlSource ttlSource = owners.stream().map(element -> element.getTtlSource(key.getCacheName())).findFirst().orElse(null);
+        List<String> methods = owners.stream().map(element -> ClassUtils.getQualifiedMethodName(element.getMethod(), element.getTargetClass())).sorted().toList();
+        return new ExpiryCacheDescriptor(key.getCacheName(), resolver.getBackend(), Objects.toString(key.getTtl(), null), ttlSource, Objects.toString(key.getRefreshAfter(), null), key.getCodec(), methods, statistics);
+    }
+
+    @Nonnull
+    private Map<String, String> describeTtlOverrides() {
+        Map<String, String> result = new LinkedHashMap<>();
+        resolverProvider.forEach(resolver -> {
+            CacheExpiryMetadataIndex metadataIndex = resolver.getMetadataIndex();
+            if (metadataIndex != null) {
+                metadataIndex.getTtlOverrides().getTtls().forEach((cacheName, ttl) -> result.putIfAbsent(cacheName, ttl.toString()));
+            }
+        });
+        return result;
+    }
+
+
+    @Nonnull
+    private Map<String, String> describePropertyTtls() {
+        Map<String, String> result = new LinkedHashMap<>();
+        resolverProvider.forEach(resolver -> {
+            CacheExpiryMetadataIndex metadataIndex = resolver.getMetadataIndex();
+            if (metadataIndex != null) {
+                metadataIndex.getTtlOverrides().getPropertyTtls().forEach((key, ttl) -> result.putIfAbsent(key, ttl.toString()));
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Descriptor of the expiry caches
+     *
+     * @author David Hsing
+     */
+    @AllArgsConstructor
+    @Getter
+    public static final class ExpiryCachesDescriptor implements OperationResponseBody {
+        /**
+         * The expiry caches, sorted by names and ttls
+         */
+        private final List<ExpiryCacheDescriptor> caches;
+
+        /**
+         * The ttls overridden at runtime, keyed by cache names
+         */
+        private final Map<String, String> ttlOverrides;
+
+        /**
+         * The ttls from properties, keyed by cache names or method patterns
+         */
+        private final Map<String, String> propertyTtls;
+    }
+
+
+    /**
+     * Descriptor of an expiry cache
+     *
+     * @author David Hsing
+     */
+    @AllArgsConstructor
+    @Getter
+    public static final class ExpiryCacheDescriptor {
+        /**
+         * The name of the cache
+         */
+        private final String name;
+
+        /**
+         * The backend of the cache, such as {@code caffeine}, {@code jcache} or {@code redis}
+         */
+        private final String backend;
+
+        /**
+         * The ttl of the cache, {@code null} means the ttls of the entries
+         */
+        private final String ttl;
+
+        /**
+         * Where the ttl comes from, such as the annotation, the expression, the properties or the runtime override, {@code null} means no method resolves to the cache with the current ttl
+         */
+        private final CacheExpiryMetadata.TtlSource ttlSource;
+
+        /**
+         * The period after writing that the entries are refreshed, {@code null} means never refresh
+         */
+        private final String refreshAfter;
+
+        /**
+         * The name of the codec that writes the values, {@code null} means the default codec
+         */
+        private final String codec;
+
+        /**
+         * The methods that resolve to the cache
+         */
+        private final List<String> methods;
+
+        /**
+         * The size and the statistics of the cache
+         */
+        private final ExpiryCacheStatistics statistics;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.expression;
+
+
+import java.lang.reflect.Method;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * Root object of {@link com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#ttlExpression()}
+ *
+ * @author David Hsing
+ * @see org.springframework.cache.interceptor.CacheExpressionRootObject
+ */
+@AllArgsConstructor
+@Getter
+@SuppressWarnings("unused")
+public class ExpiryExpressionRootObject {
+    @Nonnull
+    private final Method method;
+
+    @Nonnull
+    private final Object[] args;
+
+    @Nullable
+    private final Object target;
+
+    @Nonnull
+    private final Class<?> targetClass;
+
+    @Nullable
+    private final Object result;
+
+    @Nonnull
+    public String getMethodName() {
+        return method.getName();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.io.Serial;
+import java.io.Serializable;
+import jakarta.annotation.Nonnull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Invalidation of a key, or of all the keys, of the caches with a cache name
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@EqualsAndHashCode
+@ToString
+@SuppressWarnings("unused")
+public final class CacheInvalidation implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the caches to invalidate
+     */
+    private final String cacheName;
+
+    /**
+     * The key to invalidate, {@code null} means all the keys
+     */
+    private final Object key;
+
+    @Nonnull
+    public static CacheInvalidation ofKey(@Nonnull String cacheName, @Nonnull Object key) {
+        return new CacheInvalidation(cacheName, key);
+    }
+
+    @Nonnull
+    public static CacheInvalidation ofClear(@Nonnull String cacheName) {
+        return new CacheInvalidation(cacheName, null);
+    }
+
+    /**
+     * Returns whether to invalidate all the keys or not
+     *
+     * @return whether to invalidate all the keys or not
+     */
+    public boolean isClear() {
+        return key == null;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.DisposableBean;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Bus that batches the invalidations of a node, and broadcasts them through a {@link com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationChannel}
+ * <p>
+ * The invalidations are coalesced until the batch interval elapses or the batch size is reached:
+ * repeated keys are sent once, and the keys of a cache name are dropped once the cache name is cleared.
+ * The messages that published by the node itself are ignored on receipt
+ *
+ * @author David Hsing
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class CacheInvalidationBus implements DisposableBean {
+    private final CacheInvalidationChannel channel;
+    private final long batchIntervalNanos;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+    private final Object lock = new Object();
+
+    /**
+     * The id of the node, which is unique per bus
+     */
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Map<String, Set<Object>> pendingKeys = new LinkedHashMap<>();
+    private Set<String> pendingClears = new LinkedHashSet<>();
+    private int pendingSize = 0;
+    private boolean flushScheduled = false;
+
+    public CacheInvalidationBus(@Nonnull CacheInvalidationChannel channel, @Nonnull Duration batchInterval, int batchSize) {
+        this.channel = channel;
+        this.batchIntervalNanos = batchInterval.toNanos();
+        this.batchSize = Math.max(batchSize, 1);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-expiry-invalidation");    // $NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the {@code invalidation} for the next broadcast
+     *
+     * @param invalidation the invalidation to broadcast
+     */
+    public void publish(@Nonnull CacheInvalidation invalidation) {
+        synchronized (lock) {
+            String cacheName = invalidation.getCacheName();
+            if (pendingClears.contains(cacheName)) {
+                return;
+            }
+            if (invalidation.isClear()) {
+                Set<Object> keys = pendingKeys.remove(cacheName);
+                pendingSize -= (keys == null) ? 0 : keys.size();
+                pendingClears.add(cacheName);
+                pendingSize++;
+            } else if (pendingKeys.computeIfAbsent(cacheName, name -> new HashSet<>()).add(invalidation.getKey())) {
+                pendingSize++;
+            }
+            if (pendingSize >= batchSize) {
+                flushScheduled = true;
+                executor.execute(this::flush);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, batchIntervalNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Subscribes the {@code handler} to the invalidations that published by the other nodes
+     *
+     * @param handler the handler to apply invalidations
+     */
+    public void subscribe(@Nonnull Consumer<CacheInvalidation> handler) {
+        channel.subscribe(message -> {
+            if (!nodeId.equals(message.getOrigin())) {
+                message.getInvalidations().forEach(handler);
+            }
+        });
+    }
+
+    /**
+     * Broadcasts the pending invalidations immediately
+     */
+    public void flush() {
+        List<CacheInvalidation> invalidations;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pendingSize == 0) {
+                return;
+            }
+            invalidations = new ArrayList<>(pendingSize);
+            pendingClears.forEach(cacheName -> invalidations.add(CacheInvalidation.ofClear(cacheName)));
+            pendingKeys.forEach((cacheName, keys) -> keys.forEach(key -> invalidations.add(CacheInvalidation.ofKey(cacheName, key))));
+            pendingKeys = new LinkedHashMap<>();
+            pendingClears = new LinkedHashSet<>();
+            pendingSize = 0;
+        }
+        try {
+            channel.publish(new CacheInvalidationMessage(nodeId, invalidations));
+        } catch (RuntimeException ex) {
+            log.warn("Cannot broadcast {} cache invalidations", invalidations.size(), ex);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdown();
+        flush();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Channel that broadcasts invalidation messages to all the nodes, including the publishing node
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus
+ */
+public interface CacheInvalidationChannel {
+    /**
+     * Broadcasts the {@code message} to all the subscribers
+     *
+     * @param message the message to broadcast
+     */
+    void publish(@Nonnull CacheInvalidationMessage message);
+
+    /**
+     * Subscribes the {@code listener} to the messages of the channel
+     *
+     * @param listener the listener to receive messages
+     */
+    void subscribe(@Nonnull Consumer<CacheInvalidationMessage> listener);
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Codec of {@link com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationMessage} with a fixed wire format, which never loads classes on receipt
+ * <p>
+ * The keys of strings, longs and integers are sent as they are, while the other keys, which cannot be rebuilt without their classes,
+ * are sent as clears of their cache names, so that the other nodes invalidate more rather than less
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class CacheInvalidationCodec {
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte CLEAR_TYPE = 0;
+    private static final byte STRING_TYPE = 1;
+    private static final byte LONG_TYPE = 2;
+    private static final byte INTEGER_TYPE = 3;
+
+    /**
+     * Returns the bytes of the {@code message}
+     *
+     * @param message the message to encode
+     *
+     * @return the bytes of the {@code message}
+     */
+    @Nonnull
+    public byte[] encode(@Nonnull CacheInvalidationMessage message) {
+        Set<CacheInvalidation> invalidations = new LinkedHashSet<>(message.getInvalidations().size());
+        for (CacheInvalidation invalidation : message.getInvalidations()) {
+            Object key = invalidation.getKey();
+            boolean supported = key == null || key instanceof String || key instanceof Long || key instanceof Integer;
+            invalidations.add(supported ? invalidation : CacheInvalidation.ofClear(invalidation.getCacheName()));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            writeString(output, message.getOrigin());
+            output.writeInt(invalidations.size());
+            for (CacheInvalidation invalidation : invalidations) {
+                writeString(output, invalidation.getCacheName());
+                Object key = invalidation.getKey();
+                if (key == null) {
+                    output.writeByte(CLEAR_TYPE);
+                } else if (key instanceof String stringKey) {
+                    output.writeByte(STRING_TYPE);
+                    writeString(output, stringKey);
+                } else if (key instanceof Long longKey) {
+                    output.writeByte(LONG_TYPE);
+                    output.writeLong(longKey);
+                } else {
+                    output.writeByte(INTEGER_TYPE);
+                    output.writeInt((Integer) key);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the message of the {@code bytes}
+     *
+     * @param bytes the bytes to decode
+     *
+     * @return the message of the {@code bytes}
+     * @throws IllegalArgumentException if the {@code bytes} are not a message of this format
+     */
+    @Nonnull
+    public CacheInvalidationMessage decode(@Nonnull byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = input.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported cache invalidation format " + version);
+            }
+            String origin = readString(input);
+            int count = input.readInt();
+            // Each invalidation takes five bytes at least
+            if (count < 0 || count > input.available() / 5) {
+                throw new IllegalArgumentException("Invalid cache invalidation count " + count);
+            }
+            List<CacheInvalidation> invalidations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String cacheName = readString(input);
+                byte type = input.readByte();
+                invalidations.add(switch (type) {
+                    case CLEAR_TYPE -> CacheInvalidation.ofClear(cacheName);
+                    case STRING_TYPE -> CacheInvalidation.ofKey(cacheName, readString(input));
+                    case LONG_TYPE -> CacheInvalidation.ofKey(cacheName, input.readLong());
+                    case INTEGER_TYPE -> CacheInvalidation.ofKey(cacheName, input.readInt());
+                    default -> throw new IllegalArgumentException("Unsupported cache invalidation key type " + type);
+                });
+            }
+            if (input.available() > 0) {
+                throw new IllegalArgumentException("Trailing bytes of cache invalidation message");
+            }
+            return new CacheInvalidationMessage(origin, invalidations);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Truncated cache invalidation message", ex);
+        }
+    }
+
+    private void writeString(@Nonnull DataOutputStream output, @Nonnull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @Nonnull
+    private String readString(@Nonnull DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IllegalArgumentException("Invalid cache invalidation string length " + length);
+        }
+        return new String(input.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
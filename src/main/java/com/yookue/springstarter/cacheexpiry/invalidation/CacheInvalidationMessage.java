@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Batch of invalidations that broadcast by a node
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public final class CacheInvalidationMessage implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the node that broadcast the message
+     */
+    private final String origin;
+
+    /**
+     * The coalesced invalidations
+     */
+    private final List<CacheInvalidation> invalidations;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationChannel} that delivers messages to the subscribers of the same JVM synchronously
+ * <p>
+ * Suitable for tests, and for the nodes that share one channel instance, which registers it as a bean explicitly
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class InMemoryInvalidationChannel implements CacheInvalidationChannel {
+    private final List<Consumer<CacheInvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(@Nonnull CacheInvalidationMessage message) {
+        listeners.forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void subscribe(@Nonnull Consumer<CacheInvalidationMessage> listener) {
+        listeners.add(listener);
+    }
+}
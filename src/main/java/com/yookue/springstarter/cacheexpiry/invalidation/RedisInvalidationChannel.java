@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.invalidation;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationChannel} that backed by Redis pub/sub
+ * <p>
+ * Messages are written with {@link com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationCodec}, so the messages of the shared channel never load classes
+ *
+ * @author David Hsing
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class RedisInvalidationChannel implements CacheInvalidationChannel, DisposableBean {
+    private final RedisConnectionFactory connectionFactory;
+    private final String topic;
+    private final CacheInvalidationCodec codec = new CacheInvalidationCodec();
+    private RedisMessageListenerContainer listenerContainer;
+
+    public RedisInvalidationChannel(@Nonnull RedisConnectionFactory connectionFactory, @Nonnull String topic) {
+        this.connectionFactory = connectionFactory;
+        this.topic = topic;
+    }
+
+    @Override
+    public void publish(@Nonnull CacheInvalidationMessage message) {
+        byte[] body = codec.encode(message);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.publish(topic.getBytes(StandardCharsets.UTF_8), body);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(@Nonnull Consumer<CacheInvalidationMessage> listener) {
+        if (listenerContainer == null) {
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(connectionFactory);
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            CacheInvalidationMessage invalidationMessage;
+            try {
+                invalidationMessage = codec.decode(message.getBody());
+            } catch (RuntimeException ex) {
+                log.warn("Cannot decode cache invalidation message of topic '{}'", topic, ex);
+                return;
+            }
+            listener.accept(invalidationMessage);
+        }, new ChannelTopic(topic));
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+            listenerContainer = null;
+        }
+    }
+}
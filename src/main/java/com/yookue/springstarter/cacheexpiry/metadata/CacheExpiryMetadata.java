@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.metadata;
+
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.expression.Expression;
+import org.springframework.util.ClassUtils;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.cache.CacheValueReloader;
+import com.yookue.springstarter.cacheexpiry.expression.ExpiryExpressionRootObject;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.util.CacheExpiryDetectionUtils;
+import com.yookue.springstarter.cacheexpiry.util.CacheExpiryExpressionUtils;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.ToString;
+
+
+/**
+ * Resolved expiry metadata of a method on a target class
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex
+ */
+@Getter
+@ToString(exclude = {"ttlOverrides", "cacheKeys"})
+@SuppressWarnings("unused")
+public final class CacheExpiryMetadata {
+    /**
+     * The method that the metadata describes
+     */
+    private final Method method;
+
+    /**
+     * The target class that declares or inherits the method
+     */
+    private final Class<?> targetClass;
+
+    /**
+     * Whether the method is annotated with {@link com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry} or not
+     */
+    private final boolean annotated;
+
+    /**
+     * The time to live of the caches, {@code null} means never expire
+     */
+    private final Duration ttl;
+
+    /**
+     * The bean name of {@link com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver}
+     */
+    private final String nameResolver;
+
+    /**
+     * The time unit for the numeric values of the ttl expression
+     */
+    private final ChronoUnit ttlUnit;
+
+    /**
+     * The parsed ttl expression, {@code null} means the ttl is constant
+     */
+    private final Expression ttlExpression;
+
+    /**
+     * The random jitter of the ttl, {@code null} means no jitter
+     */
+    private final ExpiryJitter jitter;
+
+    /**
+     * The period after writing that the entries are refreshed, {@code null} means never refresh
+     */
+    private final Duration refreshAfter;
+
+    /**
+     * Whether to guard the loads with a lease that shared by the nodes or not
+     */
+    private final boolean lease;
+
+    /**
+     * The name of the codec that writes the cached values, {@code null} means the default codec
+     */
+    private final String codec;
+
+    /**
+     * The overrides of the ttls per cache name, {@code null} means no overrides
+     */
+    private final CacheExpiryTtlOverrides ttlOverrides;
+
+    private final Map<String, ExpiryCacheKey> cacheKeys = new ConcurrentHashMap<>();
+
+    public CacheExpiryMetadata(@Nonnull Method method, @Nonnull Class<?> targetClass) {
+        this(method, targetClass, null);
+    }
+
+    public CacheExpiryMetadata(@Nonnull Method method, @Nonnull Class<?> targetClass, @Nullable String defaultJitter) {
+        this(method, targetClass, defaultJitter, null);
+    }
+
+    public CacheExpiryMetadata(@Nonnull Method method, @Nonnull Class<?> targetClass, @Nullable String defaultJitter, @Nullable CacheExpiryTtlOverrides ttlOverrides) {
+        this.method = method;
+        this.targetClass = targetClass;
+        CacheExpiry annotation = AnnotationUtils.getAnnotation(method, CacheExpiry.class);
+        if (annotation != null && annotation.ttl() <= 0L && StringUtils.isBlank(annotation.ttlExpression())) {
+            throw new IllegalStateException("@CacheExpiry of method '" + ClassUtils.getQualifiedMethodName(method, targetClass) + "' declares neither a positive ttl nor a ttlExpression");
+        }
+        this.annotated = annotation != null;
+        this.ttl = CacheExpiryDetectionUtils.detectCachePeriod(method);
+        this.nameResolver = CacheExpiryDetectionUtils.detectNameResolver(method, targetClass);
+        this.ttlUnit = (annotation == null) ? ChronoUnit.SECONDS : annotation.unit();
+        this.ttlExpression = (annotation == null) ? null : CacheExpiryExpressionUtils.parseExpression(annotation.ttlExpression());
+        this.jitter = (annotation == null) ? null : ExpiryJitter.parse(StringUtils.defaultIfBlank(annotation.jitter(), defaultJitter), ttlUnit);
+        this.lease = annotation != null && annotation.lease();
+        this.codec = (annotation == null) ? null : StringUtils.trimToNull(annotation.codec());
+        this.refreshAfter = (annotation == null || annotation.refreshAfter() <= 0L || ttlUnit == ChronoUnit.FOREVER) ? null : ttlUnit.getDuration().multipliedBy(annotation.refreshAfter());
+        this.ttlOverrides = ttlOverrides;
+    }
+
+    /**
+     * Returns whether the caches expire or not
+     *
+     * @return whether the caches expire or not
+     */
+    public boolean isExpirable() {
+        return ttl != null || ttlExpression != null;
+    }
+
+    /**
+     * Returns whether the ttl is evaluated per cached value or not
+     *
+     * @return whether the ttl is evaluated per cached value or not
+     */
+    public boolean isDynamic() {
+        return ttlExpression != null || refreshAfter != null || (ttl != null && jitter != null);
+    }
+
+    /**
+     * Returns the ttl of the {@code result} that returned by the invocation of the {@code context}
+     *
+     * @param context the cache invocation context
+     * @param result the method result to cache
+     *
+     * @return the ttl of the {@code result} with jitter, or the constant ttl if the expression evaluates to null
+     */
+    @Nullable
+    public Duration evaluateTtl(@Nonnull CacheOperationInvocationContext<?> context, @Nullable Object result) {
+        Duration duration = ttl;
+        if (ttlExpression != null) {
+            ExpiryExpressionRootObject rootObject = new ExpiryExpressionRootObject(method, context.getArgs(), context.getTarget(), targetClass, result);
+            Duration evaluated = CacheExpiryExpressionUtils.evaluateTtl(ttlExpression, ttlUnit, rootObject);
+            duration = (evaluated != null) ? evaluated : ttl;
+        }
+        return (duration == null || jitter == null) ? duration : jitter.apply(duration);
+    }
+
+    /**
+     * Returns the ttl of the {@code result} that cached into the cache with the {@code cacheName}
+     * <p>
+     * The overridden ttl of the {@code cacheName} takes precedence over the constant ttl and the ttl expression
+     *
+     * @param context the cache invocation context
+     * @param cacheName the name of the cache, {@code null} means ignoring the overrides
+     * @param result the method result to cache
+     *
+     * @return the ttl of the {@code result} with jitter
+     */
+    @Nullable
+    public Duration evaluateTtl(@Nonnull CacheOperationInvocationContext<?> context, @Nullable String cacheName, @Nullable Object result) {
+        Duration overridden = getOverriddenTtl(cacheName);
+        if (overridden == null) {
+            return evaluateTtl(context, result);
+        }
+        return (jitter == null) ? overridden : jitter.apply(overridden);
+    }
+
+    /**
+     * Returns the reloader that invokes the method of the {@code context} again, without the cache interceptors
+     *
+     * @param context the cache invocation context
+     *
+     * @return the reloader that invokes the method of the {@code context} again, or {@code null} if the caches never refresh
+     */
+    @Nullable
+    public CacheValueReloader createReloader(@Nonnull CacheOperationInvocationContext<?> context) {
+        return createReloader(context, null);
+    }
+
+    /**
+     * Returns the reloader that invokes the method of the {@code context} again, whose ttls follow the overrides of the {@code cacheName}
+     *
+     * @param context the cache invocation context
+     * @param cacheName the name of the cache, {@code null} means ignoring the overrides
+     *
+     * @return the reloader that invokes the method of the {@code context} again, or {@code null} if the caches never refresh
+     */
+    @Nullable
+    public CacheValueReloader createReloader(@Nonnull CacheOperationInvocationContext<?> context, @Nullable String cacheName) {
+        if (refreshAfter == null) {
+            return null;
+        }
+        Object target = context.getTarget();
+        Object[] args = context.getArgs();
+        return new CacheValueReloader() {
+            @Override
+            @SneakyThrows
+            public Object reload() {
+                return AopUtils.invokeJoinpointUsingReflection(target, method, args);
+            }
+
+            @Override
+            public Duration getTtl(@Nullable Object value) {
+                return evaluateTtl(context, cacheName, value);
+            }
+        };
+    }
+
+    /**
+     * Returns the key of the expiry cache with the {@code cacheName}, which is created once per cache name
+     * <p>
+     * The keys of dynamic ttls have no ttl, which denote the caches that shared by the cache name.
+     * If the ttl of the {@code cacheName} is overridden, the key is created again with the overridden ttl, which resolves to another cache
+     *
+     * @param cacheName the name of the cache
+     *
+     * @return the key of the expiry cache with the {@code cacheName}, or {@code null} if the caches never expire
+     */
+    @Nullable
+    public ExpiryCacheKey getCacheKey(@Nonnull String cacheName) {
+        Duration overridden = getOverriddenTtl(cacheName);
+        if (overridden == null && !isExpirable()) {
+            return null;
+        }
+        Duration keyTtl = isDynamic() ? null : ObjectUtils.defaultIfNull(overridden, ttl);
+        ExpiryCacheKey cacheKey = cacheKeys.get(cacheName);
+        if (cacheKey != null && Objects.equals(cacheKey.getTtl(), keyTtl)) {
+            return cacheKey;
+        }
+        cacheKey = new ExpiryCacheKey(cacheName, keyTtl, refreshAfter, codec);
+        cacheKeys.put(cacheName, cacheKey);
+        return cacheKey;
+    }
+
+    /**
+     * Returns the keys of the expiry caches that resolved by the latest calls of {@link #getCacheKey}
+     *
+     * @return the keys of the expiry caches that resolved by the latest calls of {@link #getCacheKey}
+     */
+    @Nonnull
+    public Collection<ExpiryCacheKey> getResolvedCacheKeys() {
+        return Collections.unmodifiableCollection(cacheKeys.values());
+    }
+
+    /**
+     * Returns where the ttl of the cache with the {@code cacheName} comes from
+     *
+     * @param cacheName the name of the cache
+     *
+     * @return where the ttl of the cache with the {@code cacheName} comes from
+     */
+    @Nonnull
+    public TtlSource getTtlSource(@Nonnull String cacheName) {
+        if (ttlOverrides != null && ttlOverrides.getTtl(cacheName) != null) {
+            return TtlSource.OVERRIDE;
+        }
+        if (ttlOverrides != null && ttlOverrides.getPropertyTtl(cacheName, this) != null) {
+            return TtlSource.PROPERTY;
+        }
+        return (ttlExpression != null) ? TtlSource.EXPRESSION : TtlSource.ANNOTATION;
+    }
+
+    @Nullable
+    private Duration getOverriddenTtl(@Nullable String cacheName) {
+        if (cacheName == null || ttlOverrides == null) {
+            return null;
+        }
+        Duration result = ttlOverrides.getTtl(cacheName);
+        return (result != null) ? result : ttlOverrides.getPropertyTtl(cacheName, this);
+    }
+
+
+    /**
+     * Sources of the ttls
+     *
+     * @author David Hsing
+     */
+    public enum TtlSource {
+        /**
+         * The constant ttl of the annotation
+         */
+        ANNOTATION,
+
+        /**
+         * The ttl expression of the annotation, which falls back to the constant ttl
+         */
+        EXPRESSION,
+
+        /**
+         * The ttl from properties, keyed by the cache name or a method pattern
+         */
+        PROPERTY,
+
+        /**
+         * The ttl that overridden at runtime
+         */
+        OVERRIDE
+    }
+}
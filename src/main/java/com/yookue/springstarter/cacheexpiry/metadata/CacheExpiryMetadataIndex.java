@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.metadata;
+
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotationUtils;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Index of {@link com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata}, keyed by target class and method
+ * <p>
+ * The index is populated when beans are post-processed, with an immutable method map per target class.
+ * The outer map is keyed by classes, which compare by identity, and the inner maps never allocate on lookups.
+ * Methods that are not indexed in advance (such as the methods of interface based proxies) are resolved on first use and merged into a new immutable map
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class CacheExpiryMetadataIndex {
+    private final Map<Class<?>, Map<Method, CacheExpiryMetadata>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The default jitter for the methods that do not specify one, which is expected to be set before indexing
+     */
+    @Getter
+    @Setter
+    private String defaultJitter;
+
+    /**
+     * The overrides of the ttls per cache name, which are shared by all the indexed metadata
+     */
+    @Getter
+    private final CacheExpiryTtlOverrides ttlOverrides = new CacheExpiryTtlOverrides();
+
+    /**
+     * Indexes the methods that annotated with {@link com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry} of the {@code targetClass}
+     *
+     * @param targetClass the target class to index
+     */
+    public void register(@Nonnull Class<?> targetClass) {
+        if (entries.containsKey(targetClass) || !AnnotationUtils.isCandidateClass(targetClass, CacheExpiry.class)) {
+            return;
+        }
+        Map<Method, CacheExpiryMetadata> metadata = MethodIntrospector.selectMethods(targetClass, (MethodIntrospector.MetadataLookup<CacheExpiryMetadata>) method ->
+            (AnnotationUtils.getAnnotation(method, CacheExpiry.class) == null) ? null : new CacheExpiryMetadata(method, targetClass, defaultJitter, ttlOverrides));
+        if (!metadata.isEmpty()) {
+            entries.putIfAbsent(targetClass, Map.copyOf(metadata));
+        }
+    }
+
+    /**
+     * Returns the metadata of the {@code method} on the {@code targetClass}
+     *
+     * @param method the method to inspect
+     * @param targetClass the target class that declares or inherits the method
+     *
+     * @return the metadata of the {@code method} on the {@code targetClass}
+     */
+    @Nonnull
+    public CacheExpiryMetadata getMetadata(@Nonnull Method method, @Nonnull Class<?> targetClass) {
+        Map<Method, CacheExpiryMetadata> methods = entries.get(targetClass);
+        CacheExpiryMetadata metadata = (methods == null) ? null : methods.get(method);
+        return (metadata != null) ? metadata : resolveMetadata(method, targetClass);
+    }
+
+    /**
+     * Returns all the indexed metadata
+     *
+     * @return all the indexed metadata
+     */
+    @Nonnull
+    public Collection<CacheExpiryMetadata> getMetadata() {
+        return entries.values().stream().flatMap(element -> element.values().stream()).toList();
+    }
+
+    /**
+     * Replaces the ttls from properties, and returns the names of the resolved caches whose ttls changed
+     * <p>
+     * The caches that not resolved yet pick up the new ttls on their first resolutions
+     *
+     * @param ttls the ttls from properties, keyed by cache names or method patterns
+     *
+     * @return the names of the resolved caches whose ttls changed
+     */
+    @Nonnull
+    public Set<String> applyPropertyTtls(@Nullable Map<String, Duration> ttls) {
+        Collection<CacheExpiryMetadata> metadata = getMetadata();
+        Map<CacheExpiryMetadata, Map<String, Duration>> previousTtls = new HashMap<>(metadata.size());
+        metadata.forEach(element -> previousTtls.put(element, getPropertyTtls(element)));
+        if (!ttlOverrides.setPropertyTtls(ttls)) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>();
+        for (CacheExpiryMetadata element : metadata) {
+            Map<String, Duration> previous = previousTtls.get(element);
+            getPropertyTtls(element).forEach((cacheName, ttl) -> {
+                if (!Objects.equals(previous.get(cacheName), ttl)) {
+                    result.add(cacheName);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Removes all the indexed metadata
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @Nonnull
+    private Map<String, Duration> getPropertyTtls(@Nonnull CacheExpiryMetadata metadata) {
+        Map<String, Duration> result = new HashMap<>();
+        metadata.getResolvedCacheKeys().forEach(key -> result.put(key.getCacheName(), ttlOverrides.getPropertyTtl(key.getCacheName(), metadata)));
+        return result;
+    }
+
+    @Nonnull
+    private CacheExpiryMetadata resolveMetadata(@Nonnull Method method, @Nonnull Class<?> targetClass) {
+        CacheExpiryMetadata metadata = new CacheExpiryMetadata(method, targetClass, defaultJitter, ttlOverrides);
+        Map<Method, CacheExpiryMetadata> methods = entries.compute(targetClass, (clazz, existing) -> {
+            if (existing != null && existing.containsKey(method)) {
+                return existing;
+            }
+            Map<Method, CacheExpiryMetadata> merged = (existing == null) ? new HashMap<>(1) : new HashMap<>(existing);
+            merged.put(method, metadata);
+            return Map.copyOf(merged);
+        });
+        return methods.get(method);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.metadata;
+
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.PatternMatchUtils;
+
+
+/**
+ * Overrides of the ttls, which take precedence over the ttls of the annotations and the expressions
+ * <p>
+ * The overrides are read on every resolution, so that a change applies to the caches that resolved afterwards, without rebuilding the application context.
+ * The ttls that overridden at runtime take precedence over the ttls from properties, which are kept in an immutable table that swapped as a whole
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata#getCacheKey
+ */
+@SuppressWarnings("unused")
+public class CacheExpiryTtlOverrides {
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+    private volatile PropertyTtls propertyTtls = PropertyTtls.EMPTY;
+
+    /**
+     * Returns the ttl of the {@code cacheName} that overridden at runtime
+     *
+     * @param cacheName the name of the cache
+     *
+     * @return the ttl of the {@code cacheName} that overridden at runtime, or {@code null} if not overridden
+     */
+    @Nullable
+    public Duration getTtl(@Nonnull String cacheName) {
+        return ttls.isEmpty() ? null : ttls.get(cacheName);
+    }
+
+    /**
+     * Overrides the ttl of the {@code cacheName}
+     *
+     * @param cacheName the name of the cache
+     * @param ttl the ttl to override with, which must be positive
+     *
+     * @return the previous overridden ttl of the {@code cacheName}, or {@code null} if not overridden
+     */
+    @Nullable
+    public Duration setTtl(@Nonnull String cacheName, @Nonnull Duration ttl) {
+        Assert.hasText(cacheName, "Cache name must not be blank");
+        Assert.isTrue(!ttl.isNegative() && !ttl.isZero(), "Ttl of cache '" + cacheName + "' must be positive");
+        return ttls.put(cacheName, ttl);
+    }
+
+    /**
+     * Removes the overridden ttl of the {@code cacheName}, so that the cache falls back to its declared ttl
+     *
+     * @param cacheName the name of the cache
+     *
+     * @return the removed ttl of the {@code cacheName}, or {@code null} if not overridden
+     */
+    @Nullable
+    public Duration removeTtl(@Nonnull String cacheName) {
+        return ttls.remove(cacheName);
+    }
+
+    /**
+     * Returns all the overridden ttls, keyed by cache names
+     *
+     * @return all the overridden ttls, keyed by cache names
+     */
+    @Nonnull
+    public Map<String, Duration> getTtls() {
+        return Collections.unmodifiableMap(ttls);
+    }
+
+    /**
+     * Returns the ttl from properties of the cache with the {@code cacheName} that resolved by the {@code metadata}
+     * <p>
+     * The key of the cache name takes precedence over the keys of method patterns, and the matches of method patterns are computed once per table
+     *
+     * @param cacheName the name of the cache
+     * @param metadata the metadata of the method that resolves the cache
+     *
+     * @return the ttl from properties of the cache with the {@code cacheName}, or {@code null} if not specified
+     */
+    @Nullable
+    public Duration getPropertyTtl(@Nonnull String cacheName, @Nonnull CacheExpiryMetadata metadata) {
+        PropertyTtls table = propertyTtls;
+        return table.ttls.isEmpty() ? null : table.getTtl(cacheName, metadata);
+    }
+
+    /**
+     * Returns all the ttls from properties, keyed by cache names or method patterns
+     *
+     * @return all the ttls from properties, keyed by cache names or method patterns
+     */
+    @Nonnull
+    public Map<String, Duration> getPropertyTtls() {
+        return propertyTtls.ttls;
+    }
+
+    /**
+     * Replaces all the ttls from properties atomically
+     *
+     * @param ttls the ttls from properties, keyed by cache names or method patterns
+     *
+     * @return whether the ttls from properties changed or not
+     */
+    public boolean setPropertyTtls(@Nullable Map<String, Duration> ttls) {
+        Map<String, Duration> copy = CollectionUtils.isEmpty(ttls) ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(ttls));
+        copy.forEach((key, ttl) -> Assert.isTrue(ttl != null && !ttl.isNegative() && !ttl.isZero(), "Ttl of key '" + key + "' must be positive"));
+        synchronized (this) {
+            if (Objects.equals(propertyTtls.ttls, copy)) {
+                return false;
+            }
+            propertyTtls = copy.isEmpty() ? PropertyTtls.EMPTY : new PropertyTtls(copy);
+            return true;
+        }
+    }
+
+
+    /**
+     * Immutable table of the ttls from properties, which memoizes the matches of method patterns per metadata
+     */
+    private static final class PropertyTtls {
+        private static final PropertyTtls EMPTY = new PropertyTtls(Collections.emptyMap());
+
+        private final Map<String, Duration> ttls;
+        private final Map<CacheExpiryMetadata, Optional<Duration>> methodTtls = new ConcurrentHashMap<>();
+
+        private PropertyTtls(@Nonnull Map<String, Duration> ttls) {
+            this.ttls = ttls;
+        }
+
+        @Nullable
+        private Duration getTtl(@Nonnull String cacheName, @Nonnull CacheExpiryMetadata metadata) {
+            Duration ttl = ttls.get(cacheName);
+            if (ttl != null) {
+                return ttl;
+            }
+            Optional<Duration> methodTtl = methodTtls.get(metadata);
+            if (methodTtl == null) {
+                methodTtl = methodTtls.computeIfAbsent(metadata, this::matchMethod);
+            }
+            return methodTtl.orElse(null);
+        }
+
+        @Nonnull
+        private Optional<Duration> matchMethod(@Nonnull CacheExpiryMetadata metadata) {
+            // Matches both the qualified and the short names of the method, the first matched key wins
+            String qualifiedName = ClassUtils.getQualifiedMethodName(metadata.getMethod(), metadata.getTargetClass());
+            String shortName = ClassUtils.getShortName(metadata.getTargetClass()) + '.' + metadata.getMethod().getName();
+            return ttls.entrySet().stream().filter(entry -> PatternMatchUtils.simpleMatch(entry.getKey(), qualifiedName) || PatternMatchUtils.simpleMatch(entry.getKey(), shortName)).map(Map.Entry::getValue).findFirst();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.metadata;
+
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.convert.DurationStyle;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Random jitter of ttls, which spreads the expiry of the entries that written at the same time
+ * <p>
+ * The jitter only shortens ttls, so that an entry never lives longer than its ttl
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#jitter()
+ */
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public final class ExpiryJitter {
+    private static final String PERCENT_SUFFIX = "%";    // $NON-NLS-1$
+
+    /**
+     * The absolute amount of the jitter, {@code null} if the jitter is a percentage
+     */
+    private final Duration amount;
+
+    /**
+     * The percentage of the jitter, which is {@code 0} if the jitter is absolute
+     */
+    private final double percent;
+
+    private ExpiryJitter(@Nullable Duration amount, double percent) {
+        this.amount = amount;
+        this.percent = percent;
+    }
+
+    /**
+     * Returns the jitter that parsed from the {@code text}
+     *
+     * @param text the text to parse, such as {@code 10%}, {@code 30s} or {@code PT30S}
+     * @param unit the time unit if the {@code text} is a plain number
+     *
+     * @return the jitter that parsed from the {@code text}, or {@code null} if the {@code text} is blank or the jitter is not positive
+     */
+    @Nullable
+    public static ExpiryJitter parse(@Nullable String text, @Nonnull ChronoUnit unit) {
+        String value = StringUtils.trimToNull(text);
+        if (value == null) {
+            return null;
+        }
+        if (StringUtils.endsWith(value, PERCENT_SUFFIX)) {
+            double percent = Double.parseDouble(StringUtils.removeEnd(value, PERCENT_SUFFIX).trim());
+            if (percent < 0D || percent > 100D) {
+                throw new IllegalArgumentException("Jitter percentage must be between 0% and 100%: " + text);
+            }
+            return (percent == 0D) ? null : new ExpiryJitter(null, percent);
+        }
+        Duration amount = DurationStyle.detectAndParse(value, unit);
+        if (amount.isNegative()) {
+            throw new IllegalArgumentException("Jitter must not be negative: " + text);
+        }
+        return amount.isZero() ? null : new ExpiryJitter(amount, 0D);
+    }
+
+    /**
+     * Returns the {@code ttl} that shortened by a random amount within the jitter
+     * <p>
+     * The randomization uses {@link java.util.concurrent.ThreadLocalRandom}, which takes no locks
+     *
+     * @param ttl the ttl to randomize
+     *
+     * @return the {@code ttl} that shortened by a random amount within the jitter, at least one millisecond
+     */
+    @Nonnull
+    public Duration apply(@Nonnull Duration ttl) {
+        long ttlMillis = ttl.toMillis();
+        long boundMillis = (amount != null) ? amount.toMillis() : (long) (ttlMillis * percent / 100D);
+        boundMillis = Math.min(boundMillis, ttlMillis - 1L);
+        return (boundMillis <= 0L) ? ttl : ttl.minusMillis(ThreadLocalRandom.current().nextLong(boundMillis + 1L));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.metrics;
+
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+
+
+/**
+ * Metrics of the cache resolutions and the caches that produced by {@link com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver}s
+ * <p>
+ * The resolvers only call the metrics if present, so there is no overhead when the metrics are disabled
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.metrics.MicrometerCacheExpiryMetrics
+ */
+public interface CacheExpiryMetrics {
+    /**
+     * Records a resolution of the caches for the {@code method}
+     *
+     * @param method the method that the caches are resolved for
+     * @param elapsedNanos the elapsed time of the resolution in nanoseconds
+     */
+    void recordResolution(@Nonnull Method method, long elapsedNanos);
+
+    /**
+     * Binds the metrics of the {@code cache}, which is called once per cache
+     *
+     * @param cache the cache to bind
+     * @param backend the backend of the cache, such as caffeine, jcache or redis
+     * @param ttl the ttl of the cache, {@code null} means the default ttl of the cache manager or the ttls of the entries
+     *
+     * @return the {@code cache} that records its metrics, or the {@code cache} itself if the native statistics are bound
+     */
+    @Nonnull
+    Cache bindCache(@Nonnull Cache cache, @Nonnull String backend, @Nullable Duration ttl);
+
+    /**
+     * Unbinds the metrics of the {@code cache}, which is called once the cache is released
+     *
+     * @param cache the cache that returned by {@link #bindCache(org.springframework.cache.Cache, java.lang.String, java.time.Duration)}
+     */
+    default void unbindCache(@Nonnull Cache cache) {
+    }
+}
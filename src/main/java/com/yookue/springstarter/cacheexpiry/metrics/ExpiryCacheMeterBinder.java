@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.metrics;
+
+
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+
+
+/**
+ * {@link io.micrometer.core.instrument.binder.cache.CacheMeterBinder} for {@link com.yookue.springstarter.cacheexpiry.cache.MeteredCache}
+ * <p>
+ * The load meters are named as {@link io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics}, so that the caches of all backends are queried alike
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ExpiryCacheMeterBinder extends CacheMeterBinder<MeteredCache> {
+    private static final String LOAD_METER = "cache.load";    // $NON-NLS-1$
+    private static final String LOAD_DURATION_METER = "cache.load.duration";    // $NON-NLS-1$
+    private static final String RESULT_TAG = "result";    // $NON-NLS-1$
+    private static final String SUCCESS_RESULT = "success";    // $NON-NLS-1$
+    private static final String FAILURE_RESULT = "failure";    // $NON-NLS-1$
+
+    public ExpiryCacheMeterBinder(@Nonnull MeteredCache cache, @Nonnull Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    protected Long size() {
+        return null;
+    }
+
+    @Override
+    protected long hitCount() {
+        MeteredCache cache = getCache();
+        return (cache == null) ? 0L : cache.getHitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        MeteredCache cache = getCache();
+        return (cache == null) ? null : cache.getMissCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        MeteredCache cache = getCache();
+        return (cache == null) ? null : cache.getEvictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        MeteredCache cache = getCache();
+        return (cache == null) ? 0L : cache.getPutCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(@Nonnull MeterRegistry registry) {
+        MeteredCache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+        FunctionCounter.builder(LOAD_METER, cache, MeteredCache::getLoadSuccessCount).tags(getTagsWithCacheName()).tag(RESULT_TAG, SUCCESS_RESULT)
+            .description("The number of times the cache loaded new values").register(registry);
+        FunctionCounter.builder(LOAD_METER, cache, MeteredCache::getLoadFailureCount).tags(getTagsWithCacheName()).tag(RESULT_TAG, FAILURE_RESULT)
+            .description("The number of times the cache failed to load new values").register(registry);
+        TimeGauge.builder(LOAD_DURATION_METER, cache, TimeUnit.NANOSECONDS, MeteredCache::getTotalLoadTime).tags(getTagsWithCacheName())
+            .description("The time the cache has spent loading new values").register(registry);
+    }
+}
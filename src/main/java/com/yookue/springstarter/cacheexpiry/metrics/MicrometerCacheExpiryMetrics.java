@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.metrics;
+
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.util.ClassUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.HotKeyCache;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+
+
+/**
+ * {@link com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics} for Micrometer
+ * <p>
+ * The resolutions are timed per method, and the caches are tagged by cache name, ttl and backend.
+ * Caffeine caches that record statistics are bound by {@link io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics},
+ * while the other caches are decorated with {@link com.yookue.springstarter.cacheexpiry.cache.MeteredCache}.
+ * Caches that promote hot keys are also bound with the counts of their local levels.
+ * The meters of a cache are removed once the cache is released.
+ * The registry is looked up on first use, so that it is fully configured by then
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class MicrometerCacheExpiryMetrics implements CacheExpiryMetrics {
+    public static final String RESOLUTION_METER = "cache.expiry.resolution";    // $NON-NLS-1$
+    public static final String HOT_KEY_PROMOTION_METER = "cache.hotkey.promotions";    // $NON-NLS-1$
+    public static final String HOT_KEY_HIT_METER = "cache.hotkey.hits";    // $NON-NLS-1$
+    public static final String HOT_KEY_SIZE_METER = "cache.hotkey.size";    // $NON-NLS-1$
+    private static final String CLASS_TAG = "class";    // $NON-NLS-1$
+    private static final String METHOD_TAG = "method";    // $NON-NLS-1$
+    private static final String CACHE_TAG = "cache";    // $NON-NLS-1$
+    private static final String BACKEND_TAG = "backend";    // $NON-NLS-1$
+    private static final String TTL_TAG = "ttl";    // $NON-NLS-1$
+    private static final String DEFAULT_TTL = "default";    // $NON-NLS-1$
+    private static final boolean CAFFEINE_PRESENT = ClassUtils.isPresent("com.github.benmanes.caffeine.cache.Cache", MicrometerCacheExpiryMetrics.class.getClassLoader());    // $NON-NLS-1$
+
+    private final Supplier<MeterRegistry> registrySupplier;
+    private final Map<Method, Timer> resolutionTimers = new ConcurrentHashMap<>();
+    private final Map<Cache, Tags> cacheTags = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public MicrometerCacheExpiryMetrics(@Nonnull MeterRegistry registry) {
+        this(() -> registry);
+    }
+
+    public MicrometerCacheExpiryMetrics(@Nonnull Supplier<MeterRegistry> registrySupplier) {
+        this.registrySupplier = registrySupplier;
+    }
+
+    @Override
+    public void recordResolution(@Nonnull Method method, long elapsedNanos) {
+        Timer timer = resolutionTimers.get(method);
+        if (timer == null) {
+            timer = resolutionTimers.computeIfAbsent(method, element -> Timer.builder(RESOLUTION_METER)
+                .tag(CLASS_TAG, element.getDeclaringClass().getName()).tag(METHOD_TAG, element.getName())
+                .description("The time that resolving the caches of the method takes").register(getRegistry()));
+        }
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Nonnull
+    @Override
+    public Cache bindCache(@Nonnull Cache cache, @Nonnull String backend, @Nullable Duration ttl) {
+        Tags tags = Tags.of(BACKEND_TAG, backend, TTL_TAG, (ttl == null) ? DEFAULT_TTL : ttl.toString());
+        Cache result = cache;
+        if (!CAFFEINE_PRESENT || !CaffeineBinder.bind(getRegistry(), cache, tags)) {
+            MeteredCache meteredCache = new MeteredCache(cache);
+            new ExpiryCacheMeterBinder(meteredCache, tags).bindTo(getRegistry());
+            result = meteredCache;
+        }
+        Tags boundTags = tags.and(CACHE_TAG, cache.getName());
+        if (CAFFEINE_PRESENT) {
+            HotKeyBinder.bind(getRegistry(), cache, boundTags);
+        }
+        cacheTags.put(result, boundTags);
+        return result;
+    }
+
+    @Override
+    public void unbindCache(@Nonnull Cache cache) {
+        Tags tags = cacheTags.remove(cache);
+        if (tags == null) {
+            return;
+        }
+        // All the binders tag their meters with the cache name and the given tags
+        List<Tag> tagList = tags.stream().toList();
+        MeterRegistry meterRegistry = getRegistry();
+        List<Meter> meters = meterRegistry.getMeters().stream().filter(meter -> meter.getId().getTags().containsAll(tagList)).toList();
+        meters.forEach(meterRegistry::remove);
+    }
+
+    @Nonnull
+    private MeterRegistry getRegistry() {
+        MeterRegistry result = registry;
+        if (result == null) {
+            result = registrySupplier.get();
+            registry = result;
+        }
+        return result;
+    }
+
+
+    /**
+     * Binder of the native statistics of Caffeine, which is isolated so that Caffeine is optional
+     *
+     * @author David Hsing
+     */
+    private static final class CaffeineBinder {
+        private static boolean bind(@Nonnull MeterRegistry registry, @Nonnull Cache cache, @Nonnull Tags tags) {
+            CaffeineCache caffeineCache = CacheDecorator.unwrap(cache, CaffeineCache.class);
+            if (caffeineCache == null || !caffeineCache.getNativeCache().policy().isRecordingStats()) {
+                return false;
+            }
+            CaffeineCacheMetrics.monitor(registry, caffeineCache.getNativeCache(), cache.getName(), tags);
+            return true;
+        }
+    }
+
+
+    /**
+     * Binder of the counts of {@link com.yookue.springstarter.cacheexpiry.cache.HotKeyCache}, which is isolated so that Caffeine is optional
+     *
+     * @author David Hsing
+     */
+    private static final class HotKeyBinder {
+        private static void bind(@Nonnull MeterRegistry registry, @Nonnull Cache cache, @Nonnull Tags tags) {
+            HotKeyCache hotKeyCache = CacheDecorator.unwrap(cache, HotKeyCache.class);
+            if (hotKeyCache == null) {
+                return;
+            }
+            FunctionCounter.builder(HOT_KEY_PROMOTION_METER, hotKeyCache, HotKeyCache::getPromotionCount).tags(tags)
+                .description("The number of times the keys were promoted into the local level").register(registry);
+            FunctionCounter.builder(HOT_KEY_HIT_METER, hotKeyCache, HotKeyCache::getLocalHitCount).tags(tags)
+                .description("The number of times the local level was hit").register(registry);
+            Gauge.builder(HOT_KEY_SIZE_METER, hotKeyCache, HotKeyCache::getHotKeyCount).tags(tags)
+                .description("The number of the keys that promoted into the local level").register(registry);
+        }
+    }
+}
@@ -17,30 +17,51 @@
 package com.yookue.springstarter.cacheexpiry.processor;
 
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.interceptor.CacheInterceptor;
-import org.springframework.core.Ordered;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.GenericApplicationListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
 import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
 import com.yookue.commonplexus.javaseutil.exception.UnsupportedClassException;
 import com.yookue.commonplexus.springutil.enumeration.CacheManagerType;
 import com.yookue.commonplexus.springutil.util.BeanFactoryWraps;
 import com.yookue.commonplexus.springutil.util.ClassUtilsWraps;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheWriterOptions;
 import com.yookue.springstarter.cacheexpiry.config.CacheExpiryAutoConfiguration;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics;
 import com.yookue.springstarter.cacheexpiry.property.CacheExpiryProperties;
+import com.yookue.springstarter.cacheexpiry.registry.CacheBeanRegistry;
 import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.impl.JcacheExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.impl.RedisExpiryCacheResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.TieredExpiryCacheResolver;
 import jakarta.annotation.Nonnull;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -49,11 +70,17 @@ import lombok.Setter;
 
 /**
  * {@link org.springframework.beans.factory.config.BeanPostProcessor} for registering resolver bean
+ * <p>
+ * It listens to the context refreshes and the environment changes only, which are checked once per event type by the event multicaster
  *
  * @author David Hsing
  */
 @RequiredArgsConstructor
-public class CacheExpiryResolverProcessor implements BeanFactoryAware, BeanPostProcessor, InitializingBean, Ordered {
+public class CacheExpiryResolverProcessor implements GenericApplicationListener, BeanFactoryAware, BeanPostProcessor, EnvironmentAware, InitializingBean {
+    private static final String ENVIRONMENT_CHANGE_EVENT = "org.springframework.cloud.context.environment.EnvironmentChangeEvent";    // $NON-NLS-1$
+    private static final Class<?> ENVIRONMENT_CHANGE_EVENT_CLASS = ClassUtils.isPresent(ENVIRONMENT_CHANGE_EVENT, CacheExpiryResolverProcessor.class.getClassLoader()) ? ClassUtils.resolveClassName(ENVIRONMENT_CHANGE_EVENT, CacheExpiryResolverProcessor.class.getClassLoader()) : null;
+    private static final String TTLS_PROPERTY = CacheExpiryAutoConfiguration.PROPERTIES_PREFIX + ".ttls";    // $NON-NLS-1$
+
     private final CacheExpiryProperties expiryProperties;
     private final CacheManagerType managerType;
 
@@ -61,8 +88,11 @@ public class CacheExpiryResolverProcessor implements BeanFactoryAware, BeanPostP
     @Setter
     private int order = 0;
 
+    private final CacheExpiryMetadataIndex metadataIndex = new CacheExpiryMetadataIndex();
+    private final CacheBeanRegistry beanRegistry = new CacheBeanRegistry();
     private CacheInterceptor cacheInterceptor;
     private CacheManager cacheManager;
+    private ExpiryCacheResolver cacheResolver;
     private Class<?> managerClass;
     private boolean propManagerExist = false;
     private boolean codeManagerExist = false;
@@ -71,6 +101,9 @@ public class CacheExpiryResolverProcessor implements BeanFactoryAware, BeanPostP
     @Setter
     protected BeanFactory beanFactory;
 
+    @Setter
+    protected Environment environment;
+
     @Override
     public void afterPropertiesSet() throws Exception {
         Assert.notNull(managerType, AssertMessageConst.NOT_NULL);
@@ -83,10 +116,13 @@ public class CacheExpiryResolverProcessor implements BeanFactoryAware, BeanPostP
         if (!propManagerExist && !codeManagerExist && BooleanUtils.isFalse(props.getDetectCacheManager())) {
             throw new IllegalStateException("None cache manager found! Property 'cache-manager-name' is not specified, and 'detect-cache-manager' is also disabled.");
         }
+        metadataIndex.setDefaultJitter(expiryProperties.getCacheResolver().getDefaultJitter());
+        metadataIndex.applyPropertyTtls(expiryProperties.getTtls());
     }
 
     @Override
     public Object postProcessAfterInitialization(@Nonnull Object bean, @Nonnull String beanName) throws BeansException {
+        metadataIndex.register(AopUtils.getTargetClass(bean));
         if (beanRegistered) {
             return bean;
         }
@@ -106,26 +142,122 @@ public class CacheExpiryResolverProcessor implements BeanFactoryAware, BeanPostP
             }
         }
         if (cacheInterceptor != null && cacheManager != null) {
-            ExpiryCacheResolver resolver = detectCacheResolver();
-            beanRegistered = BeanFactoryWraps.registerSingletonBean(beanFactory, CacheExpiryAutoConfiguration.CACHE_RESOLVER, resolver);
+            cacheResolver = detectCacheResolver();
+            beanRegistered = BeanFactoryWraps.registerSingletonBean(beanFactory, CacheExpiryAutoConfiguration.CACHE_RESOLVER, cacheResolver);
             CacheExpiryProperties.CacheInterceptor interceptorProps = expiryProperties.getCacheInterceptor();
             if (BooleanUtils.isNotFalse(interceptorProps.getInjectCacheManager())) {
-                cacheInterceptor.setCacheResolver(resolver);
+                cacheInterceptor.setCacheResolver(cacheResolver);
             }
         }
         return bean;
     }
 
+    @Override
+    public boolean supportsEventType(@Nonnull ResolvableType eventType) {
+        Class<?> eventClass = eventType.toClass();
+        return ContextRefreshedEvent.class.isAssignableFrom(eventClass) || (ENVIRONMENT_CHANGE_EVENT_CLASS != null && ENVIRONMENT_CHANGE_EVENT_CLASS.isAssignableFrom(eventClass));
+    }
+
+    @Override
+    public void onApplicationEvent(@Nonnull ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent) {
+            // Beans may be replaced on refresh, drop the memoized lookups
+            beanRegistry.clear();
+        }
+        reloadPropertyTtls();
+    }
+
+    /**
+     * Binds the ttls from the environment again, and releases the caches whose ttls changed
+     * <p>
+     * The ttls are bound from the environment directly, since the properties bean may be rebound after this
+     */
+    public void reloadPropertyTtls() {
+        Map<String, Duration> ttls = (environment == null) ? expiryProperties.getTtls() : Binder.get(environment).bind(TTLS_PROPERTY, Bindable.mapOf(String.class, Duration.class)).orElse(Collections.emptyMap());
+        Set<String> cacheNames = metadataIndex.applyPropertyTtls(ttls);
+        if (cacheResolver != null) {
+            cacheNames.forEach(cacheResolver::releaseCaches);
+        }
+    }
+
     @Nonnull
     private ExpiryCacheResolver detectCacheResolver() {
         CacheExpiryProperties.CacheResolver resolverProps = expiryProperties.getCacheResolver();
         ExpiryCacheResolver resolver = switch (managerType) {
-            case CAFFEINE -> new CaffeineExpiryCacheResolver(cacheManager, BooleanUtils.isNotFalse(resolverProps.getDetectCacheNameResolver()));
-            case JCACHE -> new JcacheExpiryCacheResolver(cacheManager, BooleanUtils.isNotFalse(resolverProps.getDetectCacheNameResolver()));
-            case REDIS -> new RedisExpiryCacheResolver(cacheManager, BooleanUtils.isNotFalse(resolverProps.getDetectCacheNameResolver()));
+            case CAFFEINE -> {
+                CaffeineExpiryCacheResolver caffeineResolver = new CaffeineExpiryCacheResolver(cacheManager, BooleanUtils.isNotFalse(resolverProps.getDetectCacheNameResolver()));
+                caffeineResolver.setVariableExpiry(BooleanUtils.isTrue(expiryProperties.getCaffeine().getVariableExpiry()));
+                caffeineResolver.setInvalidationBus(beanFactory.getBeanProvider(CacheInvalidationBus.class).getIfAvailable());
+                yield caffeineResolver;
+            }
+            case JCACHE -> {
+                JcacheExpiryCacheResolver jcacheResolver = new JcacheExpiryCacheResolver(cacheManager, BooleanUtils.isNotFalse(resolverProps.getDetectCacheNameResolver()));
+                jcacheResolver.setRefreshTrackedEntries(ObjectUtils.defaultIfNull(resolverProps.getRefreshTrackedEntries(), jcacheResolver.getRefreshTrackedEntries()));
+                yield jcacheResolver;
+            }
+            case REDIS -> {
+                RedisExpiryCacheResolver redisResolver = createRedisResolver(BooleanUtils.isNotFalse(resolverProps.getDetectCacheNameResolver()));
+                redisResolver.setRefreshTrackedEntries(ObjectUtils.defaultIfNull(resolverProps.getRefreshTrackedEntries(), redisResolver.getRefreshTrackedEntries()));
+                CacheExpiryProperties.Redis redisProps = expiryProperties.getRedis();
+                redisResolver.setLeaseTime(ObjectUtils.defaultIfNull(redisProps.getLeaseTime(), redisResolver.getLeaseTime()));
+                redisResolver.setLeaseWait(redisProps.getLeaseWait());
+                redisResolver.setLeasePollInterval(ObjectUtils.defaultIfNull(redisProps.getLeasePollInterval(), redisResolver.getLeasePollInterval()));
+                redisResolver.setGenerationalPrefix(BooleanUtils.isTrue(redisProps.getGenerationalPrefix()));
+                redisResolver.setGenerationLocalTtl(ObjectUtils.defaultIfNull(redisProps.getGenerationLocalTtl(), redisResolver.getGenerationLocalTtl()));
+                redisResolver.setDefaultCodec(redisProps.getCodec());
+                if (!CollectionUtils.isEmpty(redisProps.getCacheCodecs())) {
+                    redisResolver.setCacheCodecs(Map.copyOf(redisProps.getCacheCodecs()));
+                }
+                if (redisProps.getCompressionThreshold() != null) {
+                    redisResolver.setCompressionThreshold((int) Math.min(redisProps.getCompressionThreshold().toBytes(), Integer.MAX_VALUE));
+                }
+                if (BooleanUtils.isTrue(redisProps.getWriter().getEnabled())) {
+                    redisResolver.setDefaultWriterOptions(toWriterOptions(redisProps.getWriter()));
+                }
+                if (!CollectionUtils.isEmpty(redisProps.getCacheWriters())) {
+                    Map<String, RedisCacheWriterOptions> writerOptions = new HashMap<>(redisProps.getCacheWriters().size());
+                    redisProps.getCacheWriters().forEach((cacheName, writerProps) -> writerOptions.put(cacheName, toWriterOptions(writerProps)));
+                    redisResolver.setCacheWriterOptions(writerOptions);
+                }
+                CacheExpiryProperties.HotKey hotKeyProps = expiryProperties.getHotKey();
+                redisResolver.setHotKeyDetection(BooleanUtils.isTrue(hotKeyProps.getEnabled()));
+                redisResolver.setHotKeyThreshold(ObjectUtils.defaultIfNull(hotKeyProps.getThreshold(), redisResolver.getHotKeyThreshold()));
+                redisResolver.setHotKeySketchSize(ObjectUtils.defaultIfNull(hotKeyProps.getSketchSize(), redisResolver.getHotKeySketchSize()));
+                redisResolver.setHotKeyLocalSize(ObjectUtils.defaultIfNull(hotKeyProps.getLocalMaximumSize(), redisResolver.getHotKeyLocalSize()));
+                redisResolver.setHotKeyLocalTtl(ObjectUtils.defaultIfNull(hotKeyProps.getLocalTtl(), redisResolver.getHotKeyLocalTtl()));
+                yield redisResolver;
+            }
             default -> throw new UnsupportedClassException("Unsupported cache manager type: " + managerType.name());    // $NON-NLS-1$
         };
+        resolver.setSingleFlight(BooleanUtils.isNotFalse(resolverProps.getSingleFlight()));
         resolver.setBeanFactory(beanFactory);
+        resolver.setMetadataIndex(metadataIndex);
+        resolver.setBeanRegistry(beanRegistry);
+        resolver.setCacheMetrics(beanFactory.getBeanProvider(CacheExpiryMetrics.class).getIfAvailable());
+        return resolver;
+    }
+
+    @Nonnull
+    private RedisCacheWriterOptions toWriterOptions(@Nonnull CacheExpiryProperties.RedisWriter writerProps) {
+        RedisCacheWriterOptions result = new RedisCacheWriterOptions();
+        result.setBatchStrategy(ObjectUtils.defaultIfNull(writerProps.getBatchStrategy(), result.getBatchStrategy()));
+        result.setBatchSize(ObjectUtils.defaultIfNull(writerProps.getBatchSize(), result.getBatchSize()));
+        result.setLocking(BooleanUtils.isTrue(writerProps.getLocking()));
+        result.setLockTtl(writerProps.getLockTtl());
+        result.setLockSleepTime(ObjectUtils.defaultIfNull(writerProps.getLockSleepTime(), result.getLockSleepTime()));
+        result.setStatistics(BooleanUtils.isTrue(writerProps.getStatistics()));
+        return result;
+    }
+
+    @Nonnull
+    private RedisExpiryCacheResolver createRedisResolver(boolean detectNameResolver) {
+        CacheExpiryProperties.Tiered tieredProps = expiryProperties.getTiered();
+        if (BooleanUtils.isNotTrue(tieredProps.getEnabled())) {
+            return new RedisExpiryCacheResolver(cacheManager, detectNameResolver);
+        }
+        TieredExpiryCacheResolver resolver = new TieredExpiryCacheResolver(cacheManager, detectNameResolver);
+        resolver.setLocalMaximumSize(ObjectUtils.defaultIfNull(tieredProps.getLocalMaximumSize(), resolver.getLocalMaximumSize()));
+        resolver.setLocalMaxTtl(ObjectUtils.defaultIfNull(tieredProps.getLocalMaxTtl(), resolver.getLocalMaxTtl()));
         return resolver;
     }
 
@@ -18,8 +18,13 @@ package com.yookue.springstarter.cacheexpiry.property;
 
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheWriterOptions;
 import com.yookue.springstarter.cacheexpiry.config.CacheExpiryAutoConfiguration;
 import lombok.Getter;
 import lombok.Setter;
@@ -43,6 +48,15 @@ public class CacheExpiryProperties implements Serializable {
      */
     private Boolean enabled = true;
 
+    /**
+     * The ttls that override the annotations, keyed by cache names or method patterns
+     * <p>
+     * A key applies to the caches with the same name, otherwise to the methods that match it, such as {@code [DemoService.find*]} or {@code [com.example.DemoService.*]}.
+     * The keys that contain dots must be enclosed in brackets, and the first matched method pattern wins.
+     * The ttls are applied again when the application context refreshes or the environment changes, such as the refreshes of Spring Cloud
+     */
+    private Map<String, Duration> ttls = new LinkedHashMap<>();
+
     /**
      * Cache interceptor attributes
      */
@@ -63,6 +77,36 @@ public class CacheExpiryProperties implements Serializable {
      */
     private final CacheNameResolver cacheNameResolver = new CacheNameResolver();
 
+    /**
+     * Caffeine attributes
+     */
+    private final Caffeine caffeine = new Caffeine();
+
+    /**
+     * Redis attributes
+     */
+    private final Redis redis = new Redis();
+
+    /**
+     * Tiered cache attributes
+     */
+    private final Tiered tiered = new Tiered();
+
+    /**
+     * Invalidation attributes
+     */
+    private final Invalidation invalidation = new Invalidation();
+
+    /**
+     * Hot key attributes
+     */
+    private final HotKey hotKey = new HotKey();
+
+    /**
+     * Metrics attributes
+     */
+    private final Metrics metrics = new Metrics();
+
 
     /**
      * Properties for cache interceptor
@@ -133,6 +177,32 @@ public class CacheExpiryProperties implements Serializable {
          */
         private Boolean detectCacheNameResolver = true;
 
+        /**
+         * Whether to coalesce the concurrent loads of the same key in this JVM or not
+         * <p>
+         * The loads go through the caches only with {@code @Cacheable(sync = true)}
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean singleFlight = true;
+
+        /**
+         * The default random jitter that shortens the ttls, for the methods that do not specify one
+         * <p>
+         * The jitter can be a percentage (such as {@code 10%}), or a duration (such as {@code 30s} or {@code PT30S})
+         */
+        private String defaultJitter;
+
+        /**
+         * The maximum number of entries per cache to track refresh deadlines, for Redis and JCache
+         * <p>
+         * Caffeine refreshes entries natively, so this does not apply to it.
+         * Each tracked entry retains the target and the arguments of its invocation, until it is reloaded, evicted or released past its deadline
+         * <p>
+         * Default is {@code 10000}
+         */
+        private Integer refreshTrackedEntries = 10000;
+
         /**
          * The priority order of processor that processes cache resolver
          * <p>
@@ -193,4 +263,303 @@ public class CacheExpiryProperties implements Serializable {
          */
         private String nameSuffix;
     }
+
+
+    /**
+     * Properties for caffeine
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Caffeine implements Serializable {
+        /**
+         * Whether to share one native cache per cache name, and expire each entry after its own ttl
+         * <p>
+         * If this is {@code false}, each distinct ttl of a cache name creates a distinct native cache
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean variableExpiry = false;
+    }
+
+
+    /**
+     * Properties for redis
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.resolver.impl.RedisExpiryCacheResolver
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Redis implements Serializable {
+        /**
+         * The time that the leases of loads expire after
+         * <p>
+         * Default is {@code 10s}
+         */
+        private Duration leaseTime = Duration.ofSeconds(10L);
+
+        /**
+         * The maximum time to wait for the values that loaded by other nodes, before loading them directly
+         * <p>
+         * Default is the {@code lease-time}, so that the other nodes never load while the lease is held
+         */
+        private Duration leaseWait;
+
+        /**
+         * The interval to poll the values that loaded by other nodes
+         * <p>
+         * Default is {@code 50ms}
+         */
+        private Duration leasePollInterval = Duration.ofMillis(50L);
+
+        /**
+         * Indicates whether to stamp the key prefixes with generations, so that the caches are cleared by incrementing the generations, or not
+         * <p>
+         * Only the caches whose entries always expire are stamped, since the entries of old generations are left to their ttls
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean generationalPrefix = false;
+
+        /**
+         * The ttl of the generations that read locally, which bounds how long a node may serve the entries of a cleared generation
+         * <p>
+         * Default is {@code 1s}
+         */
+        private Duration generationLocalTtl = Duration.ofSeconds(1L);
+
+        /**
+         * The name of the codec that writes the values of the caches that specify none, such as {@code jdk} or {@code compact}
+         * <p>
+         * The serializer of the cache configuration is used if not specified
+         */
+        private String codec;
+
+        /**
+         * The names of the codecs per cache name, which take precedence over {@code codec}
+         */
+        private Map<String, String> cacheCodecs = new LinkedHashMap<>();
+
+        /**
+         * The size of encoded values that they are compressed above, never compress if not specified
+         */
+        private DataSize compressionThreshold;
+
+        /**
+         * The writer attributes for all the caches
+         */
+        private final RedisWriter writer = new RedisWriter();
+
+        /**
+         * The writer attributes per cache name, which take precedence over {@code writer}, regardless of its {@code enabled}
+         */
+        private Map<String, RedisWriter> cacheWriters = new LinkedHashMap<>();
+    }
+
+
+    /**
+     * Properties for Redis cache writers
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.cache.RedisCacheWriterOptions
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class RedisWriter implements Serializable {
+        /**
+         * Indicates whether to create caches with the writer of these attributes, instead of the writer of the cache manager, or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The strategy to remove keys when the caches are cleared
+         * <p>
+         * Default is {@code scan}
+         */
+        private RedisCacheWriterOptions.BatchStrategyType batchStrategy = RedisCacheWriterOptions.BatchStrategyType.SCAN;
+
+        /**
+         * The number of keys per batch of the {@code scan} strategy
+         * <p>
+         * Default is {@code 1000}
+         */
+        private Integer batchSize = 1000;
+
+        /**
+         * Indicates whether to lock the caches while writing or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean locking = false;
+
+        /**
+         * The ttl of the locks, never expire if not specified
+         */
+        private Duration lockTtl;
+
+        /**
+         * The interval to poll the locks that held by others
+         * <p>
+         * Default is {@code 50ms}
+         */
+        private Duration lockSleepTime = Duration.ofMillis(50L);
+
+        /**
+         * Indicates whether to collect the statistics of the caches or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean statistics = false;
+    }
+
+
+    /**
+     * Properties for tiered caches, which keep a local Caffeine level in front of Redis
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.resolver.impl.TieredExpiryCacheResolver
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Tiered implements Serializable {
+        /**
+         * Indicates whether to enable the local level for Redis caches or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum number of local entries per cache
+         * <p>
+         * Default is {@code 10000}
+         */
+        private Long localMaximumSize = 10000L;
+
+        /**
+         * The maximum ttl of local entries, which are also capped by the remaining ttls of Redis entries
+         * <p>
+         * Default is {@code 1m}
+         */
+        private Duration localMaxTtl = Duration.ofMinutes(1L);
+    }
+
+
+    /**
+     * Properties for broadcasting the evictions of Caffeine caches to the other nodes
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Invalidation implements Serializable {
+        /**
+         * Indicates whether to broadcast the evictions of Caffeine caches or not
+         * <p>
+         * Requires a {@code RedisConnectionFactory} or a {@code CacheInvalidationChannel} bean, otherwise the application fails to start
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The Redis channel to broadcast invalidations, if Redis is available
+         * <p>
+         * Default is {@code cache-expiry:invalidation}
+         */
+        private String channel = "cache-expiry:invalidation";    // $NON-NLS-1$
+
+        /**
+         * The maximum time to coalesce invalidations before broadcasting them
+         * <p>
+         * Default is {@code 50ms}
+         */
+        private Duration batchInterval = Duration.ofMillis(50L);
+
+        /**
+         * The number of pending invalidations that triggers an immediate broadcast
+         * <p>
+         * Default is {@code 500}
+         */
+        private Integer batchSize = 500;
+    }
+
+
+    /**
+     * Properties for promoting the hot keys of Redis caches into a small local level
+     * <p>
+     * When metrics are enabled, the promotions, the local hits and the number of hot keys are recorded per cache
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.cache.HotKeyCache
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class HotKey implements Serializable {
+        /**
+         * Indicates whether to detect hot keys or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The estimated access frequency that promotes a key, at most {@code 15}
+         * <p>
+         * Default is {@code 8}
+         */
+        private Integer threshold = 8;
+
+        /**
+         * The expected number of distinct keys to track per cache
+         * <p>
+         * Default is {@code 4096}
+         */
+        private Integer sketchSize = 4096;
+
+        /**
+         * The maximum number of promoted keys per cache
+         * <p>
+         * Default is {@code 1000}
+         */
+        private Long localMaximumSize = 1000L;
+
+        /**
+         * The ttl of promoted keys, which bounds how long the local copies may lag behind the writes of other nodes
+         * <p>
+         * Default is {@code 1s}
+         */
+        private Duration localTtl = Duration.ofSeconds(1L);
+    }
+
+
+    /**
+     * Properties for recording the metrics of cache resolutions and caches, when a Micrometer registry is present
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.cacheexpiry.metrics.MicrometerCacheExpiryMetrics
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Metrics implements Serializable {
+        /**
+         * Indicates whether to record metrics or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean enabled = true;
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.registry;
+
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import com.yookue.commonplexus.springutil.util.BeanFactoryWraps;
+import com.yookue.commonplexus.springutil.util.CacheUtilsWraps;
+import com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * Registry of the beans that cache operations look up, such as cache resolvers, cache managers and cache name resolvers
+ * <p>
+ * Each bean is looked up from the bean factory once, and memoized until {@link #clear()}, which is expected to be called on context refresh
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class CacheBeanRegistry {
+    private final Map<BasicOperation, OperationBeans> operationBeans = new ConcurrentHashMap<>();
+    private final Map<String, Optional<CacheNameResolver>> nameResolvers = new ConcurrentHashMap<>();
+    private volatile Optional<CacheNameResolver> defaultNameResolver;
+
+    /**
+     * Returns the memoized beans of the operation of the {@code context}
+     *
+     * @param factory the bean factory to look up beans
+     * @param context the cache invocation context
+     *
+     * @return the memoized beans of the operation of the {@code context}
+     */
+    @Nonnull
+    public OperationBeans getOperationBeans(@Nonnull BeanFactory factory, @Nonnull CacheOperationInvocationContext<?> context) {
+        OperationBeans beans = operationBeans.get(context.getOperation());
+        if (beans == null) {
+            beans = new OperationBeans(CacheUtilsWraps.getCacheResolver(factory, context), CacheUtilsWraps.getCacheManager(factory, context));
+            OperationBeans existing = operationBeans.putIfAbsent(context.getOperation(), beans);
+            beans = (existing != null) ? existing : beans;
+        }
+        return beans;
+    }
+
+    /**
+     * Returns the memoized cache name resolver
+     *
+     * @param factory the bean factory to look up beans
+     * @param beanName the bean name of the cache name resolver
+     * @param detectResolver whether to detect the cache name resolver by type if {@code beanName} is blank
+     *
+     * @return the memoized cache name resolver
+     */
+    @Nullable
+    public CacheNameResolver getNameResolver(@Nonnull BeanFactory factory, @Nullable String beanName, boolean detectResolver) {
+        if (StringUtils.isNotBlank(beanName)) {
+            Optional<CacheNameResolver> resolver = nameResolvers.get(beanName);
+            if (resolver == null) {
+                resolver = Optional.ofNullable(BeanFactoryWraps.getBean(factory, beanName, CacheNameResolver.class));
+                nameResolvers.putIfAbsent(beanName, resolver);
+            }
+            return resolver.orElse(null);
+        }
+        if (!detectResolver) {
+            return null;
+        }
+        Optional<CacheNameResolver> resolver = defaultNameResolver;
+        if (resolver == null) {
+            resolver = Optional.ofNullable(BeanFactoryWraps.getBean(factory, CacheNameResolver.class));
+            defaultNameResolver = resolver;
+        }
+        return resolver.orElse(null);
+    }
+
+    /**
+     * Removes all the memoized beans
+     */
+    public void clear() {
+        operationBeans.clear();
+        nameResolvers.clear();
+        defaultNameResolver = null;
+    }
+
+
+    /**
+     * Memoized beans of a cache operation
+     *
+     * @author David Hsing
+     */
+    @AllArgsConstructor
+    @Getter
+    public static final class OperationBeans {
+        /**
+         * The cache resolver that specified by the operation
+         */
+        private final CacheResolver cacheResolver;
+
+        /**
+         * The cache manager that specified by the operation
+         */
+        private final CacheManager cacheManager;
+    }
+}
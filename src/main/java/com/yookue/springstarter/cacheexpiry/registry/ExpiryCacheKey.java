@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.registry;
+
+
+import java.time.Duration;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Key of expiry caches in {@link com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheRegistry}
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
+@ToString
+public final class ExpiryCacheKey {
+    /**
+     * The name of the cache
+     */
+    private final String cacheName;
+
+    /**
+     * The effective time to live of the cache
+     */
+    private final Duration ttl;
+
+    /**
+     * The period after writing that the entries are refreshed, {@code null} means never refresh
+     */
+    private final Duration refreshAfter;
+
+    /**
+     * The name of the codec that writes the values, {@code null} means the default codec
+     */
+    private final String codec;
+
+    public ExpiryCacheKey(String cacheName, Duration ttl) {
+        this(cacheName, ttl, null, null);
+    }
+
+    public ExpiryCacheKey(String cacheName, Duration ttl, Duration refreshAfter) {
+        this(cacheName, ttl, refreshAfter, null);
+    }
+}
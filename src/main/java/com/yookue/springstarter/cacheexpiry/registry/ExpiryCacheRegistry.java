@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.registry;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+
+
+/**
+ * Registry of expiry caches, which creates each cache once and reuses it afterwards
+ * <p>
+ * Lookups of existing caches are lock-free, while the first creation of a cache is guarded by one of the striped locks,
+ * so that concurrent first calls of the same key create the cache exactly once, without blocking the creations of other stripes
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ExpiryCacheRegistry {
+    private static final int DEFAULT_LOCK_STRIPES = 32;
+
+    private final Map<ExpiryCacheKey, Cache> caches = new ConcurrentHashMap<>();
+    private final Map<Cache, Cache> decoratedCaches = new ConcurrentHashMap<>();
+    private final Object[] locks;
+
+    public ExpiryCacheRegistry() {
+        this(DEFAULT_LOCK_STRIPES);
+    }
+
+    public ExpiryCacheRegistry(int lockStripes) {
+        int stripes = Integer.highestOneBit(Math.max(lockStripes, 1) * 2 - 1);
+        locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the registered cache of the {@code key}
+     *
+     * @param key the key of the cache
+     *
+     * @return the registered cache of the {@code key}, or {@code null} if not registered
+     */
+    @Nullable
+    public Cache getCache(@Nonnull ExpiryCacheKey key) {
+        return caches.get(key);
+    }
+
+    /**
+     * Returns the registered cache of the {@code key}, creates it with {@code factory} once if absent
+     * <p>
+     * The {@code factory} is called at most once per key, even if many threads race on the first call.
+     * If the {@code factory} throws, nothing is registered and the next call tries again
+     *
+     * @param key the key of the cache
+     * @param factory the factory to create the cache
+     *
+     * @return the registered cache of the {@code key}
+     */
+    @Nonnull
+    public Cache getCache(@Nonnull ExpiryCacheKey key, @Nonnull Function<? super ExpiryCacheKey, ? extends Cache> factory) {
+        Cache cache = caches.get(key);
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (getLock(key)) {
+            cache = caches.get(key);
+            if (cache == null) {
+                cache = factory.apply(key);
+                if (cache == null) {
+                    throw new IllegalStateException("Cannot create cache '" + key.getCacheName() + "' with ttl " + key.getTtl());
+                }
+                caches.put(key, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the decorated cache of the {@code cache} that owned by the cache manager, decorates it with {@code decorator} once if absent
+     *
+     * @param cache the cache that owned by the cache manager
+     * @param decorator the decorator to apply
+     *
+     * @return the decorated cache of the {@code cache} that owned by the cache manager
+     */
+    @Nonnull
+    public Cache getDecoratedCache(@Nonnull Cache cache, @Nonnull Function<? super Cache, ? extends Cache> decorator) {
+        Cache decorated = decoratedCaches.get(cache);
+        return (decorated != null) ? decorated : decoratedCaches.computeIfAbsent(cache, decorator);
+    }
+
+    /**
+     * Returns all the registered caches
+     *
+     * @return all the registered caches
+     */
+    @Nonnull
+    public Collection<Cache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    /**
+     * Returns all the registered caches, keyed by their keys
+     *
+     * @return all the registered caches, keyed by their keys
+     */
+    @Nonnull
+    public Map<ExpiryCacheKey, Cache> getEntries() {
+        return Collections.unmodifiableMap(caches);
+    }
+
+    /**
+     * Removes the registered caches with the {@code cacheName}, so that they are created again on the next calls
+     * <p>
+     * The removed caches are not cleared, the callers that still hold them keep working
+     *
+     * @param cacheName the name of the caches
+     *
+     * @return the removed caches
+     */
+    @Nonnull
+    public Collection<Cache> removeCaches(@Nonnull String cacheName) {
+        Collection<Cache> result = new ArrayList<>();
+        caches.entrySet().removeIf(entry -> {
+            boolean matched = cacheName.equals(entry.getKey().getCacheName());
+            if (matched) {
+                result.add(entry.getValue());
+            }
+            return matched;
+        });
+        return result;
+    }
+
+    /**
+     * Removes all the registered caches
+     */
+    public void clear() {
+        caches.clear();
+        decoratedCaches.clear();
+    }
+
+    @Nonnull
+    private Object getLock(@Nonnull ExpiryCacheKey key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+}
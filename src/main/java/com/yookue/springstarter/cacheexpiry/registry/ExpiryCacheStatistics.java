@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry.registry;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Snapshot of the size and the statistics of an expiry cache
+ * <p>
+ * The values that the backend cannot report cheaply are {@code null}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver#getStatistics
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public final class ExpiryCacheStatistics {
+    /**
+     * The estimated number of entries
+     */
+    private final Long size;
+
+    /**
+     * The number of lookups that found a value
+     */
+    private final Long hitCount;
+
+    /**
+     * The number of lookups that found no value
+     */
+    private final Long missCount;
+
+    /**
+     * The number of writes
+     */
+    private final Long putCount;
+
+    /**
+     * The number of evictions
+     */
+    private final Long evictionCount;
+
+    /**
+     * Returns the ratio of the hits to the lookups
+     *
+     * @return the ratio of the hits to the lookups, or {@code null} if unknown or there are no lookups
+     */
+    @Nullable
+    public Double getHitRatio() {
+        if (hitCount == null || missCount == null || hitCount + missCount <= 0L) {
+            return null;
+        }
+        return (double) hitCount / (hitCount + missCount);
+    }
+
+    /**
+     * Returns the statistics that recorded by the {@code meteredCache}
+     *
+     * @param meteredCache the cache that records the statistics, {@code null} means no statistics
+     * @param size the estimated number of entries
+     *
+     * @return the statistics that recorded by the {@code meteredCache}
+     */
+    @Nonnull
+    public static ExpiryCacheStatistics of(@Nullable MeteredCache meteredCache, @Nullable Long size) {
+        if (meteredCache == null) {
+            return new ExpiryCacheStatistics(size, null, null, null, null);
+        }
+        return new ExpiryCacheStatistics(size, meteredCache.getHitCount(), meteredCache.getMissCount(), meteredCache.getPutCount(), meteredCache.getEvictionCount());
+    }
+}
@@ -17,8 +17,20 @@
 package com.yookue.springstarter.cacheexpiry.resolver;
 
 
+import java.util.Collections;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.cache.Cache;
 import org.springframework.cache.interceptor.CacheResolver;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.registry.CacheBeanRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheStatistics;
 
 
 /**
@@ -28,4 +40,114 @@ import org.springframework.cache.interceptor.CacheResolver;
  * @see org.springframework.cache.interceptor.CacheResolver
  */
 public interface ExpiryCacheResolver extends BeanFactoryAware, CacheResolver {
+    /**
+     * Sets the index of expiry metadata that built when beans are post-processed
+     * <p>
+     * Default does nothing
+     *
+     * @param metadataIndex the index of expiry metadata
+     */
+    default void setMetadataIndex(@Nonnull CacheExpiryMetadataIndex metadataIndex) {
+    }
+
+    /**
+     * Sets the registry of memoized beans that cache operations look up
+     * <p>
+     * Default does nothing
+     *
+     * @param beanRegistry the registry of memoized beans
+     */
+    default void setBeanRegistry(@Nonnull CacheBeanRegistry beanRegistry) {
+    }
+
+    /**
+     * Sets whether to coalesce the concurrent loads of the same key or not
+     * <p>
+     * Default does nothing
+     *
+     * @param singleFlight whether to coalesce the concurrent loads of the same key or not
+     */
+    default void setSingleFlight(boolean singleFlight) {
+    }
+
+    /**
+     * Sets the metrics of the cache resolutions and the caches, {@code null} means no metrics
+     * <p>
+     * Default does nothing
+     *
+     * @param cacheMetrics the metrics of the cache resolutions and the caches
+     */
+    default void setCacheMetrics(@Nullable CacheExpiryMetrics cacheMetrics) {
+    }
+
+    /**
+     * Returns the index of expiry metadata, which holds the overrides of the ttls
+     * <p>
+     * Default is {@code null}, which means the resolver takes no overrides of the ttls
+     *
+     * @return the index of expiry metadata, or {@code null} if the resolver does not expose one
+     */
+    @Nullable
+    default CacheExpiryMetadataIndex getMetadataIndex() {
+        return null;
+    }
+
+    /**
+     * Returns the name of the backend of the caches, such as {@code caffeine}, {@code jcache} or {@code redis}
+     *
+     * <p>
+     * Default is the simple name of the resolver class
+     *
+     * @return the name of the backend of the caches
+     */
+    @Nonnull
+    default String getBackend() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Returns the expiry caches that created by the resolutions, keyed by their keys
+     * <p>
+     * Default is an empty map
+     *
+     * @return the expiry caches that created by the resolutions, keyed by their keys
+     */
+    @Nonnull
+    default Map<ExpiryCacheKey, Cache> getExpiryCaches() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Returns the size and the statistics of the {@code cache}
+     * <p>
+     * Default is the statistics of the {@link com.yookue.springstarter.cacheexpiry.cache.MeteredCache} if any, without the size
+     *
+     * @param cache the cache that resolved by this
+     *
+     * @return the size and the statistics of the {@code cache}
+     */
+    @Nonnull
+    default ExpiryCacheStatistics getStatistics(@Nonnull Cache cache) {
+        return ExpiryCacheStatistics.of(CacheDecorator.unwrap(cache, MeteredCache.class), null);
+    }
+
+    /**
+     * Removes the expiry caches with the {@code cacheName}, so that the next resolutions create them with the current ttls
+     * <p>
+     * Default does nothing
+     *
+     * @param cacheName the name of the caches
+     */
+    default void releaseCaches(@Nonnull String cacheName) {
+    }
+
+    /**
+     * Removes all the entries of the caches with the {@code cacheName}
+     * <p>
+     * Default does nothing
+     *
+     * @param cacheName the name of the caches
+     */
+    default void clearCaches(@Nonnull String cacheName) {
+    }
 }
@@ -17,30 +17,62 @@
 package com.yookue.springstarter.cacheexpiry.resolver.impl;
 
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheEvictOperation;
 import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CachePutOperation;
 import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.cache.interceptor.SimpleCacheResolver;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ReflectionUtils;
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.yookue.commonplexus.springutil.util.CacheUtilsWraps;
-import com.yookue.commonplexus.springutil.util.ReflectionUtilsWraps;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.ExpressionExpiryCache;
+import com.yookue.springstarter.cacheexpiry.cache.InvalidationBroadcastCache;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+import com.yookue.springstarter.cacheexpiry.cache.SingleFlightCache;
+import com.yookue.springstarter.cacheexpiry.cache.VariableExpiryCaffeineCache;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidation;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.registry.CacheBeanRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheStatistics;
+import com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.util.CacheExpiryDetectionUtils;
+import com.yookue.springstarter.cacheexpiry.util.MethodHandleUtils;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
@@ -56,11 +88,52 @@ import lombok.SneakyThrows;
 @Setter
 @SuppressWarnings({"unused", "JavadocDeclaration", "JavadocLinkAsPlainText", "JavadocReference"})
 public class CaffeineExpiryCacheResolver extends SimpleCacheResolver implements BeanFactoryAware, ExpiryCacheResolver {
+    private static final String MANAGER_TYPE_MESSAGE = "Cache manager must be an instanceof " + CaffeineCacheManager.class.getCanonicalName();    // $NON-NLS-1$
+    private static final String METRICS_BACKEND = "caffeine";    // $NON-NLS-1$
+    private static final VarHandle CACHE_BUILDER = MethodHandleUtils.findVarHandle(CaffeineCacheManager.class, "cacheBuilder", Caffeine.class);    // $NON-NLS-1$
+    private static final VarHandle ASYNC_CACHE_MODE = MethodHandleUtils.findVarHandle(CaffeineCacheManager.class, "asyncCacheMode", boolean.class);    // $NON-NLS-1$
+    private static final MethodHandle ADAPT_CAFFEINE_CACHE = MethodHandleUtils.findVirtual(CaffeineCacheManager.class, "adaptCaffeineCache", Cache.class, String.class, com.github.benmanes.caffeine.cache.Cache.class);    // $NON-NLS-1$
+    private static final MethodHandle ADAPT_ASYNC_CAFFEINE_CACHE = MethodHandleUtils.findVirtual(CaffeineCacheManager.class, "adaptCaffeineCache", Cache.class, String.class, AsyncCache.class);    // $NON-NLS-1$
+    private static final VarHandle EXPIRE_AFTER_WRITE_NANOS = MethodHandleUtils.findVarHandle(Caffeine.class, "expireAfterWriteNanos", long.class);    // $NON-NLS-1$
+    private static final VarHandle EXPIRE_AFTER_ACCESS_NANOS = MethodHandleUtils.findVarHandle(Caffeine.class, "expireAfterAccessNanos", long.class);    // $NON-NLS-1$
+    private static final VarHandle REFRESH_AFTER_WRITE_NANOS = MethodHandleUtils.findVarHandle(Caffeine.class, "refreshAfterWriteNanos", long.class);    // $NON-NLS-1$
+    private static final VarHandle EXPIRY = MethodHandleUtils.findVarHandle(Caffeine.class, "expiry", Expiry.class);    // $NON-NLS-1$
+    private static final VarHandle STATS_COUNTER_SUPPLIER = MethodHandleUtils.findVarHandle(Caffeine.class, "statsCounterSupplier", Supplier.class);    // $NON-NLS-1$
+    private static final long UNSET_BUILDER_VALUE = -1L;
+
+    private final Map<CacheManager, ExpiryCacheRegistry> cacheRegistries = new ConcurrentHashMap<>();
+
     @Getter
     private boolean detectNameResolver = false;
 
+    /**
+     * Whether to coalesce the concurrent loads of the same key or not
+     */
+    @Getter
+    private boolean singleFlight = true;
+
+    /**
+     * Whether to share one native cache per cache name, and expire each entry after its own ttl
+     */
+    @Getter
+    private boolean variableExpiry = false;
+
+    @Getter
+    private CacheExpiryMetadataIndex metadataIndex = new CacheExpiryMetadataIndex();
+
+    @Getter
+    private CacheBeanRegistry beanRegistry = new CacheBeanRegistry();
+
+    /**
+     * The metrics of the cache resolutions and the caches, {@code null} means no metrics
+     */
+    @Getter
+    private CacheExpiryMetrics cacheMetrics;
+
     protected BeanFactory beanFactory;
 
+    private CacheInvalidationBus invalidationBus;
+
     public CaffeineExpiryCacheResolver(@Nonnull CacheManager manager) {
         super(manager);
     }
@@ -72,43 +145,391 @@ public class CaffeineExpiryCacheResolver extends SimpleCacheResolver implements
 
     @Nonnull
     @Override
+    public Collection<? extends Cache> resolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
+        if (cacheMetrics == null) {
+            return doResolveCaches(context);
+        }
+        long startTime = System.nanoTime();
+        try {
+            return doResolveCaches(context);
+        } finally {
+            cacheMetrics.recordResolution(context.getMethod(), System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Returns the caches of the operation of the {@code context}
+     *
+     * @param context the cache invocation context
+     *
+     * @return the caches of the operation of the {@code context}
+     */
+    @Nonnull
     @SneakyThrows
     @SuppressWarnings("unchecked")
-    public Collection<? extends Cache> resolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
-        CacheResolver cacheResolver = CacheUtilsWraps.getCacheResolver(beanFactory, context);
+    protected Collection<? extends Cache> doResolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
+        CacheBeanRegistry.OperationBeans operationBeans = beanRegistry.getOperationBeans(beanFactory, context);
+        CacheResolver cacheResolver = operationBeans.getCacheResolver();
         if (cacheResolver != null && !ClassUtils.isAssignableValue(getClass(), cacheResolver)) {
             return cacheResolver.resolveCaches(context);
         }
-        CacheManager cacheManager = ObjectUtils.defaultIfNull(CacheUtilsWraps.getCacheManager(beanFactory, context), super.getCacheManager());
-        Assert.isInstanceOf(CaffeineCacheManager.class, cacheManager, "Cache manager must be an instanceof " + CaffeineCacheManager.class.getCanonicalName());
+        CacheManager cacheManager = ObjectUtils.defaultIfNull(operationBeans.getCacheManager(), super.getCacheManager());
+        Assert.isInstanceOf(CaffeineCacheManager.class, cacheManager, MANAGER_TYPE_MESSAGE);
         // Prepare caches and configuration
-        Collection<String> cacheNames = CacheExpiryDetectionUtils.detectCacheNames(context, beanFactory, detectNameResolver);
+        CacheExpiryMetadata metadata = metadataIndex.getMetadata(context.getMethod(), AopUtils.getTargetClass(context.getTarget()));
+        CacheNameResolver nameResolver = beanRegistry.getNameResolver(beanFactory, metadata.getNameResolver(), detectNameResolver);
+        Collection<String> cacheNames = CacheExpiryDetectionUtils.detectCacheNames(context, nameResolver);
         if (CollectionUtils.isEmpty(cacheNames)) {
             return Collections.emptyList();
         }
-        Caffeine<Object, Object> cacheBuilder = ReflectionUtilsWraps.getFieldAs(cacheManager.getClass(), "cacheBuilder", true, cacheManager, Caffeine.class);    // $NON-NLS-1$
-        cacheBuilder = ObjectUtils.defaultIfNull(cacheBuilder, Caffeine.newBuilder());
-        Duration duration = CacheExpiryDetectionUtils.detectCachePeriod(context);
-        if (duration != null) {
-            cacheBuilder = cacheBuilder.expireAfterWrite(duration);
-        }
-        com.github.benmanes.caffeine.cache.Cache<Object, Object> configuration = cacheBuilder.build();
+        ExpiryCacheRegistry registry = getCacheRegistry(cacheManager);
         Collection<Cache> result = new ArrayList<>(cacheNames.size());
         for (String cacheName : cacheNames) {
             if (StringUtils.isBlank(cacheName)) {
                 continue;
             }
             Cache cache = null;
-            if (duration != null) {
-                cache = (Cache) MethodUtils.invokeMethod(cacheManager, true, "adaptCaffeineCache", cacheName, configuration);    // $NON-NLS-1$
+            ExpiryCacheKey cacheKey = metadata.getCacheKey(cacheName);
+            if (cacheKey != null) {
+                cache = registry.getCache(cacheKey);
+                if (cache == null && variableExpiry && cacheKey.getTtl() != null) {
+                    // The shared native cache is registered ahead of its view, so that the registrations never nest
+                    Cache sharedCache = registry.getCache(new ExpiryCacheKey(cacheName, null), sharedKey -> bindMetrics(decorateCache(createSharedCache(cacheManager, sharedKey)), null));
+                    cache = registry.getCache(cacheKey, key -> bindMetrics(decorateCache(createVariableExpiryCache(cacheManager, key, sharedCache)), key.getTtl()));
+                }
+                if (cache == null) {
+                    cache = registry.getCache(cacheKey, key -> bindMetrics(decorateCache(createExpiryCache(cacheManager, key)), key.getTtl()));
+                }
             }
             if (cache == null) {
                 cache = cacheManager.getCache(cacheName);
+                cache = (cache == null) ? null : registry.getDecoratedCache(cache, element -> bindMetrics(decorateCache(element), null));
             }
             if (cache == null) {
                 throw new IllegalStateException("Cannot find/create cache '" + cacheName + "' with operation " + context.getOperation());
             }
+            if (metadata.isDynamic()) {
+                VariableExpiryCaffeineCache variableCache = CacheDecorator.unwrap(cache, VariableExpiryCaffeineCache.class);
+                cache = new ExpressionExpiryCache(cache, value -> metadata.evaluateTtl(context, cacheName, value), metadata.createReloader(context, cacheName), (variableCache == null) ? null : variableCache.getDeferredTtls());
+            }
             result.add(cache);
+            if (context.getOperation() instanceof CacheEvictOperation || (cacheKey == null && context.getOperation() instanceof CachePutOperation)) {
+                addSiblingCaches(cacheManager, registry, cacheName, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the other caches with the {@code cacheName} to the {@code caches}, whose native caches are not added yet
+     * <p>
+     * Each ttl of a cache name has its own native cache, apart from the one of the cache manager,
+     * so the evictions and the writes without ttls reach all of them, instead of leaving the entries of the other ttls stale
+     *
+     * @param cacheManager the cache manager that the caches belong to
+     * @param registry the registry of expiry caches for the {@code cacheManager}
+     * @param cacheName the name of the caches
+     * @param caches the caches to add to
+     */
+    protected void addSiblingCaches(@Nonnull CacheManager cacheManager, @Nonnull ExpiryCacheRegistry registry, @Nonnull String cacheName, @Nonnull Collection<Cache> caches) {
+        Set<Object> nativeCaches = Collections.newSetFromMap(new IdentityHashMap<>());
+        caches.forEach(element -> nativeCaches.add(element.getNativeCache()));
+        Cache managerCache = cacheManager.getCacheNames().contains(cacheName) ? cacheManager.getCache(cacheName) : null;
+        if (managerCache != null && nativeCaches.add(managerCache.getNativeCache())) {
+            caches.add(registry.getDecoratedCache(managerCache, element -> bindMetrics(decorateCache(element), null)));
+        }
+        registry.getEntries().forEach((key, element) -> {
+            if (StringUtils.equals(key.getCacheName(), cacheName) && nativeCaches.add(element.getNativeCache())) {
+                caches.add(element);
+            }
+        });
+    }
+
+    /**
+     * Returns the {@code cache} that decorated with shared behaviors, which is called once per cache
+     *
+     * @param cache the cache to decorate
+     *
+     * @return the {@code cache} that decorated with shared behaviors
+     */
+    @Nonnull
+    protected Cache decorateCache(@Nonnull Cache cache) {
+        Cache decorated = (invalidationBus == null) ? cache : new InvalidationBroadcastCache(cache, invalidationBus);
+        return singleFlight ? new SingleFlightCache(decorated) : decorated;
+    }
+
+    /**
+     * Returns the {@code cache} that records its metrics if any, which is called once per cache
+     *
+     * @param cache the cache to bind
+     * @param ttl the ttl of the cache, {@code null} means the default ttl of the cache manager or the ttls of the entries
+     *
+     * @return the {@code cache} that records its metrics, or the {@code cache} itself if there are no metrics
+     */
+    @Nonnull
+    protected Cache bindMetrics(@Nonnull Cache cache, @Nullable Duration ttl) {
+        if (cacheMetrics == null || (variableExpiry && ttl != null)) {
+            // The views of variable expiry share one native cache, whose statistics are bound by the shared cache
+            return cache;
+        }
+        return cacheMetrics.bindCache(cache, METRICS_BACKEND, ttl);
+    }
+
+    /**
+     * Removes the metrics of the {@code cache} if any, which is called once the cache is released
+     *
+     * @param cache the cache that returned by {@link #bindMetrics(org.springframework.cache.Cache, java.time.Duration)}
+     */
+    protected void unbindMetrics(@Nonnull Cache cache) {
+        if (cacheMetrics != null) {
+            cacheMetrics.unbindCache(cache);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public String getBackend() {
+        return METRICS_BACKEND;
+    }
+
+    @Nonnull
+    @Override
+    public Map<ExpiryCacheKey, Cache> getExpiryCaches() {
+        Map<ExpiryCacheKey, Cache> result = new LinkedHashMap<>();
+        cacheRegistries.values().forEach(registry -> registry.getEntries().forEach(result::putIfAbsent));
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public ExpiryCacheStatistics getStatistics(@Nonnull Cache cache) {
+        MeteredCache meteredCache = CacheDecorator.unwrap(cache, MeteredCache.class);
+        CaffeineCache caffeineCache = CacheDecorator.unwrap(cache, CaffeineCache.class);
+        if (caffeineCache == null) {
+            return ExpiryCacheStatistics.of(meteredCache, null);
+        }
+        // The views of variable expiry report the size and the statistics of the shared native cache
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+        if (meteredCache != null || !nativeCache.policy().isRecordingStats()) {
+            return ExpiryCacheStatistics.of(meteredCache, nativeCache.estimatedSize());
+        }
+        CacheStats stats = nativeCache.stats();
+        return new ExpiryCacheStatistics(nativeCache.estimatedSize(), stats.hitCount(), stats.missCount(), null, stats.evictionCount());
+    }
+
+    @Override
+    public void releaseCaches(@Nonnull String cacheName) {
+        cacheRegistries.values().forEach(registry -> registry.removeCaches(cacheName).forEach(this::unbindMetrics));
+    }
+
+    @Override
+    public void clearCaches(@Nonnull String cacheName) {
+        Set<CacheManager> cacheManagers = new HashSet<>(cacheRegistries.keySet());
+        cacheManagers.add(super.getCacheManager());
+        for (CacheManager cacheManager : cacheManagers) {
+            ExpiryCacheRegistry registry = getCacheRegistry(cacheManager);
+            Cache cache = cacheManager.getCacheNames().contains(cacheName) ? cacheManager.getCache(cacheName) : null;
+            if (cache != null) {
+                // Clears through the decorators, so that their local copies and broadcasts follow
+                registry.getDecoratedCache(cache, element -> bindMetrics(decorateCache(element), null)).clear();
+            }
+            registry.getEntries().forEach((key, element) -> {
+                if (StringUtils.equals(key.getCacheName(), cacheName)) {
+                    element.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the bus that broadcasts the evictions and clears of the caches to the other nodes
+     *
+     * @return the bus that broadcasts the evictions and clears of the caches to the other nodes
+     */
+    @Nullable
+    public CacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    /**
+     * Sets the bus that broadcasts the evictions and clears of the caches, and subscribes to the invalidations of the other nodes
+     * <p>
+     * The bus is expected to be set before any cache is resolved
+     *
+     * @param invalidationBus the bus that broadcasts the evictions and clears of the caches
+     */
+    public void setInvalidationBus(@Nullable CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(this::applyInvalidation);
+        }
+    }
+
+    /**
+     * Applies the {@code invalidation} that received from another node to the local caches, without broadcasting it again
+     *
+     * @param invalidation the invalidation to apply
+     */
+    protected void applyInvalidation(@Nonnull CacheInvalidation invalidation) {
+        Set<CacheManager> cacheManagers = new HashSet<>(cacheRegistries.keySet());
+        cacheManagers.add(super.getCacheManager());
+        for (CacheManager cacheManager : cacheManagers) {
+            if (cacheManager.getCacheNames().contains(invalidation.getCacheName())) {
+                applyInvalidation(cacheManager.getCache(invalidation.getCacheName()), invalidation);
+            }
+            ExpiryCacheRegistry registry = cacheRegistries.get(cacheManager);
+            if (registry != null) {
+                registry.getCaches().stream().filter(cache -> StringUtils.equals(cache.getName(), invalidation.getCacheName())).forEach(cache -> applyInvalidation(cache, invalidation));
+            }
+        }
+    }
+
+    private void applyInvalidation(@Nullable Cache cache, @Nonnull CacheInvalidation invalidation) {
+        CaffeineCache localCache = CacheDecorator.unwrap(cache, CaffeineCache.class);
+        if (localCache == null) {
+            return;
+        }
+        if (invalidation.isClear()) {
+            localCache.clear();
+        } else if (invalidation.getKey() != null) {
+            localCache.evict(invalidation.getKey());
+        }
+    }
+
+    /**
+     * Returns the registry of expiry caches for the {@code cacheManager}
+     *
+     * @param cacheManager the cache manager that the caches belong to
+     *
+     * @return the registry of expiry caches for the {@code cacheManager}
+     */
+    @Nonnull
+    protected ExpiryCacheRegistry getCacheRegistry(@Nonnull CacheManager cacheManager) {
+        ExpiryCacheRegistry registry = cacheRegistries.get(cacheManager);
+        return (registry != null) ? registry : cacheRegistries.computeIfAbsent(cacheManager, manager -> new ExpiryCacheRegistry());
+    }
+
+    /**
+     * Returns whether the {@code cacheManager} creates caches that built on {@link com.github.benmanes.caffeine.cache.AsyncCache} or not
+     * <p>
+     * The expiry caches follow the mode of the cache manager, so that the asynchronous retrievals of {@code CompletableFuture} and reactive methods never block
+     *
+     * @param cacheManager the cache manager to inspect
+     *
+     * @return whether the {@code cacheManager} creates caches that built on {@link com.github.benmanes.caffeine.cache.AsyncCache} or not
+     * @see org.springframework.cache.caffeine.CaffeineCacheManager#setAsyncCacheMode
+     */
+    protected boolean isAsyncCacheMode(@Nonnull CacheManager cacheManager) {
+        return (boolean) ASYNC_CACHE_MODE.get((CaffeineCacheManager) cacheManager);
+    }
+
+    /**
+     * Returns a new cache that expires after the ttl of the {@code key}
+     * <p>
+     * The views of variable expiry are created by {@link #createVariableExpiryCache}, with the shared native caches that registered ahead
+     *
+     * @param cacheManager the cache manager that adapts the native cache
+     * @param key the key of the cache
+     *
+     * @return a new cache that expires after the ttl of the {@code key}
+     */
+    @Nonnull
+    @SneakyThrows
+    protected Cache createExpiryCache(@Nonnull CacheManager cacheManager, @Nonnull ExpiryCacheKey key) {
+        if (key.getTtl() == null) {
+            return createSharedCache(cacheManager, key);
+        }
+        Caffeine<Object, Object> cacheBuilder = copyCacheBuilder(cacheManager).expireAfterWrite(key.getTtl());
+        Cache cache;
+        if (isAsyncCacheMode(cacheManager)) {
+            cache = (Cache) ADAPT_ASYNC_CAFFEINE_CACHE.invoke((CaffeineCacheManager) cacheManager, key.getCacheName(), cacheBuilder.buildAsync());
+        } else {
+            cache = (Cache) ADAPT_CAFFEINE_CACHE.invoke((CaffeineCacheManager) cacheManager, key.getCacheName(), cacheBuilder.build());
+        }
+        if (cache == null) {
+            throw new IllegalStateException("Cannot create cache '" + key.getCacheName() + "' with ttl " + key.getTtl());
+        }
+        return cache;
+    }
+
+    /**
+     * Returns a view of the shared native cache with the cache name of the {@code key}, which writes entries with the ttl of the {@code key}
+     *
+     * @param cacheManager the cache manager that holds the cache builder
+     * @param key the key of the cache
+     * @param sharedCache the shared cache with the cache name of the {@code key}, which is registered with a null ttl
+     *
+     * @return a view of the shared native cache with the cache name of the {@code key}, which writes entries with the ttl of the {@code key}
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    protected Cache createVariableExpiryCache(@Nonnull CacheManager cacheManager, @Nonnull ExpiryCacheKey key, @Nonnull Cache sharedCache) {
+        boolean allowNullValues = ((CaffeineCacheManager) cacheManager).isAllowNullValues();
+        if (isAsyncCacheMode(cacheManager)) {
+            CaffeineCache caffeineCache = CacheDecorator.unwrap(sharedCache, CaffeineCache.class);
+            Assert.notNull(caffeineCache, "Shared cache '" + key.getCacheName() + "' must be a Caffeine cache");
+            return new VariableExpiryCaffeineCache(key.getCacheName(), caffeineCache.getAsyncCache(), allowNullValues, key.getTtl());
+        }
+        return new VariableExpiryCaffeineCache(key.getCacheName(), (com.github.benmanes.caffeine.cache.Cache<Object, Object>) sharedCache.getNativeCache(), allowNullValues, key.getTtl());
+    }
+
+    /**
+     * Returns a new cache that shared by the cache name of the {@code key}, which expires each entry after its own ttl
+     * <p>
+     * If the {@code key} has a refresh period, the entries are refreshed by the reloaders that recorded in them
+     *
+     * @param cacheManager the cache manager that holds the cache builder
+     * @param key the key of the cache, without ttl
+     *
+     * @return a new cache that shared by the cache name of the {@code key}, which expires each entry after its own ttl
+     */
+    @Nonnull
+    protected Cache createSharedCache(@Nonnull CacheManager cacheManager, @Nonnull ExpiryCacheKey key) {
+        boolean allowNullValues = ((CaffeineCacheManager) cacheManager).isAllowNullValues();
+        Caffeine<Object, Object> cacheBuilder = copyCacheBuilder(cacheManager).expireAfter(VariableExpiryCaffeineCache.EXPIRY);
+        if (isAsyncCacheMode(cacheManager)) {
+            AsyncCache<Object, Object> asyncCache;
+            if (key.getRefreshAfter() == null) {
+                asyncCache = cacheBuilder.buildAsync();
+            } else {
+                asyncCache = cacheBuilder.refreshAfterWrite(key.getRefreshAfter()).buildAsync(new VariableExpiryCaffeineCache.RefreshLoader(allowNullValues));
+            }
+            return new VariableExpiryCaffeineCache(key.getCacheName(), asyncCache, allowNullValues, null);
+        }
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache;
+        if (key.getRefreshAfter() == null) {
+            nativeCache = cacheBuilder.build();
+        } else {
+            nativeCache = cacheBuilder.refreshAfterWrite(key.getRefreshAfter()).build(new VariableExpiryCaffeineCache.RefreshLoader(allowNullValues));
+        }
+        return new VariableExpiryCaffeineCache(key.getCacheName(), nativeCache, allowNullValues, null);
+    }
+
+    /**
+     * Returns a copy of the cache builder of the {@code cacheManager}, without any expiry settings
+     * <p>
+     * Caffeine builders are mutable and reject a second expiry, so the builder of the cache manager must not be touched.
+     * The copy records statistics if the metrics are enabled
+     *
+     * @param cacheManager the cache manager that holds the cache builder
+     *
+     * @return a copy of the cache builder of the {@code cacheManager}, without any expiry settings
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private Caffeine<Object, Object> copyCacheBuilder(@Nonnull CacheManager cacheManager) {
+        Caffeine<Object, Object> cacheBuilder = (Caffeine<Object, Object>) CACHE_BUILDER.get((CaffeineCacheManager) cacheManager);
+        Caffeine<Object, Object> result = Caffeine.newBuilder();
+        if (cacheBuilder != null) {
+            ReflectionUtils.shallowCopyFieldState(cacheBuilder, result);
+            EXPIRE_AFTER_WRITE_NANOS.set(result, UNSET_BUILDER_VALUE);
+            EXPIRE_AFTER_ACCESS_NANOS.set(result, UNSET_BUILDER_VALUE);
+            REFRESH_AFTER_WRITE_NANOS.set(result, UNSET_BUILDER_VALUE);
+            EXPIRY.set(result, (Expiry<?, ?>) null);
+        }
+        if (cacheMetrics != null && STATS_COUNTER_SUPPLIER.get(result) == null) {
+            // The native statistics are bound as the metrics of the caches
+            result.recordStats();
         }
         return result;
     }
@@ -21,13 +21,23 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import javax.cache.CacheException;
+import javax.cache.configuration.CompleteConfiguration;
 import javax.cache.configuration.Configuration;
+import javax.cache.configuration.FactoryBuilder;
 import javax.cache.configuration.MutableConfiguration;
-import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.ExpiryPolicy;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.BeanUtils;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.cache.Cache;
@@ -40,7 +50,20 @@ import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
-import com.yookue.commonplexus.springutil.util.CacheUtilsWraps;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.ContextualExpiryPolicy;
+import com.yookue.springstarter.cacheexpiry.cache.ExpressionExpiryCache;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+import com.yookue.springstarter.cacheexpiry.cache.RefreshAheadCache;
+import com.yookue.springstarter.cacheexpiry.cache.SingleFlightCache;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.registry.CacheBeanRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheStatistics;
+import com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.util.CacheExpiryDetectionUtils;
 import jakarta.annotation.Nonnull;
@@ -60,9 +83,43 @@ import lombok.SneakyThrows;
 @Setter
 @SuppressWarnings({"unused", "JavadocDeclaration", "JavadocLinkAsPlainText", "JavadocReference"})
 public class JcacheExpiryCacheResolver extends SimpleCacheResolver implements BeanFactoryAware, ExpiryCacheResolver {
+    private static final String MANAGER_TYPE_MESSAGE = "Cache manager must be an instanceof " + JCacheCacheManager.class.getCanonicalName();    // $NON-NLS-1$
+    private static final String METRICS_BACKEND = "jcache";    // $NON-NLS-1$
+    private final Map<CacheManager, ExpiryCacheRegistry> cacheRegistries = new ConcurrentHashMap<>();
+
     @Getter
     private boolean detectNameResolver = false;
 
+    /**
+     * Whether to coalesce the concurrent loads of the same key or not
+     */
+    @Getter
+    private boolean singleFlight = true;
+
+    /**
+     * The executor that refreshes the entries in background
+     */
+    @Getter
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * The maximum number of entries to track refresh deadlines per cache
+     */
+    @Getter
+    private int refreshTrackedEntries = 10000;
+
+    @Getter
+    private CacheExpiryMetadataIndex metadataIndex = new CacheExpiryMetadataIndex();
+
+    @Getter
+    private CacheBeanRegistry beanRegistry = new CacheBeanRegistry();
+
+    /**
+     * The metrics of the cache resolutions and the caches, {@code null} means no metrics
+     */
+    @Getter
+    private CacheExpiryMetrics cacheMetrics;
+
     @Getter
     private Configuration<?, ?> configuration;
 
@@ -85,51 +142,234 @@ public class JcacheExpiryCacheResolver extends SimpleCacheResolver implements Be
 
     @Nonnull
     @Override
+    public Collection<? extends Cache> resolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
+        if (cacheMetrics == null) {
+            return doResolveCaches(context);
+        }
+        long startTime = System.nanoTime();
+        try {
+            return doResolveCaches(context);
+        } finally {
+            cacheMetrics.recordResolution(context.getMethod(), System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Returns the caches of the operation of the {@code context}
+     *
+     * @param context the cache invocation context
+     *
+     * @return the caches of the operation of the {@code context}
+     */
+    @Nonnull
     @SneakyThrows
     @SuppressWarnings("unchecked")
-    public Collection<? extends Cache> resolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
-        CacheResolver cacheResolver = CacheUtilsWraps.getCacheResolver(beanFactory, context);
+    protected Collection<? extends Cache> doResolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
+        CacheBeanRegistry.OperationBeans operationBeans = beanRegistry.getOperationBeans(beanFactory, context);
+        CacheResolver cacheResolver = operationBeans.getCacheResolver();
         if (cacheResolver != null && !ClassUtils.isAssignableValue(getClass(), cacheResolver)) {
             return cacheResolver.resolveCaches(context);
         }
-        CacheManager facadeCacheManager = ObjectUtils.defaultIfNull(CacheUtilsWraps.getCacheManager(beanFactory, context), super.getCacheManager());
-        Assert.isInstanceOf(JCacheCacheManager.class, facadeCacheManager, "Cache manager must be an instanceof " + JCacheCacheManager.class.getCanonicalName());
+        CacheManager facadeCacheManager = ObjectUtils.defaultIfNull(operationBeans.getCacheManager(), super.getCacheManager());
+        Assert.isInstanceOf(JCacheCacheManager.class, facadeCacheManager, MANAGER_TYPE_MESSAGE);
         javax.cache.CacheManager originCacheManager = ((JCacheCacheManager) facadeCacheManager).getCacheManager();
         Assert.notNull(originCacheManager, "Cache manager for '" + ClassUtils.getQualifiedMethodName(context.getMethod()) + "' must not be null");
         // Prepare caches and configuration
-        Collection<String> cacheNames = CacheExpiryDetectionUtils.detectCacheNames(context, beanFactory, detectNameResolver);
+        CacheExpiryMetadata metadata = metadataIndex.getMetadata(context.getMethod(), AopUtils.getTargetClass(context.getTarget()));
+        CacheNameResolver nameResolver = beanRegistry.getNameResolver(beanFactory, metadata.getNameResolver(), detectNameResolver);
+        Collection<String> cacheNames = CacheExpiryDetectionUtils.detectCacheNames(context, nameResolver);
         if (CollectionUtils.isEmpty(cacheNames)) {
             return Collections.emptyList();
         }
-        MutableConfiguration<?, ?> cloneConfiguration = new MutableConfiguration<>();
-        Duration duration = CacheExpiryDetectionUtils.detectCachePeriod(context);
-        if (duration != null) {
-            if (configuration instanceof MutableConfiguration) {
-                BeanUtils.copyProperties(configuration, cloneConfiguration);
-            }
-            javax.cache.expiry.Duration cacheDuration = new javax.cache.expiry.Duration(TimeUnit.SECONDS, duration.getSeconds());
-            cloneConfiguration.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(cacheDuration));
-        }
+        ExpiryCacheRegistry registry = getCacheRegistry(facadeCacheManager);
         Collection<Cache> result = new ArrayList<>(cacheNames.size());
         for (String cacheName : cacheNames) {
             if (StringUtils.isBlank(cacheName)) {
                 continue;
             }
             Cache facadeCache = null;
-            if (duration != null) {
-                javax.cache.Cache<?, ?> originCache = originCacheManager.createCache(cacheName, cloneConfiguration);
-                if (originCache != null) {
-                    facadeCache = new JCacheCache((javax.cache.Cache<Object, Object>) originCache, ((JCacheCacheManager) facadeCacheManager).isAllowNullValues());
+            ExpiryCacheKey cacheKey = metadata.getCacheKey(cacheName);
+            if (cacheKey != null) {
+                facadeCache = registry.getCache(cacheKey);
+                if (facadeCache == null) {
+                    facadeCache = registry.getCache(cacheKey, key -> bindMetrics(decorateCache(createExpiryCache((JCacheCacheManager) facadeCacheManager, originCacheManager, key)), key.getTtl()));
                 }
             }
             if (facadeCache == null) {
                 facadeCache = facadeCacheManager.getCache(cacheName);
+                facadeCache = (facadeCache == null) ? null : registry.getDecoratedCache(facadeCache, element -> bindMetrics(decorateCache(element), null));
             }
             if (facadeCache == null) {
                 throw new IllegalStateException("Cannot find/create cache '" + cacheName + "' with operation " + context.getOperation());
             }
+            if (metadata.isDynamic()) {
+                facadeCache = new ExpressionExpiryCache(facadeCache, value -> metadata.evaluateTtl(context, cacheName, value), metadata.createReloader(context, cacheName));
+            }
             result.add(facadeCache);
         }
         return result;
     }
+
+    /**
+     * Returns the {@code cache} that decorated with shared behaviors, which is called once per cache
+     *
+     * @param cache the cache to decorate
+     *
+     * @return the {@code cache} that decorated with shared behaviors
+     */
+    @Nonnull
+    protected Cache decorateCache(@Nonnull Cache cache) {
+        return singleFlight ? new SingleFlightCache(cache) : cache;
+    }
+
+    /**
+     * Returns the {@code cache} that records its metrics if any, which is called once per cache
+     *
+     * @param cache the cache to bind
+     * @param ttl the ttl of the cache, {@code null} means the default ttl of the cache manager or the ttls of the entries
+     *
+     * @return the {@code cache} that records its metrics, or the {@code cache} itself if there are no metrics
+     */
+    @Nonnull
+    protected Cache bindMetrics(@Nonnull Cache cache, @Nullable Duration ttl) {
+        return (cacheMetrics == null) ? cache : cacheMetrics.bindCache(cache, METRICS_BACKEND, ttl);
+    }
+
+    /**
+     * Removes the metrics of the {@code cache} if any, which is called once the cache is released
+     *
+     * @param cache the cache that returned by {@link #bindMetrics(org.springframework.cache.Cache, java.time.Duration)}
+     */
+    protected void unbindMetrics(@Nonnull Cache cache) {
+        if (cacheMetrics != null) {
+            cacheMetrics.unbindCache(cache);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public String getBackend() {
+        return METRICS_BACKEND;
+    }
+
+    @Nonnull
+    @Override
+    public Map<ExpiryCacheKey, Cache> getExpiryCaches() {
+        Map<ExpiryCacheKey, Cache> result = new LinkedHashMap<>();
+        cacheRegistries.values().forEach(registry -> registry.getEntries().forEach(result::putIfAbsent));
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public ExpiryCacheStatistics getStatistics(@Nonnull Cache cache) {
+        // JCache caches cannot be counted without iterating them
+        return ExpiryCacheStatistics.of(CacheDecorator.unwrap(cache, MeteredCache.class), null);
+    }
+
+    @Override
+    public void releaseCaches(@Nonnull String cacheName) {
+        cacheRegistries.values().forEach(registry -> registry.removeCaches(cacheName).forEach(this::unbindMetrics));
+    }
+
+    @Override
+    public void clearCaches(@Nonnull String cacheName) {
+        Set<CacheManager> cacheManagers = new HashSet<>(cacheRegistries.keySet());
+        cacheManagers.add(super.getCacheManager());
+        for (CacheManager cacheManager : cacheManagers) {
+            ExpiryCacheRegistry registry = getCacheRegistry(cacheManager);
+            Cache cache = cacheManager.getCacheNames().contains(cacheName) ? cacheManager.getCache(cacheName) : null;
+            if (cache != null) {
+                // Clears through the decorators, so that their local copies and broadcasts follow
+                registry.getDecoratedCache(cache, element -> bindMetrics(decorateCache(element), null)).clear();
+            }
+            registry.getEntries().forEach((key, element) -> {
+                if (StringUtils.equals(key.getCacheName(), cacheName)) {
+                    element.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the registry of expiry caches for the {@code cacheManager}
+     *
+     * @param cacheManager the cache manager that the caches belong to
+     *
+     * @return the registry of expiry caches for the {@code cacheManager}
+     */
+    @Nonnull
+    protected ExpiryCacheRegistry getCacheRegistry(@Nonnull CacheManager cacheManager) {
+        ExpiryCacheRegistry registry = cacheRegistries.get(cacheManager);
+        return (registry != null) ? registry : cacheRegistries.computeIfAbsent(cacheManager, manager -> new ExpiryCacheRegistry());
+    }
+
+    /**
+     * Returns a new cache that expires after the ttl of the {@code key}
+     * <p>
+     * Since the names of JCache caches are unique within a provider, the existing native cache will be reused if there is one,
+     * and the ttl of the {@code key} is exposed per write, which requires the native cache to be created with a {@link com.yookue.springstarter.cacheexpiry.cache.ContextualExpiryPolicy}
+     *
+     * @param facadeCacheManager the Spring cache manager that wraps the native cache manager
+     * @param originCacheManager the native cache manager that creates the native cache
+     * @param key the key of the cache
+     *
+     * @return a new cache that expires after the ttl of the {@code key}
+     * @throws IllegalStateException if the existing native cache is configured with another expiry policy, which ignores the ttl of the {@code key}
+     */
+    @Nonnull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Cache createExpiryCache(@Nonnull JCacheCacheManager facadeCacheManager, @Nonnull javax.cache.CacheManager originCacheManager, @Nonnull ExpiryCacheKey key) {
+        javax.cache.Cache<Object, Object> originCache = originCacheManager.getCache(key.getCacheName());
+        boolean created = false;
+        if (originCache == null) {
+            MutableConfiguration cloneConfiguration = (configuration instanceof CompleteConfiguration) ? new MutableConfiguration<>((CompleteConfiguration) configuration) : new MutableConfiguration<>();
+            javax.cache.expiry.Duration cacheDuration = (key.getTtl() == null) ? null : new javax.cache.expiry.Duration(TimeUnit.MILLISECONDS, key.getTtl().toMillis());
+            // Dynamic ttls are exposed per write, and fall back to the ttl of the key
+            cloneConfiguration.setExpiryPolicyFactory(FactoryBuilder.factoryOf(new ContextualExpiryPolicy(cacheDuration)));
+            try {
+                originCache = originCacheManager.createCache(key.getCacheName(), cloneConfiguration);
+                created = true;
+            } catch (CacheException ex) {
+                // Another ttl of the same cache name may have created it concurrently
+                originCache = originCacheManager.getCache(key.getCacheName());
+                if (originCache == null) {
+                    throw ex;
+                }
+            }
+        }
+        if (!created) {
+            assertContextualExpiry(originCache);
+        }
+        Cache cache = new JCacheCache(originCache, facadeCacheManager.isAllowNullValues());
+        if (!created && key.getTtl() != null) {
+            // Such as another ttl of the same cache name, or an overridden ttl
+            Duration ttl = key.getTtl();
+            cache = new ExpressionExpiryCache(cache, value -> ttl);
+        }
+        return (key.getRefreshAfter() == null) ? cache : new RefreshAheadCache(cache, key.getRefreshAfter(), refreshExecutor, refreshTrackedEntries);
+    }
+
+    /**
+     * Asserts that the {@code originCache} applies the ttls that exposed per write
+     * <p>
+     * The caches that pre-configured in the provider, such as the ones of {@code ehcache.xml}, expire after their own policies
+     *
+     * @param originCache the native cache to inspect
+     *
+     * @throws IllegalStateException if the {@code originCache} is configured with another expiry policy
+     */
+    protected void assertContextualExpiry(@Nonnull javax.cache.Cache<?, ?> originCache) {
+        CompleteConfiguration<?, ?> cacheConfiguration;
+        try {
+            cacheConfiguration = originCache.getConfiguration(CompleteConfiguration.class);
+        } catch (IllegalArgumentException ex) {
+            // The provider does not expose the expiry policy
+            return;
+        }
+        ExpiryPolicy expiryPolicy = (cacheConfiguration.getExpiryPolicyFactory() == null) ? null : cacheConfiguration.getExpiryPolicyFactory().create();
+        if (!(expiryPolicy instanceof ContextualExpiryPolicy)) {
+            throw new IllegalStateException("Cache '" + originCache.getName() + "' is configured with expiry policy " + ((expiryPolicy == null) ? null : expiryPolicy.getClass().getName()) + ", which ignores the ttls of @CacheExpiry");
+        }
+    }
 }
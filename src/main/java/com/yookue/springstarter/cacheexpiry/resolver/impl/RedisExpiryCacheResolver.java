@@ -17,31 +17,75 @@
 package com.yookue.springstarter.cacheexpiry.resolver.impl;
 
 
+import java.lang.invoke.MethodHandle;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.interceptor.CacheOperationInvocationContext;
 import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.cache.interceptor.SimpleCacheResolver;
+import org.springframework.data.redis.cache.CacheStatistics;
 import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
-import com.yookue.commonplexus.springutil.util.CacheUtilsWraps;
-import com.yookue.commonplexus.springutil.util.ReflectionUtilsWraps;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.CacheGenerations;
+import com.yookue.springstarter.cacheexpiry.cache.CacheLease;
+import com.yookue.springstarter.cacheexpiry.cache.ContextualTtlFunction;
+import com.yookue.springstarter.cacheexpiry.cache.DeferredExpiryTtls;
+import com.yookue.springstarter.cacheexpiry.cache.ExpressionExpiryCache;
+import com.yookue.springstarter.cacheexpiry.cache.GenerationalCache;
+import com.yookue.springstarter.cacheexpiry.cache.HotKeyCache;
+import com.yookue.springstarter.cacheexpiry.cache.LeaseLoadingCache;
+import com.yookue.springstarter.cacheexpiry.cache.MeteredCache;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheGenerations;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheLease;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheWriterOptions;
+import com.yookue.springstarter.cacheexpiry.cache.RefreshAheadCache;
+import com.yookue.springstarter.cacheexpiry.cache.SingleFlightCache;
+import com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.codec.CodecRedisSerializer;
+import com.yookue.springstarter.cacheexpiry.codec.CompactCacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.codec.JdkCacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.codec.SerializationPairCacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metrics.CacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.registry.CacheBeanRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheRegistry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheStatistics;
+import com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver;
 import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
 import com.yookue.springstarter.cacheexpiry.util.CacheExpiryDetectionUtils;
-import jakarta.annotation.Nonnull;
+import com.yookue.springstarter.cacheexpiry.util.MethodHandleUtils;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
@@ -62,9 +106,166 @@ import lombok.SneakyThrows;
 @Setter
 @SuppressWarnings({"unused", "JavadocDeclaration", "JavadocLinkAsPlainText", "JavadocReference"})
 public class RedisExpiryCacheResolver extends SimpleCacheResolver implements BeanFactoryAware, ExpiryCacheResolver {
+    private static final String MANAGER_TYPE_MESSAGE = "Cache manager must be an instanceof " + RedisCacheManager.class.getCanonicalName();    // $NON-NLS-1$
+    private static final String METRICS_BACKEND = "redis";    // $NON-NLS-1$
+    private static final MethodHandle GET_DEFAULT_CACHE_CONFIGURATION = MethodHandleUtils.findVirtual(RedisCacheManager.class, "getDefaultCacheConfiguration", RedisCacheConfiguration.class);    // $NON-NLS-1$
+    private static final MethodHandle CREATE_CACHE_KEY = MethodHandleUtils.findVirtual(RedisCache.class, "createCacheKey", String.class, Object.class);    // $NON-NLS-1$
+    private static final MethodHandle SERIALIZE_CACHE_KEY = MethodHandleUtils.findVirtual(RedisCache.class, "serializeCacheKey", byte[].class, String.class);    // $NON-NLS-1$
+    private static final long KEY_WITHOUT_EXPIRY = -1L;
+    private static final MethodHandle CREATE_REDIS_CACHE = MethodHandleUtils.findVirtual(RedisCacheManager.class, "createRedisCache", RedisCache.class, String.class, RedisCacheConfiguration.class);    // $NON-NLS-1$
+    private static final String GENERATION_COUNTER_SUFFIX = "~generation";    // $NON-NLS-1$
+    private static final String GENERATION_MARKER = "g";    // $NON-NLS-1$
+    private static final String GENERATION_SEPARATOR = "::";    // $NON-NLS-1$
+    private static final String FIXED_DURATION_TTL_FUNCTION = "org.springframework.data.redis.cache.FixedDurationTtlFunction";    // $NON-NLS-1$
+    private static final MethodHandle NEW_REDIS_CACHE = MethodHandleUtils.findConstructor(RedisCache.class, String.class, RedisCacheWriter.class, RedisCacheConfiguration.class);
+
+    private final Map<CacheManager, ExpiryCacheRegistry> cacheRegistries = new ConcurrentHashMap<>();
+
     @Getter
     private boolean detectNameResolver = false;
 
+    /**
+     * Whether to coalesce the concurrent loads of the same key or not
+     */
+    @Getter
+    private boolean singleFlight = true;
+
+    /**
+     * The executor that refreshes the entries in background
+     */
+    @Getter
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * The maximum number of entries to track refresh deadlines per cache
+     */
+    @Getter
+    private int refreshTrackedEntries = 10000;
+
+    /**
+     * The lease that guards the loads across nodes, which is created from the {@link org.springframework.data.redis.connection.RedisConnectionFactory} bean if absent
+     */
+    private volatile CacheLease cacheLease;
+
+    /**
+     * The time that the leases expire after
+     */
+    @Getter
+    private Duration leaseTime = Duration.ofSeconds(10L);
+
+    /**
+     * The maximum time to wait for the values that loaded by other nodes, {@code null} means the {@code leaseTime}
+     */
+    @Getter
+    private Duration leaseWait;
+
+    /**
+     * The interval to poll the values that loaded by other nodes
+     */
+    @Getter
+    private Duration leasePollInterval = Duration.ofMillis(50L);
+
+    /**
+     * Whether to promote the hot keys into a small local level or not
+     */
+    @Getter
+    private boolean hotKeyDetection = false;
+
+    /**
+     * The estimated access frequency that promotes a key, at most {@code 15}
+     */
+    @Getter
+    private int hotKeyThreshold = 8;
+
+    /**
+     * The expected number of distinct keys to track per cache
+     */
+    @Getter
+    private int hotKeySketchSize = 4096;
+
+    /**
+     * The maximum number of promoted keys per cache
+     */
+    @Getter
+    private long hotKeyLocalSize = 1000L;
+
+    /**
+     * The ttl of promoted keys
+     */
+    @Getter
+    private Duration hotKeyLocalTtl = Duration.ofSeconds(1L);
+
+    private final Map<Cache, HotKeyCache> hotKeyCaches = new ConcurrentHashMap<>();
+    private final Map<Cache, Cache> leaseCaches = new ConcurrentHashMap<>();
+
+    /**
+     * The writer options for the caches that have no options of their own, {@code null} means the writer of the cache manager
+     */
+    @Getter
+    private RedisCacheWriterOptions defaultWriterOptions;
+
+    /**
+     * The writer options per cache name
+     */
+    @Getter
+    private Map<String, RedisCacheWriterOptions> cacheWriterOptions = Collections.emptyMap();
+
+    private final Map<RedisCacheWriterOptions, RedisCacheWriter> cacheWriters = new ConcurrentHashMap<>();
+
+    /**
+     * Whether to stamp the key prefixes with generations, so that the caches are cleared by incrementing the generations, or not
+     * <p>
+     * The entries of old generations are left to their ttls, so only the caches whose entries always expire are stamped
+     */
+    @Getter
+    private boolean generationalPrefix = false;
+
+    /**
+     * The ttl of the generations that read locally
+     */
+    @Getter
+    private Duration generationLocalTtl = Duration.ofSeconds(1L);
+
+    /**
+     * The generation counters, which are created from the {@link org.springframework.data.redis.connection.RedisConnectionFactory} bean if absent
+     */
+    private volatile CacheGenerations cacheGenerations;
+
+    /**
+     * The name of the codec that writes the values of the caches that specify none, {@code null} means the serializer of the cache configuration
+     */
+    @Getter
+    private String defaultCodec;
+
+    /**
+     * The names of the codecs per cache name
+     */
+    @Getter
+    private Map<String, String> cacheCodecs = Collections.emptyMap();
+
+    /**
+     * The number of encoded bytes that values are compressed above, {@code 0} means never compress
+     */
+    @Getter
+    private int compressionThreshold = 0;
+
+    /**
+     * The codecs by name, which are the built-in codecs and the {@link com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec} beans if absent
+     */
+    private volatile Map<String, CacheValueCodec> valueCodecs;
+
+    @Getter
+    private CacheExpiryMetadataIndex metadataIndex = new CacheExpiryMetadataIndex();
+
+    @Getter
+    private CacheBeanRegistry beanRegistry = new CacheBeanRegistry();
+
+    /**
+     * The metrics of the cache resolutions and the caches, {@code null} means no metrics
+     */
+    @Getter
+    private CacheExpiryMetrics cacheMetrics;
+
     protected BeanFactory beanFactory;
 
     public RedisExpiryCacheResolver(@Nonnull CacheManager manager) {
@@ -78,42 +279,490 @@ public class RedisExpiryCacheResolver extends SimpleCacheResolver implements Bea
 
     @Nonnull
     @Override
-    @SneakyThrows
     public Collection<? extends Cache> resolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
-        CacheResolver cacheResolver = CacheUtilsWraps.getCacheResolver(beanFactory, context);
+        if (cacheMetrics == null) {
+            return doResolveCaches(context);
+        }
+        long startTime = System.nanoTime();
+        try {
+            return doResolveCaches(context);
+        } finally {
+            cacheMetrics.recordResolution(context.getMethod(), System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Returns the caches of the operation of the {@code context}
+     *
+     * @param context the cache invocation context
+     *
+     * @return the caches of the operation of the {@code context}
+     */
+    @Nonnull
+    @SneakyThrows
+    protected Collection<? extends Cache> doResolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
+        CacheBeanRegistry.OperationBeans operationBeans = beanRegistry.getOperationBeans(beanFactory, context);
+        CacheResolver cacheResolver = operationBeans.getCacheResolver();
         if (cacheResolver != null && !ClassUtils.isAssignableValue(getClass(), cacheResolver)) {
             return cacheResolver.resolveCaches(context);
         }
-        CacheManager cacheManager = ObjectUtils.defaultIfNull(CacheUtilsWraps.getCacheManager(beanFactory, context), super.getCacheManager());
-        Assert.isInstanceOf(RedisCacheManager.class, cacheManager, "Cache manager must be an instanceof " + RedisCacheManager.class.getCanonicalName());
+        CacheManager cacheManager = ObjectUtils.defaultIfNull(operationBeans.getCacheManager(), super.getCacheManager());
+        Assert.isInstanceOf(RedisCacheManager.class, cacheManager, MANAGER_TYPE_MESSAGE);
         // Prepare caches and configuration
-        Collection<String> cacheNames = CacheExpiryDetectionUtils.detectCacheNames(context, beanFactory, detectNameResolver);
+        CacheExpiryMetadata metadata = metadataIndex.getMetadata(context.getMethod(), AopUtils.getTargetClass(context.getTarget()));
+        CacheNameResolver nameResolver = beanRegistry.getNameResolver(beanFactory, metadata.getNameResolver(), detectNameResolver);
+        Collection<String> cacheNames = CacheExpiryDetectionUtils.detectCacheNames(context, nameResolver);
         if (CollectionUtils.isEmpty(cacheNames)) {
             return Collections.emptyList();
         }
-        RedisCacheConfiguration configuration = ReflectionUtilsWraps.getFieldAs(cacheManager.getClass(), "defaultCacheConfig", true, cacheManager, RedisCacheConfiguration.class);    // $NON-NLS-1$
-        configuration = ObjectUtils.defaultIfNull(configuration, RedisCacheConfiguration.defaultCacheConfig());
-        Duration duration = CacheExpiryDetectionUtils.detectCachePeriod(context);
-        if (duration != null) {
-            configuration = configuration.entryTtl(duration);
-        }
+        ExpiryCacheRegistry registry = getCacheRegistry(cacheManager);
         Collection<Cache> result = new ArrayList<>(cacheNames.size());
         for (String cacheName : cacheNames) {
             if (StringUtils.isBlank(cacheName)) {
                 continue;
             }
             Cache cache = null;
-            if (duration != null) {
-                cache = (RedisCache) MethodUtils.invokeMethod(cacheManager, true, "createRedisCache", cacheName, configuration);    // $NON-NLS-1$
+            ExpiryCacheKey cacheKey = metadata.getCacheKey(cacheName);
+            if (cacheKey != null) {
+                cache = registry.getCache(cacheKey);
+                if (cache == null) {
+                    cache = registry.getCache(cacheKey, key -> bindMetrics(decorateRefreshCache(decorateCache(createExpiryCache((RedisCacheManager) cacheManager, key)), key), key.getTtl()));
+                }
+            }
+            if (cache == null && isCustomized(cacheName, metadata.getCodec())) {
+                // The caches that never expire are created without ttl too, so that they are written with the writers, prefixes or codecs of their own
+                cache = registry.getCache(new ExpiryCacheKey(cacheName, null, null, metadata.getCodec()), key -> bindMetrics(decorateRefreshCache(decorateCache(createExpiryCache((RedisCacheManager) cacheManager, key)), key), key.getTtl()));
             }
             if (cache == null) {
                 cache = cacheManager.getCache(cacheName);
+                cache = (cache == null) ? null : registry.getDecoratedCache(cache, element -> bindMetrics(decorateCache(element), null));
             }
             if (cache == null) {
                 throw new IllegalStateException("Cannot find/create cache '" + cacheName + "' with operation " + context.getOperation());
             }
+            if (metadata.isLease()) {
+                Cache leaseCache = leaseCaches.get(cache);
+                cache = (leaseCache != null) ? leaseCache : leaseCaches.computeIfAbsent(cache, this::decorateLeaseCache);
+            }
+            if (metadata.isDynamic()) {
+                cache = new ExpressionExpiryCache(cache, value -> metadata.evaluateTtl(context, cacheName, value), metadata.createReloader(context, cacheName), getDeferredTtls(cache));
+            }
             result.add(cache);
         }
         return result;
     }
+
+    /**
+     * Returns the ttls that handed over to the {@code cache} by asynchronous retrievals
+     *
+     * @param cache the cache to inspect
+     *
+     * @return the ttls that handed over to the {@code cache} by asynchronous retrievals, or {@code null} if the cache has a constant ttl
+     */
+    @Nullable
+    protected DeferredExpiryTtls getDeferredTtls(@Nonnull Cache cache) {
+        RedisCache redisCache = CacheDecorator.unwrap(cache, RedisCache.class);
+        return (redisCache != null && redisCache.getCacheConfiguration().getTtlFunction() instanceof ContextualTtlFunction function) ? function.getDeferredTtls() : null;
+    }
+
+    /**
+     * Returns the {@code cache} that decorated with shared behaviors, which is called once per cache
+     *
+     * @param cache the cache to decorate
+     *
+     * @return the {@code cache} that decorated with shared behaviors
+     */
+    @Nonnull
+    protected Cache decorateCache(@Nonnull Cache cache) {
+        Cache decorated = cache;
+        if (hotKeyDetection) {
+            HotKeyCache hotKeyCache = new HotKeyCache(cache, hotKeyThreshold, hotKeySketchSize, hotKeyLocalSize, hotKeyLocalTtl);
+            hotKeyCaches.put(cache, hotKeyCache);
+            decorated = hotKeyCache;
+        }
+        return singleFlight ? new SingleFlightCache(decorated) : decorated;
+    }
+
+    /**
+     * Returns the {@code cache} that records its metrics if any, which is called once per cache
+     *
+     * @param cache the cache to bind
+     * @param ttl the ttl of the cache, {@code null} means the default ttl of the cache manager or the ttls of the entries
+     *
+     * @return the {@code cache} that records its metrics, or the {@code cache} itself if there are no metrics
+     */
+    @Nonnull
+    protected Cache bindMetrics(@Nonnull Cache cache, @Nullable Duration ttl) {
+        return (cacheMetrics == null) ? cache : cacheMetrics.bindCache(cache, METRICS_BACKEND, ttl);
+    }
+
+    /**
+     * Removes the metrics of the {@code cache} if any, which is called once the cache is released
+     *
+     * @param cache the cache that returned by {@link #bindMetrics(org.springframework.cache.Cache, java.time.Duration)}
+     */
+    protected void unbindMetrics(@Nonnull Cache cache) {
+        if (cacheMetrics != null) {
+            cacheMetrics.unbindCache(cache);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public String getBackend() {
+        return METRICS_BACKEND;
+    }
+
+    @Nonnull
+    @Override
+    public Map<ExpiryCacheKey, Cache> getExpiryCaches() {
+        Map<ExpiryCacheKey, Cache> result = new LinkedHashMap<>();
+        cacheRegistries.values().forEach(registry -> registry.getEntries().forEach(result::putIfAbsent));
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public ExpiryCacheStatistics getStatistics(@Nonnull Cache cache) {
+        // Redis caches cannot be counted without scanning the keys
+        MeteredCache meteredCache = CacheDecorator.unwrap(cache, MeteredCache.class);
+        RedisCache redisCache = CacheDecorator.unwrap(cache, RedisCache.class);
+        if (meteredCache != null || redisCache == null) {
+            return ExpiryCacheStatistics.of(meteredCache, null);
+        }
+        // The statistics are zeros unless the cache writer collects them
+        CacheStatistics statistics = redisCache.getStatistics();
+        return new ExpiryCacheStatistics(null, statistics.getHits(), statistics.getMisses(), statistics.getPuts(), statistics.getDeletes());
+    }
+
+    @Override
+    public void releaseCaches(@Nonnull String cacheName) {
+        for (ExpiryCacheRegistry registry : cacheRegistries.values()) {
+            Collection<Cache> caches = registry.removeCaches(cacheName);
+            hotKeyCaches.values().removeIf(hotKeyCache -> caches.stream().anyMatch(cache -> CacheDecorator.unwrap(cache, HotKeyCache.class) == hotKeyCache));
+            leaseCaches.keySet().removeAll(caches);
+            caches.forEach(this::unbindMetrics);
+        }
+    }
+
+    @Override
+    public void clearCaches(@Nonnull String cacheName) {
+        Set<CacheManager> cacheManagers = new HashSet<>(cacheRegistries.keySet());
+        cacheManagers.add(super.getCacheManager());
+        for (CacheManager cacheManager : cacheManagers) {
+            ExpiryCacheRegistry registry = getCacheRegistry(cacheManager);
+            Cache cache = cacheManager.getCacheNames().contains(cacheName) ? cacheManager.getCache(cacheName) : null;
+            if (cache != null) {
+                // Clears through the decorators, so that their local copies and broadcasts follow
+                registry.getDecoratedCache(cache, element -> bindMetrics(decorateCache(element), null)).clear();
+            }
+            registry.getEntries().forEach((key, element) -> {
+                if (StringUtils.equals(key.getCacheName(), cacheName)) {
+                    element.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the caches that track hot keys, which expose the promotions and the hot keys
+     *
+     * @return the caches that track hot keys
+     */
+    @Nonnull
+    public Collection<HotKeyCache> getHotKeyCaches() {
+        return Collections.unmodifiableCollection(hotKeyCaches.values());
+    }
+
+    /**
+     * Returns the {@code cache} that guards the loads with the lease, if both the lease and the Redis cache are available, which is called once per cache
+     * <p>
+     * The lease is decorated by a single flight, so that the concurrent loads of this JVM acquire or poll the lease once
+     *
+     * @param cache the cache to decorate
+     *
+     * @return the {@code cache} that guards the loads with the lease, or the {@code cache} itself if not available
+     */
+    @Nonnull
+    protected Cache decorateLeaseCache(@Nonnull Cache cache) {
+        CacheLease lease = getCacheLease();
+        RedisCache redisCache = CacheDecorator.unwrap(cache, RedisCache.class);
+        if (lease == null || redisCache == null) {
+            return cache;
+        }
+        Cache leaseCache = new LeaseLoadingCache(cache, key -> createCacheKey(redisCache, key), lease, leaseTime, leaseWait, leasePollInterval);
+        return singleFlight ? new SingleFlightCache(leaseCache) : leaseCache;
+    }
+
+    /**
+     * Returns the lease that guards the loads across nodes
+     *
+     * @return the lease that guards the loads across nodes, or {@code null} if there is no {@link org.springframework.data.redis.connection.RedisConnectionFactory}
+     */
+    @Nullable
+    public CacheLease getCacheLease() {
+        CacheLease lease = cacheLease;
+        if (lease == null) {
+            RedisConnectionFactory connectionFactory = getConnectionFactory();
+            lease = (connectionFactory == null) ? null : new RedisCacheLease(connectionFactory);
+            cacheLease = lease;
+        }
+        return lease;
+    }
+
+    /**
+     * Returns the generation counters that stamp the key prefixes
+     *
+     * @return the generation counters that stamp the key prefixes, or {@code null} if there is no {@link org.springframework.data.redis.connection.RedisConnectionFactory}
+     */
+    @Nullable
+    public CacheGenerations getCacheGenerations() {
+        CacheGenerations generations = cacheGenerations;
+        if (generations == null) {
+            RedisConnectionFactory connectionFactory = getConnectionFactory();
+            generations = (connectionFactory == null) ? null : new RedisCacheGenerations(connectionFactory, generationLocalTtl);
+            cacheGenerations = generations;
+        }
+        return generations;
+    }
+
+    /**
+     * Returns the {@link org.springframework.data.redis.connection.RedisConnectionFactory} bean
+     *
+     * @return the {@link org.springframework.data.redis.connection.RedisConnectionFactory} bean, or {@code null} if absent
+     */
+    @Nullable
+    protected RedisConnectionFactory getConnectionFactory() {
+        return (beanFactory == null) ? null : beanFactory.getBeanProvider(RedisConnectionFactory.class).getIfAvailable();
+    }
+
+    /**
+     * Returns the registry of expiry caches for the {@code cacheManager}
+     * <p>
+     * The default configuration of a {@link org.springframework.data.redis.cache.RedisCacheManager} is immutable,
+     * so the registered caches stay valid as long as the cache manager, and a new cache manager gets a new registry
+     *
+     * @param cacheManager the cache manager that the caches belong to
+     *
+     * @return the registry of expiry caches for the {@code cacheManager}
+     */
+    @Nonnull
+    protected ExpiryCacheRegistry getCacheRegistry(@Nonnull CacheManager cacheManager) {
+        ExpiryCacheRegistry registry = cacheRegistries.get(cacheManager);
+        return (registry != null) ? registry : cacheRegistries.computeIfAbsent(cacheManager, manager -> new ExpiryCacheRegistry());
+    }
+
+    /**
+     * Returns a new cache that expires after the ttl of the {@code key}
+     * <p>
+     * The cache inherits the configuration of the same name from the {@code cacheManager} if present, otherwise the default one, such as key prefix and serializers
+     *
+     * @param cacheManager the cache manager that creates the cache
+     * @param key the key of the cache
+     *
+     * @return a new cache that expires after the ttl of the {@code key}
+     */
+    @Nonnull
+    @SneakyThrows
+    protected Cache createExpiryCache(@Nonnull RedisCacheManager cacheManager, @Nonnull ExpiryCacheKey key) {
+        RedisCacheConfiguration configuration = cacheManager.getCacheConfigurations().get(key.getCacheName());
+        if (configuration == null) {
+            configuration = (RedisCacheConfiguration) GET_DEFAULT_CACHE_CONFIGURATION.invoke(cacheManager);
+        }
+        configuration = ObjectUtils.defaultIfNull(configuration, RedisCacheConfiguration.defaultCacheConfig());
+        boolean expiring = key.getTtl() != null || isExpiring(configuration.getTtlFunction());
+        if (key.getTtl() == null) {
+            // Dynamic ttls are exposed per write, and fall back to the inherited ttl function
+            configuration = configuration.entryTtl(new ContextualTtlFunction(configuration.getTtlFunction()));
+        } else {
+            configuration = configuration.entryTtl(key.getTtl());
+        }
+        CacheGenerations generations = (generationalPrefix && expiring && configuration.usePrefix()) ? getCacheGenerations() : null;
+        String counterKey = null;
+        if (generations != null) {
+            String keyPrefix = configuration.getKeyPrefixFor(key.getCacheName());
+            String generationKey = keyPrefix + GENERATION_COUNTER_SUFFIX;
+            configuration = configuration.computePrefixWith(cacheName -> keyPrefix + GENERATION_MARKER + generations.getGeneration(generationKey) + GENERATION_SEPARATOR);
+            counterKey = generationKey;
+        }
+        configuration = applyValueCodec(configuration, key);
+        RedisCacheWriter cacheWriter = getCacheWriter(key.getCacheName());
+        RedisCache redisCache = (cacheWriter == null) ? (RedisCache) CREATE_REDIS_CACHE.invoke(cacheManager, key.getCacheName(), configuration) : (RedisCache) NEW_REDIS_CACHE.invoke(key.getCacheName(), cacheWriter, configuration);
+        return (generations == null) ? redisCache : new GenerationalCache(redisCache, generations, counterKey);
+    }
+
+    /**
+     * Returns the {@code cache} that refreshes its entries in background if the {@code key} has a refresh period, which is called once per cache
+     * <p>
+     * The refresh decorator is in front of the other decorators, so that the hits of the local levels, such as the tiered and the hot key ones, refresh too
+     *
+     * @param cache the decorated cache
+     * @param key the key of the cache
+     *
+     * @return the {@code cache} that refreshes its entries in background, or the {@code cache} itself if the {@code key} has no refresh period
+     */
+    @Nonnull
+    protected Cache decorateRefreshCache(@Nonnull Cache cache, @Nonnull ExpiryCacheKey key) {
+        if (key.getRefreshAfter() == null) {
+            return cache;
+        }
+        // The entries that written by other nodes are adopted with their remaining ttls
+        RedisCache redisCache = CacheDecorator.unwrap(cache, RedisCache.class);
+        RedisConnectionFactory connectionFactory = (redisCache == null) ? null : getConnectionFactory();
+        Function<Object, Duration> remainingTtlFunction = (connectionFactory == null) ? null : element -> getRemainingTtl(connectionFactory, redisCache, element);
+        return new RefreshAheadCache(cache, key.getRefreshAfter(), refreshExecutor, refreshTrackedEntries, remainingTtlFunction);
+    }
+
+    /**
+     * Returns whether the entries that written with the {@code ttlFunction} always expire or not
+     * <p>
+     * Only the constant ttls are recognized, the other functions may return zero for some entries, which never expire
+     *
+     * @param ttlFunction the ttl function of the cache
+     *
+     * @return whether the entries that written with the {@code ttlFunction} always expire or not
+     */
+    protected boolean isExpiring(@Nonnull RedisCacheWriter.TtlFunction ttlFunction) {
+        if (!StringUtils.equals(ttlFunction.getClass().getName(), FIXED_DURATION_TTL_FUNCTION)) {
+            return false;
+        }
+        Duration ttl = ttlFunction.getTimeToLive(StringUtils.EMPTY, null);
+        return !ttl.isNegative() && !ttl.isZero();
+    }
+
+    /**
+     * Returns whether the cache with the {@code cacheName} differs from the cache of the cache manager or not
+     *
+     * @param cacheName the name of the cache
+     * @param codec the name of the codec that specified by the method
+     *
+     * @return whether the cache with the {@code cacheName} differs from the cache of the cache manager or not
+     */
+    protected boolean isCustomized(@Nonnull String cacheName, @Nullable String codec) {
+        return generationalPrefix || compressionThreshold > 0 || getCodecName(cacheName, codec) != null || getWriterOptions(cacheName) != null;
+    }
+
+    /**
+     * Returns the {@code configuration} that serializes values with the codec of the {@code key}
+     *
+     * @param configuration the configuration of the cache
+     * @param key the key of the cache
+     *
+     * @return the {@code configuration} that serializes values with the codec of the {@code key}, or the {@code configuration} itself if neither a codec nor compression applies
+     */
+    @Nonnull
+    protected RedisCacheConfiguration applyValueCodec(@Nonnull RedisCacheConfiguration configuration, @Nonnull ExpiryCacheKey key) {
+        String codecName = getCodecName(key.getCacheName(), key.getCodec());
+        if (codecName == null && compressionThreshold <= 0) {
+            return configuration;
+        }
+        Map<String, CacheValueCodec> codecs = getValueCodecs();
+        CacheValueCodec configurationCodec = new SerializationPairCacheValueCodec(configuration.getValueSerializationPair());
+        CacheValueCodec writeCodec = (codecName == null) ? configurationCodec : codecs.get(codecName);
+        if (writeCodec == null) {
+            throw new IllegalStateException("Cannot find codec '" + codecName + "' for cache '" + key.getCacheName() + "'");
+        }
+        List<CacheValueCodec> readCodecs = new ArrayList<>(codecs.values());
+        readCodecs.add(configurationCodec);
+        return configuration.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new CodecRedisSerializer(writeCodec, readCodecs, compressionThreshold)));
+    }
+
+    /**
+     * Returns the codecs by name
+     *
+     * @return the codecs by name, which are the built-in codecs and the {@link com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec} beans
+     */
+    @Nonnull
+    public Map<String, CacheValueCodec> getValueCodecs() {
+        Map<String, CacheValueCodec> codecs = valueCodecs;
+        if (codecs == null) {
+            codecs = new LinkedHashMap<>();
+            ClassLoader classLoader = (beanFactory instanceof ConfigurableBeanFactory factory) ? factory.getBeanClassLoader() : null;
+            codecs.put(JdkCacheValueCodec.NAME, new JdkCacheValueCodec(classLoader));
+            codecs.put(CompactCacheValueCodec.NAME, new CompactCacheValueCodec(classLoader));
+            if (beanFactory != null) {
+                for (CacheValueCodec codec : beanFactory.getBeanProvider(CacheValueCodec.class).orderedStream().toList()) {
+                    codecs.put(codec.getName(), codec);
+                }
+            }
+            codecs = Collections.unmodifiableMap(codecs);
+            valueCodecs = codecs;
+        }
+        return codecs;
+    }
+
+    @Nullable
+    private String getCodecName(@Nonnull String cacheName, @Nullable String codec) {
+        if (StringUtils.isNotBlank(codec)) {
+            return codec;
+        }
+        String cacheCodec = cacheCodecs.get(cacheName);
+        return StringUtils.isNotBlank(cacheCodec) ? cacheCodec : StringUtils.trimToNull(defaultCodec);
+    }
+
+    /**
+     * Returns the writer for the cache with the {@code cacheName}, which is shared by the caches with equal writer options
+     *
+     * @param cacheName the name of the cache
+     *
+     * @return the writer for the cache with the {@code cacheName}, or {@code null} if the writer of the cache manager is used
+     * @throws IllegalStateException if the writer options of the {@code cacheName} are configured, but there is no {@link org.springframework.data.redis.connection.RedisConnectionFactory}
+     */
+    @Nullable
+    protected RedisCacheWriter getCacheWriter(@Nonnull String cacheName) {
+        RedisCacheWriterOptions options = getWriterOptions(cacheName);
+        if (options == null) {
+            return null;
+        }
+        RedisCacheWriter cacheWriter = cacheWriters.get(options);
+        if (cacheWriter != null) {
+            return cacheWriter;
+        }
+        RedisConnectionFactory connectionFactory = getConnectionFactory();
+        if (connectionFactory == null) {
+            // The writer of the cache manager would ignore the options, such as the batch strategy that avoids KEYS
+            throw new IllegalStateException("Cannot create the writer of cache '" + cacheName + "' with its writer options, since there is no RedisConnectionFactory bean");
+        }
+        return cacheWriters.computeIfAbsent(options, element -> element.createCacheWriter(connectionFactory));
+    }
+
+    /**
+     * Returns the writer options of the cache with the {@code cacheName}
+     *
+     * @param cacheName the name of the cache
+     *
+     * @return the writer options of the cache with the {@code cacheName}, or {@code null} if the writer of the cache manager is used
+     */
+    @Nullable
+    protected RedisCacheWriterOptions getWriterOptions(@Nonnull String cacheName) {
+        return cacheWriterOptions.getOrDefault(cacheName, defaultWriterOptions);
+    }
+
+    /**
+     * Returns the remaining ttl of the {@code key} in Redis
+     *
+     * @param connectionFactory the factory of Redis connections
+     * @param redisCache the cache that the key belongs to
+     * @param key the key of the cache
+     *
+     * @return the remaining ttl of the {@code key} in Redis, zero if the key never expires, negative if the key is absent, or {@code null} if unknown
+     */
+    @Nullable
+    @SneakyThrows
+    protected Duration getRemainingTtl(@Nonnull RedisConnectionFactory connectionFactory, @Nonnull RedisCache redisCache, @Nonnull Object key) {
+        byte[] cacheKey = (byte[]) SERIALIZE_CACHE_KEY.invoke(redisCache, createCacheKey(redisCache, key));
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long remaining = connection.keyCommands().pTtl(cacheKey);
+            if (remaining == null) {
+                return null;
+            }
+            return (remaining == KEY_WITHOUT_EXPIRY) ? Duration.ZERO : Duration.ofMillis(remaining);
+        }
+    }
+
+    @Nonnull
+    @SneakyThrows
+    protected String createCacheKey(@Nonnull RedisCache redisCache, @Nonnull Object key) {
+        return (String) CREATE_CACHE_KEY.invoke(redisCache, key);
+    }
 }
@@ -19,10 +19,13 @@ package com.yookue.springstarter.cacheexpiry.resolver.impl;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.cache.interceptor.BasicOperation;
 import org.springframework.cache.interceptor.CacheOperationInvocationContext;
 import org.springframework.util.CollectionUtils;
 import com.yookue.commonplexus.javaseutil.constant.CharVariantConst;
@@ -30,10 +33,10 @@ import com.yookue.commonplexus.javaseutil.util.StringUtilsWraps;
 import com.yookue.commonplexus.springutil.constant.SpringAttributeConst;
 import com.yookue.springstarter.cacheexpiry.resolver.CacheNameResolver;
 import jakarta.annotation.Nonnull;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 
 
 /**
@@ -46,7 +49,6 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
-@Setter
 @SuppressWarnings("unused")
 public class TargetClassNameResolver implements CacheNameResolver {
     private boolean shortClassName = false;
@@ -56,6 +58,9 @@ public class TargetClassNameResolver implements CacheNameResolver {
     private String namePrefix;
     private String nameSuffix;
 
+    @Getter(value = AccessLevel.NONE)
+    private final Map<BasicOperation, Map<Class<?>, Collection<String>>> cacheNames = new ConcurrentHashMap<>();
+
     public TargetClassNameResolver(boolean shortClassName) {
         this.shortClassName = shortClassName;
     }
@@ -80,6 +85,9 @@ public class TargetClassNameResolver implements CacheNameResolver {
 
     /**
      * Returns generated or resolved cache names for the {@code context}
+     * <p>
+     * The cache names only depend on the operation, the method and the target class, so they are generated once and memoized.
+     * Changing any setting of this resolver clears the memoized names
      *
      * @param context the cache invocation context
      *
@@ -91,9 +99,61 @@ public class TargetClassNameResolver implements CacheNameResolver {
     @SuppressWarnings({"JavadocDeclaration", "JavadocLinkAsPlainText"})
     public Collection<String> getCacheNames(@Nonnull CacheOperationInvocationContext<?> context) {
         Class<?> targetClazz = AopUtils.getTargetClass(context.getTarget());
+        Map<Class<?>, Collection<String>> classNames = cacheNames.get(context.getOperation());
+        Collection<String> result = (classNames == null) ? null : classNames.get(targetClazz);
+        if (result != null) {
+            return result;
+        }
+        result = generateCacheNames(context, targetClazz);
+        if (classNames == null) {
+            classNames = cacheNames.computeIfAbsent(context.getOperation(), operation -> new ConcurrentHashMap<>());
+        }
+        Collection<String> existing = classNames.putIfAbsent(targetClazz, result);
+        return (existing != null) ? existing : result;
+    }
+
+    public void setShortClassName(boolean shortClassName) {
+        this.shortClassName = shortClassName;
+        clearCacheNames();
+    }
+
+    public void setMethodName(boolean methodName) {
+        this.methodName = methodName;
+        clearCacheNames();
+    }
+
+    public void setIndentMethodName(boolean indentMethodName) {
+        this.indentMethodName = indentMethodName;
+        clearCacheNames();
+    }
+
+    public void setResolveSpelName(boolean resolveSpelName) {
+        this.resolveSpelName = resolveSpelName;
+        clearCacheNames();
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+        clearCacheNames();
+    }
+
+    public void setNameSuffix(String nameSuffix) {
+        this.nameSuffix = nameSuffix;
+        clearCacheNames();
+    }
+
+    /**
+     * Removes all the memoized cache names
+     */
+    public void clearCacheNames() {
+        cacheNames.clear();
+    }
+
+    @Nonnull
+    private Collection<String> generateCacheNames(@Nonnull CacheOperationInvocationContext<?> context, @Nonnull Class<?> targetClazz) {
         String clazzName = shortClassName ? targetClazz.getSimpleName() : targetClazz.getCanonicalName();
-        Set<String> cacheNames = context.getOperation().getCacheNames();
-        if (CollectionUtils.isEmpty(cacheNames)) {
+        Set<String> operationNames = context.getOperation().getCacheNames();
+        if (CollectionUtils.isEmpty(operationNames)) {
             StringBuilder builder = new StringBuilder();
             builder.append(StringUtils.defaultString(namePrefix));
             builder.append(clazzName);
@@ -102,15 +162,15 @@ public class TargetClassNameResolver implements CacheNameResolver {
                 builder.append(context.getMethod().getName());
             }
             builder.append(StringUtils.defaultString(nameSuffix));
-            return Collections.singleton(builder.toString());
+            return Collections.singleton(builder.toString().intern());
         }
         if (!resolveSpelName) {
-            return cacheNames;
+            return operationNames;
         }
-        return cacheNames.stream().map(element -> {
+        return operationNames.stream().map(element -> {
             String replaced = StringUtilsWraps.replaceAll(element, clazzName, SpringAttributeConst.CACHE_ROOT_TARGET_CLASS, SpringAttributeConst.CACHE_TARGET_CLASS);
             replaced = StringUtilsWraps.replaceAll(replaced, context.getMethod().getName(), SpringAttributeConst.CACHE_ROOT_METHOD_NAME, SpringAttributeConst.CACHE_METHOD_NAME);
-            return replaced;
-        }).collect(Collectors.toSet());
+            return replaced.intern();
+        }).collect(Collectors.toUnmodifiableSet());
     }
 }
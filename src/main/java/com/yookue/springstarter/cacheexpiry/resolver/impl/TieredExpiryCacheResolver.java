@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.resolver.impl;
+
+
+import java.time.Duration;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.TieredCache;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * {@link org.springframework.cache.interceptor.CacheResolver} for Redis, with a bounded local Caffeine level in front of each Redis cache
+ * <p>
+ * The local entries expire after {@code localMaxTtl}, capped by the remaining ttls of the Redis entries,
+ * which are looked up with {@code PTTL} when the local entries are filled by reads, at the cost of one extra round trip per fill.
+ * Writes fill the local entries with their own ttls, without the round trip
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.cache.TieredCache
+ */
+@Setter
+@SuppressWarnings("unused")
+public class TieredExpiryCacheResolver extends RedisExpiryCacheResolver {
+    /**
+     * The maximum number of local entries per cache
+     */
+    @Getter
+    private long localMaximumSize = 10000L;
+
+    /**
+     * The maximum ttl of local entries
+     */
+    @Getter
+    private Duration localMaxTtl = Duration.ofMinutes(1L);
+
+    public TieredExpiryCacheResolver(@Nonnull CacheManager manager) {
+        super(manager);
+    }
+
+    public TieredExpiryCacheResolver(@Nonnull CacheManager manager, boolean detectNameResolver) {
+        super(manager, detectNameResolver);
+    }
+
+    @Nonnull
+    @Override
+    protected Cache decorateCache(@Nonnull Cache cache) {
+        RedisCache redisCache = CacheDecorator.unwrap(cache, RedisCache.class);
+        if (redisCache == null) {
+            return super.decorateCache(cache);
+        }
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache = Caffeine.newBuilder().maximumSize(localMaximumSize).expireAfter(TieredCache.EXPIRY).build();
+        RedisCacheWriter.TtlFunction ttlFunction = redisCache.getCacheConfiguration().getTtlFunction();
+        RedisConnectionFactory connectionFactory = getConnectionFactory();
+        Function<Object, Duration> remainingTtlFunction = (connectionFactory == null) ? null : key -> getRemainingTtl(connectionFactory, redisCache, key);
+        return super.decorateCache(new TieredCache(cache, localCache, localMaxTtl, ttlFunction::getTimeToLive, remainingTtlFunction));
+    }
+}
@@ -48,16 +48,15 @@ public abstract class CacheExpiryDetectionUtils {
         if (!CollectionUtils.isEmpty(cacheNames)) {
             return cacheNames;
         }
-        String nameResolver = null;
-        CacheExpiry methodAnnotation = AnnotationUtils.getAnnotation(context.getMethod(), CacheExpiry.class);
-        if (methodAnnotation != null) {
-            nameResolver = methodAnnotation.nameResolver();
-        }
-        if (StringUtils.isBlank(nameResolver)) {
-            CacheExpiryConfig typeAnnotation = AnnotationUtils.getAnnotation(AopUtils.getTargetClass(context.getTarget()), CacheExpiryConfig.class);
-            if (typeAnnotation != null) {
-                nameResolver = typeAnnotation.nameResolver();
-            }
+        String nameResolver = detectNameResolver(context.getMethod(), AopUtils.getTargetClass(context.getTarget()));
+        return detectCacheNames(context, factory, nameResolver, detectResolver);
+    }
+
+    @Nullable
+    public static Collection<String> detectCacheNames(@Nonnull CacheOperationInvocationContext<?> context, @Nonnull BeanFactory factory, @Nullable String nameResolver, boolean detectResolver) {
+        Collection<String> cacheNames = context.getOperation().getCacheNames();
+        if (!CollectionUtils.isEmpty(cacheNames)) {
+            return cacheNames;
         }
         if (StringUtils.isBlank(nameResolver)) {
             if (detectResolver) {
@@ -73,6 +72,25 @@ public abstract class CacheExpiryDetectionUtils {
         }
     }
 
+    @Nullable
+    public static Collection<String> detectCacheNames(@Nonnull CacheOperationInvocationContext<?> context, @Nullable CacheNameResolver resolver) {
+        Collection<String> cacheNames = context.getOperation().getCacheNames();
+        if (!CollectionUtils.isEmpty(cacheNames)) {
+            return cacheNames;
+        }
+        return (resolver == null) ? null : resolver.getCacheNames(context);
+    }
+
+    @Nullable
+    public static String detectNameResolver(@Nonnull Method method, @Nonnull Class<?> targetClass) {
+        CacheExpiry methodAnnotation = AnnotationUtils.getAnnotation(method, CacheExpiry.class);
+        if (methodAnnotation != null && StringUtils.isNotBlank(methodAnnotation.nameResolver())) {
+            return methodAnnotation.nameResolver();
+        }
+        CacheExpiryConfig typeAnnotation = AnnotationUtils.getAnnotation(targetClass, CacheExpiryConfig.class);
+        return (typeAnnotation == null || StringUtils.isBlank(typeAnnotation.nameResolver())) ? null : typeAnnotation.nameResolver();
+    }
+
     @Nullable
     public static Duration detectCachePeriod(@Nonnull CacheOperationInvocationContext<?> context) {
         return detectCachePeriod(context.getMethod());
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.util;
+
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import com.yookue.springstarter.cacheexpiry.expression.ExpiryExpressionRootObject;
+
+
+/**
+ * Utilities for ttl expressions of cache expiry annotations
+ * <p>
+ * Expressions are compiled in {@link org.springframework.expression.spel.SpelCompilerMode#IMMEDIATE} mode, so that they run as bytecode after the first evaluation
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry#ttlExpression()
+ */
+@SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
+public abstract class CacheExpiryExpressionUtils {
+    public static final String RESULT_VARIABLE = "result";    // $NON-NLS-1$
+
+    private static final ExpressionParser EXPRESSION_PARSER = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, CacheExpiryExpressionUtils.class.getClassLoader()));
+    private static final ParameterNameDiscoverer NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    @Nullable
+    public static Expression parseExpression(@Nullable String expression) {
+        return StringUtils.isBlank(expression) ? null : EXPRESSION_PARSER.parseExpression(expression);
+    }
+
+    /**
+     * Returns the ttl that evaluated by the {@code expression}
+     * <p>
+     * The value of the expression can be a number in {@code unit}, a {@link java.time.Duration}, or a deadline of {@link java.time.Instant} or {@link java.util.Date}
+     *
+     * @param expression the parsed expression
+     * @param unit the time unit for numeric values
+     * @param rootObject the root object of the expression
+     *
+     * @return the ttl that evaluated by the {@code expression}, or {@code null} if the value is null or not positive
+     */
+    @Nullable
+    public static Duration evaluateTtl(@Nonnull Expression expression, @Nonnull ChronoUnit unit, @Nonnull ExpiryExpressionRootObject rootObject) {
+        Method method = rootObject.getMethod();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(rootObject, method, rootObject.getArgs(), NAME_DISCOVERER);
+        context.setVariable(RESULT_VARIABLE, rootObject.getResult());
+        Duration ttl = toDuration(expression.getValue(context), unit);
+        return (ttl == null || ttl.isNegative() || ttl.isZero()) ? null : ttl;
+    }
+
+    @Nullable
+    private static Duration toDuration(@Nullable Object value, @Nonnull ChronoUnit unit) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Duration duration) {
+            return duration;
+        }
+        if (value instanceof Number number) {
+            return unit.getDuration().multipliedBy(number.longValue());
+        }
+        if (value instanceof Instant instant) {
+            return Duration.between(Instant.now(), instant);
+        }
+        if (value instanceof Date date) {
+            return Duration.between(Instant.now(), date.toInstant());
+        }
+        throw new IllegalStateException("Unsupported ttl expression value type: " + value.getClass().getName());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry.util;
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Utilities for binding non-public members of third-party classes to method handles and var handles
+ * <p>
+ * The handles are expected to be resolved once into constants, so that an incompatible library version fails fast at startup
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
+public abstract class MethodHandleUtils {
+    @Nonnull
+    public static MethodHandle findVirtual(@Nonnull Class<?> clazz, @Nonnull String name, @Nonnull Class<?> returnType, @Nonnull Class<?>... paramTypes) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup()).findVirtual(clazz, name, MethodType.methodType(returnType, paramTypes));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot bind method '" + name + "' of " + clazz.getName() + ", the version of the library may be incompatible", ex);
+        }
+    }
+
+    @Nonnull
+    public static MethodHandle findConstructor(@Nonnull Class<?> clazz, @Nonnull Class<?>... paramTypes) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup()).findConstructor(clazz, MethodType.methodType(void.class, paramTypes));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot bind constructor of " + clazz.getName() + ", the version of the library may be incompatible", ex);
+        }
+    }
+
+    @Nonnull
+    public static VarHandle findVarHandle(@Nonnull Class<?> clazz, @Nonnull String name, @Nonnull Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup()).findVarHandle(clazz, name, type);
+        } catch (NoSuchFieldException | IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot bind field '" + name + "' of " + clazz.getName() + ", the version of the library may be incompatible", ex);
+        }
+    }
+}
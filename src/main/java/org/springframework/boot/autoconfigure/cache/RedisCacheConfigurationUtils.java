@@ -17,11 +17,12 @@
 package org.springframework.boot.autoconfigure.cache;
 
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import com.yookue.springstarter.cacheexpiry.util.MethodHandleUtils;
 
 
 /**
@@ -32,6 +33,9 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
  */
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
 public abstract class RedisCacheConfigurationUtils {
+    private static final MethodHandle CREATE_CONFIGURATION = MethodHandleUtils.findVirtual(org.springframework.boot.autoconfigure.cache.RedisCacheConfiguration.class, "createConfiguration", RedisCacheConfiguration.class, CacheProperties.class, ClassLoader.class)
+        .bindTo(new org.springframework.boot.autoconfigure.cache.RedisCacheConfiguration());    // $NON-NLS-1$
+
     @Nonnull
     public static RedisCacheConfiguration createConfiguration(@Nonnull CacheProperties properties) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException {
         return createConfiguration(properties, null);
@@ -39,7 +43,10 @@ public abstract class RedisCacheConfigurationUtils {
 
     @Nonnull
     public static RedisCacheConfiguration createConfiguration(@Nonnull CacheProperties properties, @Nullable ClassLoader loader) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException {
-        org.springframework.boot.autoconfigure.cache.RedisCacheConfiguration configuration = new org.springframework.boot.autoconfigure.cache.RedisCacheConfiguration();
-        return (RedisCacheConfiguration) MethodUtils.invokeMethod(configuration, true, "createConfiguration", properties, loader);    // $NON-NLS-1$
+        try {
+            return (RedisCacheConfiguration) CREATE_CONFIGURATION.invoke(properties, loader);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
     }
 }
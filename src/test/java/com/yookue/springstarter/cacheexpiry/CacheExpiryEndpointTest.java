@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.config.CacheExpiryAutoConfiguration;
+import com.yookue.springstarter.cacheexpiry.endpoint.CacheExpiryEndpoint;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata;
+import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver;
+import jakarta.annotation.Nonnull;
+
+
+class CacheExpiryEndpointTest {
+    private final MockExpiryTarget target = new MockExpiryTarget();
+    private CaffeineExpiryCacheResolver resolver;
+    private CacheExpiryEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().expireAfterWrite(1L, TimeUnit.HOURS));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        resolver = new CaffeineExpiryCacheResolver(cacheManager);
+        resolver.setBeanFactory(beanFactory);
+        beanFactory.registerSingleton(CacheExpiryAutoConfiguration.CACHE_RESOLVER, resolver);
+        endpoint = new CacheExpiryEndpoint(beanFactory.getBeanProvider(ExpiryCacheResolver.class));
+    }
+
+    @Test
+    void readCaches() {
+        resolveCache("shortTerm", "captcha").put("13800138000", "123456");
+        resolveCache("dynamicTerm", "token", 5L).put("short", 5L);
+        List<CacheExpiryEndpoint.ExpiryCacheDescriptor> caches = endpoint.caches().getCaches();
+        Assertions.assertEquals(2, caches.size());
+        CacheExpiryEndpoint.ExpiryCacheDescriptor captcha = caches.get(0);
+        Assertions.assertEquals("captcha", captcha.getName());
+        Assertions.assertEquals("caffeine", captcha.getBackend());
+        Assertions.assertEquals("PT3M", captcha.getTtl());
+        Assertions.assertEquals(CacheExpiryMetadata.TtlSource.ANNOTATION, captcha.getTtlSource());
+        Assertions.assertTrue(captcha.getMethods().get(0).endsWith("MockExpiryTarget.shortTerm"));
+        Assertions.assertEquals(1L, captcha.getStatistics().getSize());
+        CacheExpiryEndpoint.ExpiryCacheDescriptor token = caches.get(1);
+        Assertions.assertNull(token.getTtl());
+        Assertions.assertEquals(CacheExpiryMetadata.TtlSource.EXPRESSION, token.getTtlSource());
+        Assertions.assertNull(endpoint.cache("report"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void overrideTtl() {
+        Cache declared = resolveCache("shortTerm", "captcha");
+        CacheExpiryEndpoint.ExpiryCachesDescriptor updated = endpoint.updateCache("captcha", Duration.ofMinutes(10L));
+        Assertions.assertEquals("PT10M", updated.getTtlOverrides().get("captcha"));
+        Assertions.assertTrue(updated.getCaches().isEmpty());
+        Cache overridden = resolveCache("shortTerm", "captcha");
+        Assertions.assertNotSame(declared, overridden);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) overridden.getNativeCache();
+        Assertions.assertEquals(Duration.ofMinutes(10L), nativeCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+        CacheExpiryEndpoint.ExpiryCachesDescriptor captcha = endpoint.cache("captcha");
+        Assertions.assertNotNull(captcha);
+        Assertions.assertEquals(CacheExpiryMetadata.TtlSource.OVERRIDE, captcha.getCaches().get(0).getTtlSource());
+        endpoint.updateCache("captcha", null);
+        Assertions.assertTrue(endpoint.caches().getTtlOverrides().isEmpty());
+        Assertions.assertNotSame(overridden, resolveCache("shortTerm", "captcha"));
+        Assertions.assertEquals("PT3M", endpoint.caches().getCaches().get(0).getTtl());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void overrideExpressionTtl() {
+        endpoint.updateCache("token", Duration.ofMinutes(1L));
+        Cache cache = resolveCache("dynamicTerm", "token", 90L);
+        cache.put("long", 90L);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+        com.github.benmanes.caffeine.cache.Policy.VarExpiration<Object, Object> expiration = nativeCache.policy().expireVariably().orElseThrow();
+        Assertions.assertTrue(expiration.getExpiresAfter("long", TimeUnit.SECONDS).orElseThrow() <= 60L);
+    }
+
+    @Test
+    void clearCache() {
+        Cache cache = resolveCache("shortTerm", "captcha");
+        cache.put("13800138000", "123456");
+        endpoint.clearCache("captcha");
+        Assertions.assertNull(cache.get("13800138000"));
+    }
+
+    @Test
+    void readLegacyResolver() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(CacheExpiryAutoConfiguration.CACHE_RESOLVER, resolver);
+        beanFactory.registerSingleton("legacyCacheResolver", new MockLegacyResolver());
+        CacheExpiryEndpoint legacyEndpoint = new CacheExpiryEndpoint(beanFactory.getBeanProvider(ExpiryCacheResolver.class));
+        resolveCache("shortTerm", "captcha");
+        Assertions.assertEquals(1, legacyEndpoint.caches().getCaches().size());
+        Assertions.assertEquals("PT10M", legacyEndpoint.updateCache("captcha", Duration.ofMinutes(10L)).getTtlOverrides().get("captcha"));
+        Assertions.assertEquals(Duration.ofMinutes(10L), resolver.getMetadataIndex().getTtlOverrides().getTtl("captcha"));
+        legacyEndpoint.clearCache("captcha");
+        // The overrides are rejected if no resolver takes them, instead of being dropped silently
+        DefaultListableBeanFactory legacyFactory = new DefaultListableBeanFactory();
+        legacyFactory.registerSingleton("legacyCacheResolver", new MockLegacyResolver());
+        CacheExpiryEndpoint onlyLegacyEndpoint = new CacheExpiryEndpoint(legacyFactory.getBeanProvider(ExpiryCacheResolver.class));
+        Assertions.assertTrue(onlyLegacyEndpoint.caches().getTtlOverrides().isEmpty());
+        Assertions.assertThrows(InvalidEndpointRequestException.class, () -> onlyLegacyEndpoint.updateCache("captcha", Duration.ofMinutes(10L)));
+    }
+
+    private Cache resolveCache(String methodName, String cacheName, Object... args) {
+        Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(target, methodName, cacheName, args));
+        Assertions.assertEquals(1, caches.size());
+        return caches.iterator().next();
+    }
+
+
+    /**
+     * Resolver that only implements the methods of {@link org.springframework.cache.interceptor.CacheResolver} and {@link org.springframework.beans.factory.BeanFactoryAware}
+     */
+    static class MockLegacyResolver implements ExpiryCacheResolver {
+        @Override
+        public void setBeanFactory(@Nonnull BeanFactory beanFactory) {
+        }
+
+        @Nonnull
+        @Override
+        public Collection<? extends Cache> resolveCaches(@Nonnull CacheOperationInvocationContext<?> context) {
+            return Collections.emptyList();
+        }
+    }
+
+
+    static class MockExpiryTarget {
+        @CacheExpiry(ttl = 3, unit = ChronoUnit.MINUTES)
+        public String shortTerm() {
+            return "shortTerm";
+        }
+
+        @CacheExpiry(ttlExpression = "#result", unit = ChronoUnit.MINUTES)
+        public long dynamicTerm(long minutes) {
+            return minutes;
+        }
+    }
+}
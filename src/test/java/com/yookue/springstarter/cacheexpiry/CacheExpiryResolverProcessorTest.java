@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.MapPropertySource;
+import com.yookue.commonplexus.springutil.enumeration.CacheManagerType;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.config.CacheExpiryAutoConfiguration;
+import com.yookue.springstarter.cacheexpiry.processor.CacheExpiryResolverProcessor;
+import com.yookue.springstarter.cacheexpiry.property.CacheExpiryProperties;
+import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
+
+
+class CacheExpiryResolverProcessorTest {
+    private static final String TTL_PROPERTY = CacheExpiryAutoConfiguration.PROPERTIES_PREFIX + ".ttls.captcha";
+
+    private final Map<String, Object> properties = new HashMap<>();
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        properties.put(TTL_PROPERTY, "5m");
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("mockTtls", properties));
+        context.register(MockCachingConfiguration.class);
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void supportEventTypes() {
+        CacheExpiryResolverProcessor processor = context.getBean(CacheExpiryResolverProcessor.class);
+        Assertions.assertTrue(processor.supportsEventType(ResolvableType.forClass(ContextRefreshedEvent.class)));
+        Assertions.assertFalse(processor.supportsEventType(ResolvableType.forClass(ContextClosedEvent.class)));
+        Assertions.assertFalse(processor.supportsEventType(ResolvableType.forClass(PayloadApplicationEvent.class)));
+    }
+
+    @Test
+    void reloadPropertyTtls() {
+        // The ttl of the environment is applied when the context refreshes
+        Cache first = resolveCache();
+        Assertions.assertEquals(Duration.ofMinutes(5L), getExpiresAfterWrite(first));
+        // The other events leave the ttls and the caches alone
+        properties.put(TTL_PROPERTY, "7m");
+        context.publishEvent("changed");
+        Assertions.assertSame(first, resolveCache());
+        // The next refresh applies the changed ttl, and releases the caches of the previous ttl
+        context.publishEvent(new ContextRefreshedEvent(context));
+        Cache second = resolveCache();
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(Duration.ofMinutes(7L), getExpiresAfterWrite(second));
+    }
+
+    private Cache resolveCache() {
+        ExpiryCacheResolver resolver = context.getBean(CacheExpiryAutoConfiguration.CACHE_RESOLVER, ExpiryCacheResolver.class);
+        Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(context.getBean(MockExpiryTarget.class), "shortTerm", "captcha"));
+        Assertions.assertEquals(1, caches.size());
+        return caches.iterator().next();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Duration getExpiresAfterWrite(Cache cache) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+        return nativeCache.policy().expireAfterWrite().map(com.github.benmanes.caffeine.cache.Policy.FixedExpiration::getExpiresAfter).orElse(null);
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableCaching
+    static class MockCachingConfiguration {
+        @Bean
+        static CacheExpiryResolverProcessor cacheExpiryResolverProcessor() {
+            return new CacheExpiryResolverProcessor(new CacheExpiryProperties(), CacheManagerType.CAFFEINE);
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager();
+        }
+
+        @Bean
+        MockExpiryTarget mockExpiryTarget() {
+            return new MockExpiryTarget();
+        }
+    }
+
+
+    static class MockExpiryTarget {
+        @CacheExpiry(ttl = 3, unit = ChronoUnit.MINUTES)
+        public String shortTerm() {
+            return "shortTerm";
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheEvictOperation;
+import org.springframework.cache.interceptor.CachePutOperation;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.ReflectionUtils;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidation;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationBus;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationCodec;
+import com.yookue.springstarter.cacheexpiry.invalidation.CacheInvalidationMessage;
+import com.yookue.springstarter.cacheexpiry.invalidation.InMemoryInvalidationChannel;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadata;
+import com.yookue.springstarter.cacheexpiry.metadata.CacheExpiryMetadataIndex;
+import com.yookue.springstarter.cacheexpiry.metrics.MicrometerCacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver;
+import jakarta.annotation.Nonnull;
+
+
+class CaffeineExpiryCacheResolverTest {
+    private final MockExpiryTarget target = new MockExpiryTarget();
+    private CaffeineCacheManager cacheManager;
+    private CaffeineExpiryCacheResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().expireAfterWrite(1L, TimeUnit.HOURS));
+        resolver = new CaffeineExpiryCacheResolver(cacheManager);
+        resolver.setBeanFactory(new DefaultListableBeanFactory());
+    }
+
+    @Test
+    void resolveSameCache() {
+        Cache first = resolveCache("shortTerm", "captcha");
+        first.put("13800138000", "123456");
+        Cache second = resolveCache("shortTerm", "captcha");
+        Assertions.assertSame(first, second);
+        Cache.ValueWrapper wrapper = second.get("13800138000");
+        Assertions.assertNotNull(wrapper);
+        Assertions.assertEquals("123456", wrapper.get());
+    }
+
+    @Test
+    void resolvePlainEviction() {
+        Cache shortTerm = resolveCache("shortTerm", "captcha");
+        Cache longTerm = resolveCache("longTerm", "captcha");
+        shortTerm.put("13800138000", "123456");
+        longTerm.put("13800138000", "654321");
+        longTerm.put("13900139000", "654321");
+        // The evictions without @CacheExpiry reach the caches of all the ttls
+        CacheEvictOperation.Builder evictBuilder = new CacheEvictOperation.Builder();
+        evictBuilder.setName("plainEvict");
+        evictBuilder.setCacheName("captcha");
+        resolveCaches(new MockInvocationContext(target, "plainEvict", evictBuilder.build())).forEach(cache -> cache.evict("13800138000"));
+        Assertions.assertNull(shortTerm.get("13800138000"));
+        Assertions.assertNull(longTerm.get("13800138000"));
+        Assertions.assertEquals("654321", longTerm.get("13900139000", String.class));
+        evictBuilder.setCacheWide(true);
+        resolveCaches(new MockInvocationContext(target, "plainEvict", evictBuilder.build())).forEach(Cache::clear);
+        Assertions.assertNull(longTerm.get("13900139000"));
+        // So do the writes without @CacheExpiry
+        CachePutOperation.Builder putBuilder = new CachePutOperation.Builder();
+        putBuilder.setName("plainEvict");
+        putBuilder.setCacheName("captcha");
+        resolveCaches(new MockInvocationContext(target, "plainEvict", putBuilder.build())).forEach(cache -> cache.put("13800138000", "888888"));
+        Assertions.assertEquals("888888", shortTerm.get("13800138000", String.class));
+        Assertions.assertEquals("888888", longTerm.get("13800138000", String.class));
+    }
+
+    @Test
+    void resolvePlainVariableEviction() {
+        resolver.setVariableExpiry(true);
+        Cache shortTerm = resolveCache("shortTerm", "captcha");
+        shortTerm.put("13800138000", "123456");
+        CacheEvictOperation.Builder evictBuilder = new CacheEvictOperation.Builder();
+        evictBuilder.setName("plainEvict");
+        evictBuilder.setCacheName("captcha");
+        Collection<? extends Cache> caches = resolveCaches(new MockInvocationContext(target, "plainEvict", evictBuilder.build()));
+        // The views of variable expiry share one native cache, which is evicted once
+        Assertions.assertEquals(2, caches.size());
+        caches.forEach(cache -> cache.evict("13800138000"));
+        Assertions.assertNull(shortTerm.get("13800138000"));
+    }
+
+    @Test
+    void resolveDistinctTtl() {
+        Cache shortTerm = resolveCache("shortTerm", "captcha");
+        Cache longTerm = resolveCache("longTerm", "captcha");
+        Assertions.assertNotSame(shortTerm, longTerm);
+        Assertions.assertSame(longTerm, resolveCache("longTerm", "captcha"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolveVariableExpiry() {
+        resolver.setVariableExpiry(true);
+        Cache shortTerm = resolveCache("shortTerm", "captcha");
+        Cache longTerm = resolveCache("longTerm", "captcha");
+        Assertions.assertSame(shortTerm.getNativeCache(), longTerm.getNativeCache());
+        shortTerm.put("short", "123456");
+        longTerm.put("long", "654321");
+        Assertions.assertEquals("654321", shortTerm.get("long", String.class));
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) shortTerm.getNativeCache();
+        com.github.benmanes.caffeine.cache.Policy.VarExpiration<Object, Object> expiration = nativeCache.policy().expireVariably().orElseThrow();
+        Assertions.assertTrue(expiration.getExpiresAfter("short", TimeUnit.MINUTES).orElseThrow() <= 3L);
+        Assertions.assertTrue(expiration.getExpiresAfter("long", TimeUnit.MINUTES).orElseThrow() > 60L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolveExpressionExpiry() {
+        Cache shortTerm = resolveCache("dynamicTerm", "token", 5L);
+        Cache longTerm = resolveCache("dynamicTerm", "token", 90L);
+        Assertions.assertSame(shortTerm.getNativeCache(), longTerm.getNativeCache());
+        shortTerm.put("short", 5L);
+        longTerm.put("long", 90L);
+        Assertions.assertEquals(90L, shortTerm.get("long", Long.class));
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) shortTerm.getNativeCache();
+        com.github.benmanes.caffeine.cache.Policy.VarExpiration<Object, Object> expiration = nativeCache.policy().expireVariably().orElseThrow();
+        Assertions.assertTrue(expiration.getExpiresAfter("short", TimeUnit.MINUTES).orElseThrow() <= 5L);
+        Assertions.assertTrue(expiration.getExpiresAfter("long", TimeUnit.MINUTES).orElseThrow() > 60L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolveAsyncRetrieval() {
+        cacheManager.setAsyncCacheMode(true);
+        Cache shortTerm = resolveCache("dynamicTerm", "token", 5L);
+        Cache longTerm = resolveCache("dynamicTerm", "token", 90L);
+        Assertions.assertEquals(5L, shortTerm.retrieve("short", () -> CompletableFuture.supplyAsync(() -> 5L)).join());
+        Assertions.assertEquals(90L, longTerm.retrieve("long", () -> CompletableFuture.supplyAsync(() -> 90L)).join());
+        Assertions.assertEquals(5L, longTerm.retrieve("short", () -> CompletableFuture.completedFuture(0L)).join());
+        Assertions.assertEquals(90L, ((Cache.ValueWrapper) shortTerm.retrieve("long").join()).get());
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) shortTerm.getNativeCache();
+        com.github.benmanes.caffeine.cache.Policy.VarExpiration<Object, Object> expiration = nativeCache.policy().expireVariably().orElseThrow();
+        Assertions.assertTrue(expiration.getExpiresAfter("short", TimeUnit.MINUTES).orElseThrow() <= 5L);
+        Assertions.assertTrue(expiration.getExpiresAfter("long", TimeUnit.MINUTES).orElseThrow() > 60L);
+        Cache fixedTerm = resolveCache("shortTerm", "captcha");
+        Assertions.assertEquals("123456", fixedTerm.retrieve("13800138000", () -> CompletableFuture.completedFuture("123456")).join());
+    }
+
+    @Test
+    void resolveMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        resolver.setCacheMetrics(new MicrometerCacheExpiryMetrics(registry));
+        Cache cache = resolveCache("shortTerm", "captcha");
+        Assertions.assertNull(cache.get("13800138000"));
+        cache.put("13800138000", "123456");
+        Assertions.assertNotNull(cache.get("13800138000"));
+        Assertions.assertEquals(1.0D, registry.get("cache.gets").tags("cache", "captcha", "backend", "caffeine", "ttl", "PT3M", "result", "hit").functionCounter().count());
+        Assertions.assertEquals(1.0D, registry.get("cache.gets").tags("cache", "captcha", "result", "miss").functionCounter().count());
+        Assertions.assertEquals(1L, registry.get(MicrometerCacheExpiryMetrics.RESOLUTION_METER).tag("method", "shortTerm").timer().count());
+        resolver.releaseCaches("captcha");
+        Assertions.assertTrue(registry.find("cache.gets").tag("cache", "captcha").meters().isEmpty());
+        Assertions.assertNull(resolveCache("shortTerm", "captcha").get("13800138000"));
+        Assertions.assertEquals(1.0D, registry.get("cache.gets").tags("cache", "captcha", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void indexMissingTtl() {
+        CacheExpiryMetadataIndex metadataIndex = new CacheExpiryMetadataIndex();
+        IllegalStateException ex = Assertions.assertThrows(IllegalStateException.class, () -> metadataIndex.register(MockMissingTtlTarget.class));
+        Assertions.assertTrue(ex.getMessage().contains("MockMissingTtlTarget.report"));
+        Assertions.assertTrue(metadataIndex.getMetadata().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolvePropertyTtls() {
+        resolveCache("shortTerm", "captcha");
+        CacheExpiryMetadataIndex metadataIndex = resolver.getMetadataIndex();
+        CacheExpiryMetadata metadata = metadataIndex.getMetadata(ReflectionUtils.findMethod(MockExpiryTarget.class, "shortTerm"), MockExpiryTarget.class);
+        Assertions.assertNotNull(metadata);
+        Assertions.assertEquals(Set.of("captcha"), metadataIndex.applyPropertyTtls(Map.of("*MockExpiryTarget.shortTerm", Duration.ofMinutes(7L))));
+        Assertions.assertTrue(metadataIndex.applyPropertyTtls(Map.of("*MockExpiryTarget.shortTerm", Duration.ofMinutes(7L))).isEmpty());
+        resolver.releaseCaches("captcha");
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) resolveCache("shortTerm", "captcha").getNativeCache();
+        Assertions.assertEquals(Duration.ofMinutes(7L), nativeCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+        Assertions.assertEquals(CacheExpiryMetadata.TtlSource.PROPERTY, metadata.getTtlSource("captcha"));
+        // Cache names win over method patterns
+        Map<String, Duration> ttls = new LinkedHashMap<>();
+        ttls.put("*MockExpiryTarget.shortTerm", Duration.ofMinutes(7L));
+        ttls.put("captcha", Duration.ofMinutes(9L));
+        Assertions.assertEquals(Set.of("captcha"), metadataIndex.applyPropertyTtls(ttls));
+        Assertions.assertEquals(Duration.ofMinutes(9L), metadata.getCacheKey("captcha").getTtl());
+        // Runtime overrides win over properties
+        metadataIndex.getTtlOverrides().setTtl("captcha", Duration.ofMinutes(1L));
+        Assertions.assertEquals(Duration.ofMinutes(1L), metadata.getCacheKey("captcha").getTtl());
+        Assertions.assertEquals(CacheExpiryMetadata.TtlSource.OVERRIDE, metadata.getTtlSource("captcha"));
+        metadataIndex.getTtlOverrides().removeTtl("captcha");
+        Assertions.assertEquals(Set.of("captcha"), metadataIndex.applyPropertyTtls(null));
+        Assertions.assertEquals(Duration.ofMinutes(3L), metadata.getCacheKey("captcha").getTtl());
+        Assertions.assertEquals(CacheExpiryMetadata.TtlSource.ANNOTATION, metadata.getTtlSource("captcha"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolveJitterExpiry() {
+        Cache cache = resolveCache("jitterTerm", "report");
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "report");
+        }
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+        com.github.benmanes.caffeine.cache.Policy.VarExpiration<Object, Object> expiration = nativeCache.policy().expireVariably().orElseThrow();
+        Set<Long> expiries = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            long expiry = expiration.getExpiresAfter(i, TimeUnit.SECONDS).orElseThrow();
+            Assertions.assertTrue(expiry >= 299L && expiry <= 600L);
+            expiries.add(expiry);
+        }
+        Assertions.assertTrue(expiries.size() > 1);
+    }
+
+    @Test
+    void resolveRefreshExpiry() {
+        AtomicLong ticker = new AtomicLong();
+        cacheManager.setCaffeine(Caffeine.newBuilder().ticker(ticker::get).executor(Runnable::run));
+        Cache cache = resolveCache("refreshTerm", "counter");
+        cache.put("counter", target.refreshTerm());
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(40L));
+        Assertions.assertEquals(1, cache.get("counter", Integer.class));
+        // The first read past the refresh period reloads the value on the executor
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(20L));
+        Assertions.assertNotNull(cache.get("counter"));
+        Assertions.assertEquals(2, cache.get("counter", Integer.class));
+    }
+
+    @Test
+    void resolveInvalidation() throws Exception {
+        AtomicInteger messages = new AtomicInteger();
+        InMemoryInvalidationChannel channel = new InMemoryInvalidationChannel() {
+            @Override
+            public void publish(@Nonnull CacheInvalidationMessage message) {
+                messages.incrementAndGet();
+                super.publish(message);
+            }
+        };
+        // Two nodes that share one channel
+        CacheInvalidationBus firstBus = new CacheInvalidationBus(channel, Duration.ofSeconds(10L), 500);
+        CacheInvalidationBus secondBus = new CacheInvalidationBus(channel, Duration.ofSeconds(10L), 500);
+        resolver.setInvalidationBus(firstBus);
+        CaffeineExpiryCacheResolver secondResolver = new CaffeineExpiryCacheResolver(new CaffeineCacheManager());
+        secondResolver.setBeanFactory(new DefaultListableBeanFactory());
+        secondResolver.setInvalidationBus(secondBus);
+        try {
+            Cache first = resolveCache("longTerm", "report");
+            Cache second = resolveCache(secondResolver, "longTerm", "report");
+            for (int i = 0; i < 100; i++) {
+                first.put(i, "first");
+                second.put(i, "second");
+            }
+            for (int i = 0; i < 100; i++) {
+                first.evict(i % 10);
+            }
+            firstBus.flush();
+            Assertions.assertEquals(1, messages.get());
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertNull(second.get(i));
+            }
+            Assertions.assertEquals("second", second.get(10, String.class));
+            second.clear();
+            secondBus.flush();
+            Assertions.assertNull(first.get(10));
+        } finally {
+            firstBus.destroy();
+            secondBus.destroy();
+        }
+    }
+
+    @Test
+    void encodeInvalidation() {
+        CacheInvalidationCodec codec = new CacheInvalidationCodec();
+        List<CacheInvalidation> invalidations = List.of(CacheInvalidation.ofKey("report", "key"), CacheInvalidation.ofKey("report", 1L), CacheInvalidation.ofKey("report", 2),
+            CacheInvalidation.ofKey("token", new SimpleKey("a", "b")), CacheInvalidation.ofKey("token", new SimpleKey("c")), CacheInvalidation.ofClear("session"));
+        CacheInvalidationMessage message = codec.decode(codec.encode(new CacheInvalidationMessage("node", invalidations)));
+        Assertions.assertEquals("node", message.getOrigin());
+        // The composite keys cannot be rebuilt, so they are sent as one clear
+        Assertions.assertEquals(List.of(CacheInvalidation.ofKey("report", "key"), CacheInvalidation.ofKey("report", 1L), CacheInvalidation.ofKey("report", 2),
+            CacheInvalidation.ofClear("token"), CacheInvalidation.ofClear("session")), message.getInvalidations());
+        byte[] serialized = RedisSerializer.java().serialize(new CacheInvalidationMessage("node", invalidations));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> codec.decode(Objects.requireNonNull(serialized)));
+        byte[] encoded = codec.encode(new CacheInvalidationMessage("node", invalidations));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> codec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    private Cache resolveCache(String methodName, String cacheName, Object... args) {
+        return resolveCache(resolver, methodName, cacheName, args);
+    }
+
+    private Collection<? extends Cache> resolveCaches(MockInvocationContext context) {
+        return resolver.resolveCaches(context);
+    }
+
+    private Cache resolveCache(CaffeineExpiryCacheResolver resolver, String methodName, String cacheName, Object... args) {
+        Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(target, methodName, cacheName, args));
+        Assertions.assertEquals(1, caches.size());
+        return caches.iterator().next();
+    }
+
+
+    static class MockMissingTtlTarget {
+        @CacheExpiry(unit = ChronoUnit.MINUTES, lease = true)
+        public String report() {
+            return "report";
+        }
+    }
+
+
+    static class MockExpiryTarget {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @CacheExpiry(ttl = 3, unit = ChronoUnit.MINUTES)
+        public String shortTerm() {
+            return "shortTerm";
+        }
+
+        @CacheExpiry(ttl = 2, unit = ChronoUnit.HOURS)
+        public String longTerm() {
+            return "longTerm";
+        }
+
+        @CacheExpiry(ttl = 10, unit = ChronoUnit.MINUTES, jitter = "50%")
+        public String jitterTerm() {
+            return "jitterTerm";
+        }
+
+        @CacheExpiry(ttl = 60000, unit = ChronoUnit.MILLIS, refreshAfter = 50)
+        public int refreshTerm() {
+            return counter.incrementAndGet();
+        }
+
+        @CacheExpiry(ttlExpression = "#result", unit = ChronoUnit.MINUTES)
+        public long dynamicTerm(long minutes) {
+            return minutes;
+        }
+
+        public void plainEvict() {
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.registry.ExpiryCacheKey;
+import com.yookue.springstarter.cacheexpiry.resolver.ExpiryCacheResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.CaffeineExpiryCacheResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.JcacheExpiryCacheResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.RedisExpiryCacheResolver;
+import jakarta.annotation.Nonnull;
+import lombok.SneakyThrows;
+
+
+/**
+ * Stress tests of the expiry cache resolvers, with concurrent first calls and steady-state calls on every backend
+ * <p>
+ * The backends are local stand-ins, Caffeine, Ehcache and an in-memory Redis cache writer, so that the tests run without servers
+ */
+class ExpiryCacheResolverStressTest {
+    private static final int THREADS = 32;
+    private static final int FIRST_CALLS = 512;
+    private static final int STEADY_CALLS = 32768;
+    private static final int KEYS = 16;
+    private static final int RESOLVERS = 8;
+    private static final int VARIABLE_NAMES = 256;
+    private static final long LOAD_MILLIS = 20L;
+    // Far below what any backend achieves here, so that only serialized hot paths fall below it
+    private static final double MINIMUM_THROUGHPUT = 20000.0D;
+    private static final String EHCACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+    private static final String[] METHOD_NAMES = {"constantTerm", "longTerm", "dynamicTerm"};
+
+    private final MockExpiryTarget target = new MockExpiryTarget();
+    private final List<javax.cache.CacheManager> originCacheManagers = new ArrayList<>();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        originCacheManagers.forEach(javax.cache.CacheManager::close);
+    }
+
+    @Test
+    void raceCaffeineFirstCalls() throws Exception {
+        raceFirstCalls(createCaffeineResolver(new CaffeineCacheManager()));
+    }
+
+    @Test
+    void raceJcacheFirstCalls() throws Exception {
+        raceFirstCalls(createJcacheResolver(createOriginCacheManager()));
+    }
+
+    @Test
+    void raceRedisFirstCalls() throws Exception {
+        raceFirstCalls(createRedisResolver(new MockRedisCacheWriter()));
+    }
+
+    @Test
+    void raceCaffeineCreation() throws Exception {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        raceCreation(() -> createCaffeineResolver(cacheManager));
+    }
+
+    @Test
+    void raceCaffeineVariableExpiry() throws Exception {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().expireAfterWrite(1L, TimeUnit.HOURS));
+        CaffeineExpiryCacheResolver resolver = new CaffeineExpiryCacheResolver(cacheManager) {
+            @Nonnull
+            @Override
+            @SneakyThrows
+            protected Cache createVariableExpiryCache(@Nonnull CacheManager manager, @Nonnull ExpiryCacheKey key, @Nonnull Cache sharedCache) {
+                // Widens the creations of the views, so that they overlap across the lock stripes
+                Thread.sleep(1L);
+                return super.createVariableExpiryCache(manager, key, sharedCache);
+            }
+        };
+        initResolver(resolver);
+        resolver.setVariableExpiry(true);
+        List<Future<Object>> futures = submitAll(FIRST_CALLS * 4, index -> {
+            String cacheName = "variable" + (index / 2) % VARIABLE_NAMES;
+            Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(target, METHOD_NAMES[index % 2], cacheName));
+            Assertions.assertEquals(1, caches.size());
+            return caches.iterator().next().get(index, () -> cacheName);
+        });
+        for (Future<Object> future : futures) {
+            Assertions.assertNotNull(Assertions.assertDoesNotThrow(() -> future.get(30L, TimeUnit.SECONDS)));
+        }
+        for (int i = 0; i < VARIABLE_NAMES; i++) {
+            Cache constantTerm = resolver.resolveCaches(new MockInvocationContext(target, METHOD_NAMES[0], "variable" + i)).iterator().next();
+            Cache longTerm = resolver.resolveCaches(new MockInvocationContext(target, METHOD_NAMES[1], "variable" + i)).iterator().next();
+            Assertions.assertSame(constantTerm.getNativeCache(), longTerm.getNativeCache());
+        }
+    }
+
+    @Test
+    void raceJcacheCreation() throws Exception {
+        javax.cache.CacheManager originCacheManager = createOriginCacheManager();
+        raceCreation(() -> createJcacheResolver(originCacheManager));
+        for (String methodName : METHOD_NAMES) {
+            Assertions.assertNotNull(originCacheManager.getCache(methodName));
+        }
+    }
+
+    @Test
+    void raceRedisCreation() throws Exception {
+        MockRedisCacheWriter cacheWriter = new MockRedisCacheWriter();
+        raceCreation(() -> createRedisResolver(cacheWriter));
+    }
+
+    @Test
+    void measureCaffeineThroughput() throws Exception {
+        measureThroughput(createCaffeineResolver(new CaffeineCacheManager()));
+    }
+
+    @Test
+    void measureJcacheThroughput() throws Exception {
+        measureThroughput(createJcacheResolver(createOriginCacheManager()));
+    }
+
+    @Test
+    void measureRedisThroughput() throws Exception {
+        measureThroughput(createRedisResolver(new MockRedisCacheWriter()));
+    }
+
+    /**
+     * Fires concurrent first calls of every method and key, and asserts that each key is loaded once
+     */
+    private void raceFirstCalls(CacheResolver resolver) throws Exception {
+        Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        List<Future<Object>> futures = submitAll(FIRST_CALLS, index -> invoke(resolver, index, loads));
+        for (Future<Object> future : futures) {
+            Assertions.assertNotNull(Assertions.assertDoesNotThrow(() -> future.get(30L, TimeUnit.SECONDS)));
+        }
+        Assertions.assertEquals(METHOD_NAMES.length * KEYS, loads.size());
+        loads.forEach((key, count) -> Assertions.assertEquals(1, count.get(), () -> "Loads of key '" + key + "'"));
+    }
+
+    /**
+     * Fires concurrent first calls of fresh resolvers that share one backend, so that they race on creating the same caches
+     */
+    private void raceCreation(Supplier<CacheResolver> resolverFactory) throws Exception {
+        List<CacheResolver> resolvers = new ArrayList<>(RESOLVERS);
+        for (int i = 0; i < RESOLVERS; i++) {
+            resolvers.add(resolverFactory.get());
+        }
+        Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        List<Future<Object>> futures = submitAll(FIRST_CALLS, index -> invoke(resolvers.get(index % RESOLVERS), index / RESOLVERS, loads));
+        for (Future<Object> future : futures) {
+            Assertions.assertNotNull(Assertions.assertDoesNotThrow(() -> future.get(30L, TimeUnit.SECONDS)));
+        }
+    }
+
+    /**
+     * Fires concurrent calls of warmed caches, and asserts that nothing is loaded again and the throughput stays above the baseline
+     */
+    private void measureThroughput(CacheResolver resolver) throws Exception {
+        Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        for (int i = 0; i < METHOD_NAMES.length * KEYS; i++) {
+            invoke(resolver, i, loads);
+        }
+        int callsPerThread = STEADY_CALLS / THREADS;
+        long startTime = System.nanoTime();
+        List<Future<Object>> futures = submitAll(THREADS, index -> {
+            Object result = null;
+            for (int i = 0; i < callsPerThread; i++) {
+                result = invoke(resolver, index * callsPerThread + i, loads);
+            }
+            return result;
+        });
+        for (Future<Object> future : futures) {
+            Assertions.assertNotNull(future.get(60L, TimeUnit.SECONDS));
+        }
+        double throughput = STEADY_CALLS / ((System.nanoTime() - startTime) / 1.0E9D);
+        Assertions.assertEquals(METHOD_NAMES.length * KEYS, loads.values().stream().mapToInt(AtomicInteger::get).sum());
+        Assertions.assertTrue(throughput >= MINIMUM_THROUGHPUT, () -> "Throughput " + Math.round(throughput) + " calls/s is below " + MINIMUM_THROUGHPUT);
+    }
+
+    private List<Future<Object>> submitAll(int count, MockIndexedCall call) {
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Future<Object>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            result.add(executor.submit(() -> {
+                gate.await();
+                return call.call(index);
+            }));
+        }
+        gate.countDown();
+        return result;
+    }
+
+    private Object invoke(CacheResolver resolver, int index, Map<String, AtomicInteger> loads) {
+        String methodName = METHOD_NAMES[(index / KEYS) % METHOD_NAMES.length];
+        long minutes = 5L + index % KEYS;
+        Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(target, methodName, methodName, minutes));
+        Assertions.assertEquals(1, caches.size());
+        String key = methodName + ':' + (index % KEYS);
+        return caches.iterator().next().get(key, () -> {
+            loads.computeIfAbsent(key, element -> new AtomicInteger()).incrementAndGet();
+            Thread.sleep(LOAD_MILLIS);
+            return minutes;
+        });
+    }
+
+    private CacheResolver createCaffeineResolver(CaffeineCacheManager cacheManager) {
+        cacheManager.setCaffeine(Caffeine.newBuilder().expireAfterWrite(1L, TimeUnit.HOURS));
+        return initResolver(new CaffeineExpiryCacheResolver(cacheManager));
+    }
+
+    private CacheResolver createJcacheResolver(javax.cache.CacheManager originCacheManager) {
+        JCacheCacheManager cacheManager = new JCacheCacheManager(originCacheManager);
+        cacheManager.afterPropertiesSet();
+        return initResolver(new JcacheExpiryCacheResolver(cacheManager));
+    }
+
+    private CacheResolver createRedisResolver(MockRedisCacheWriter cacheWriter) {
+        RedisCacheManager cacheManager = new RedisCacheManager(cacheWriter, RedisCacheConfiguration.defaultCacheConfig());
+        cacheManager.afterPropertiesSet();
+        return initResolver(new RedisExpiryCacheResolver(cacheManager));
+    }
+
+    private CacheResolver initResolver(ExpiryCacheResolver resolver) {
+        resolver.setBeanFactory(new DefaultListableBeanFactory());
+        return resolver;
+    }
+
+    private javax.cache.CacheManager createOriginCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(EHCACHE_PROVIDER);
+        javax.cache.CacheManager result = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        originCacheManagers.add(result);
+        return result;
+    }
+
+
+    @FunctionalInterface
+    interface MockIndexedCall {
+        Object call(int index) throws Exception;
+    }
+
+
+    static class MockExpiryTarget {
+        @CacheExpiry(ttl = 10, unit = ChronoUnit.MINUTES)
+        public long constantTerm() {
+            return 0L;
+        }
+
+        @CacheExpiry(ttl = 2, unit = ChronoUnit.HOURS)
+        public long longTerm() {
+            return 0L;
+        }
+
+        @CacheExpiry(ttlExpression = "#result", unit = ChronoUnit.MINUTES)
+        public long dynamicTerm(long minutes) {
+            return minutes;
+        }
+    }
+}
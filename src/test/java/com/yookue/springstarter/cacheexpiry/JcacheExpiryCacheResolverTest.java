@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.spi.CachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.ContextualExpiryPolicy;
+import com.yookue.springstarter.cacheexpiry.cache.ExpressionExpiryCache;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.JcacheExpiryCacheResolver;
+
+
+class JcacheExpiryCacheResolverTest {
+    private static final String EHCACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+
+    private final MockExpiryTarget target = new MockExpiryTarget();
+    private javax.cache.CacheManager originCacheManager;
+    private JcacheExpiryCacheResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        CachingProvider provider = Caching.getCachingProvider(EHCACHE_PROVIDER);
+        originCacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        JCacheCacheManager cacheManager = new JCacheCacheManager(originCacheManager);
+        cacheManager.afterPropertiesSet();
+        resolver = new JcacheExpiryCacheResolver(cacheManager);
+        resolver.setBeanFactory(new DefaultListableBeanFactory());
+    }
+
+    @AfterEach
+    void tearDown() {
+        originCacheManager.close();
+    }
+
+    @Test
+    void resolveDistinctTtl() {
+        Cache shortTerm = resolveCache("shortTerm", "captcha");
+        Cache longTerm = resolveCache("longTerm", "captcha");
+        Assertions.assertNotSame(shortTerm, longTerm);
+        Assertions.assertSame(shortTerm.getNativeCache(), longTerm.getNativeCache());
+        // The ttl of the reused native cache is exposed per write
+        Assertions.assertNotNull(CacheDecorator.unwrap(longTerm, ExpressionExpiryCache.class));
+        shortTerm.put("short", "123456");
+        longTerm.put("long", "654321");
+        Assertions.assertEquals("654321", shortTerm.get("long", String.class));
+    }
+
+    @Test
+    void resolvePreconfiguredCache() {
+        MutableConfiguration<Object, Object> configuration = new MutableConfiguration<>();
+        configuration.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(Duration.ONE_HOUR));
+        originCacheManager.createCache("report", configuration);
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> resolveCache("shortTerm", "report"));
+        Assertions.assertTrue(exception.getMessage().contains(CreatedExpiryPolicy.class.getName()));
+        // The caches that pre-configured with the contextual policy apply the ttls
+        MutableConfiguration<Object, Object> contextualConfiguration = new MutableConfiguration<>();
+        contextualConfiguration.setExpiryPolicyFactory(FactoryBuilder.factoryOf(new ContextualExpiryPolicy(Duration.ONE_HOUR)));
+        originCacheManager.createCache("token", contextualConfiguration);
+        Assertions.assertNotNull(CacheDecorator.unwrap(resolveCache("shortTerm", "token"), ExpressionExpiryCache.class));
+    }
+
+    private Cache resolveCache(String methodName, String cacheName, Object... args) {
+        Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(target, methodName, cacheName, args));
+        Assertions.assertEquals(1, caches.size());
+        return caches.iterator().next();
+    }
+
+
+    static class MockExpiryTarget {
+        @CacheExpiry(ttl = 3, unit = ChronoUnit.MINUTES)
+        public String shortTerm() {
+            return "shortTerm";
+        }
+
+        @CacheExpiry(ttl = 2, unit = ChronoUnit.HOURS)
+        public String longTerm() {
+            return "longTerm";
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.lang.reflect.Method;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.util.ReflectionUtils;
+import lombok.Getter;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+@Getter
+class MockInvocationContext implements CacheOperationInvocationContext<BasicOperation> {
+    private final BasicOperation operation;
+    private final Object target;
+    private final Method method;
+    private final Object[] args;
+
+    MockInvocationContext(@Nonnull Object target, @Nonnull String methodName) {
+        this(target, methodName, (String) null);
+    }
+
+    MockInvocationContext(@Nonnull Object target, @Nonnull String methodName, @Nullable String cacheName, Object... args) {
+        this.target = target;
+        this.method = ReflectionUtils.findMethod(target.getClass(), methodName, (Class<?>[]) null);
+        this.args = args;
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setName(String.valueOf(method));
+        if (cacheName != null) {
+            builder.setCacheName(cacheName);
+        }
+        this.operation = builder.build();
+    }
+
+    MockInvocationContext(@Nonnull Object target, @Nonnull String methodName, @Nonnull BasicOperation operation, Object... args) {
+        this.target = target;
+        this.method = ReflectionUtils.findMethod(target.getClass(), methodName, (Class<?>[]) null);
+        this.args = args;
+        this.operation = operation;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * In-memory stand-in of {@link org.springframework.data.redis.cache.RedisCacheWriter}, which records the ttls of writes
+ */
+class MockRedisCacheWriter implements RedisCacheWriter {
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+
+    @Nullable
+    Duration getTtl(@Nonnull String key) {
+        return ttls.get(key);
+    }
+
+    @Nullable
+    byte[] getValue(@Nonnull String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public byte[] get(@Nonnull String name, @Nonnull byte[] key) {
+        return values.get(toString(key));
+    }
+
+    @Override
+    public boolean supportsAsyncRetrieve() {
+        return true;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<byte[]> retrieve(@Nonnull String name, @Nonnull byte[] key, @Nullable Duration ttl) {
+        return CompletableFuture.completedFuture(get(name, key));
+    }
+
+    @Override
+    public void put(@Nonnull String name, @Nonnull byte[] key, @Nonnull byte[] value, @Nullable Duration ttl) {
+        values.put(toString(key), value);
+        ttls.put(toString(key), (ttl == null) ? Duration.ZERO : ttl);
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Void> store(@Nonnull String name, @Nonnull byte[] key, @Nonnull byte[] value, @Nullable Duration ttl) {
+        put(name, key, value, ttl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public byte[] putIfAbsent(@Nonnull String name, @Nonnull byte[] key, @Nonnull byte[] value, @Nullable Duration ttl) {
+        byte[] existing = values.putIfAbsent(toString(key), value);
+        if (existing == null) {
+            ttls.put(toString(key), (ttl == null) ? Duration.ZERO : ttl);
+        }
+        return existing;
+    }
+
+    @Override
+    public void remove(@Nonnull String name, @Nonnull byte[] key) {
+        values.remove(toString(key));
+        ttls.remove(toString(key));
+    }
+
+    @Override
+    public void clean(@Nonnull String name, @Nonnull byte[] pattern) {
+        values.clear();
+        ttls.clear();
+    }
+
+    @Override
+    public void clearStatistics(@Nonnull String name) {
+    }
+
+    @Nonnull
+    @Override
+    public RedisCacheWriter withStatisticsCollector(@Nonnull CacheStatisticsCollector collector) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public CacheStatistics getCacheStatistics(@Nonnull String cacheName) {
+        return CacheStatisticsCollector.none().getCacheStatistics(cacheName);
+    }
+
+    @Nonnull
+    private String toString(@Nonnull byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * In-memory stand-in of {@link org.springframework.data.redis.connection.RedisConnectionFactory}, which serves {@code SET}, {@code GET}, {@code PTTL} and the compare-and-delete script
+ * <p>
+ * The remaining ttls never elapse by themselves, they are either the ttls of the writes or the ones that set by the tests
+ */
+class MockRedisConnectionFactory implements RedisConnectionFactory {
+    private static final long KEY_WITHOUT_EXPIRY = -1L;
+    private static final long KEY_ABSENT = -2L;
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    private final MockRedisCacheWriter cacheWriter;
+
+    MockRedisConnectionFactory() {
+        this(null);
+    }
+
+    MockRedisConnectionFactory(@Nullable MockRedisCacheWriter cacheWriter) {
+        this.cacheWriter = cacheWriter;
+    }
+
+    @Nullable
+    String getValue(@Nonnull String key) {
+        byte[] value = values.get(key);
+        return (value == null) ? null : toString(value);
+    }
+
+    @Nullable
+    Long getExpiry(@Nonnull String key) {
+        return expiries.get(key);
+    }
+
+    void setRemainingTtl(@Nonnull String key, @Nonnull Duration ttl) {
+        expiries.put(key, ttl.toMillis());
+    }
+
+    @Nonnull
+    List<String> getCommands() {
+        return commands;
+    }
+
+    @Nonnull
+    @Override
+    public RedisConnection getConnection() {
+        RedisStringCommands stringCommands = proxy(RedisStringCommands.class, (method, args) -> switch (method) {
+            case "get" -> values.get(toString((byte[]) args[0]));
+            case "set" -> set((byte[]) args[0], (byte[]) args[1], (args.length > 2) ? (Expiration) args[2] : Expiration.persistent(), (args.length > 3) ? (RedisStringCommands.SetOption) args[3] : RedisStringCommands.SetOption.upsert());
+            default -> throw new UnsupportedOperationException(method);
+        });
+        RedisScriptingCommands scriptingCommands = proxy(RedisScriptingCommands.class, (method, args) -> {
+            if (!"eval".equals(method)) {
+                throw new UnsupportedOperationException(method);
+            }
+            return compareAndDelete((byte[]) args[0], (byte[][]) args[3]);
+        });
+        RedisKeyCommands keyCommands = proxy(RedisKeyCommands.class, (method, args) -> {
+            if (!"pTtl".equals(method)) {
+                throw new UnsupportedOperationException(method);
+            }
+            return pTtl(toString((byte[]) args[0]));
+        });
+        return proxy(RedisConnection.class, (method, args) -> switch (method) {
+            case "stringCommands" -> stringCommands;
+            case "scriptingCommands" -> scriptingCommands;
+            case "keyCommands" -> keyCommands;
+            case "close" -> null;
+            case "isClosed" -> false;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    @Nonnull
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return false;
+    }
+
+    @Nonnull
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    @Override
+    public DataAccessException translateExceptionIfPossible(@Nonnull RuntimeException ex) {
+        return null;
+    }
+
+    @Nonnull
+    private Boolean set(@Nonnull byte[] key, @Nonnull byte[] value, @Nonnull Expiration expiration, @Nonnull RedisStringCommands.SetOption option) {
+        String stringKey = toString(key);
+        commands.add("SET " + stringKey + ' ' + option + ' ' + (expiration.isPersistent() ? "" : expiration.getExpirationTimeInMilliseconds()));
+        synchronized (values) {
+            if (option == RedisStringCommands.SetOption.SET_IF_ABSENT && values.containsKey(stringKey)) {
+                return false;
+            }
+            values.put(stringKey, value);
+            if (expiration.isPersistent()) {
+                expiries.remove(stringKey);
+            } else {
+                expiries.put(stringKey, expiration.getExpirationTimeInMilliseconds());
+            }
+            return true;
+        }
+    }
+
+    @Nonnull
+    private Long compareAndDelete(@Nonnull byte[] script, @Nonnull byte[][] keysAndArgs) {
+        String text = toString(script);
+        commands.add("EVAL " + toString(keysAndArgs[0]));
+        if (!text.contains("redis.call('get', KEYS[1]) == ARGV[1]") || !text.contains("redis.call('del', KEYS[1])")) {
+            throw new UnsupportedOperationException(text);
+        }
+        String key = toString(keysAndArgs[0]);
+        synchronized (values) {
+            byte[] value = values.get(key);
+            if (value == null || !toString(value).equals(toString(keysAndArgs[1]))) {
+                return 0L;
+            }
+            values.remove(key);
+            expiries.remove(key);
+            return 1L;
+        }
+    }
+
+    @Nonnull
+    private Long pTtl(@Nonnull String key) {
+        commands.add("PTTL " + key);
+        Long expiry = expiries.get(key);
+        if (expiry != null) {
+            return expiry;
+        }
+        if (values.containsKey(key)) {
+            return KEY_WITHOUT_EXPIRY;
+        }
+        Duration ttl = (cacheWriter == null) ? null : cacheWriter.getTtl(key);
+        if (ttl == null) {
+            return KEY_ABSENT;
+        }
+        return ttl.isZero() ? KEY_WITHOUT_EXPIRY : ttl.toMillis();
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(@Nonnull Class<T> type, @Nonnull MockCommandHandler handler) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName();
+                };
+            }
+            return handler.handle(method.getName(), (args == null) ? new Object[0] : args);
+        });
+    }
+
+    @Nonnull
+    private String toString(@Nonnull byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+
+    @FunctionalInterface
+    interface MockCommandHandler {
+        Object handle(String method, Object[] args);
+    }
+}
@@ -0,0 +1,601 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.cache.CacheDecorator;
+import com.yookue.springstarter.cacheexpiry.cache.CacheGenerations;
+import com.yookue.springstarter.cacheexpiry.cache.CacheLease;
+import com.yookue.springstarter.cacheexpiry.cache.CacheValueReloader;
+import com.yookue.springstarter.cacheexpiry.cache.ContextualTtlFunction;
+import com.yookue.springstarter.cacheexpiry.cache.DeferredExpiryTtls;
+import com.yookue.springstarter.cacheexpiry.cache.ExpiryTtlContextHolder;
+import com.yookue.springstarter.cacheexpiry.cache.HotKeyCache;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheLease;
+import com.yookue.springstarter.cacheexpiry.cache.RedisCacheWriterOptions;
+import com.yookue.springstarter.cacheexpiry.cache.RefreshAheadCache;
+import com.yookue.springstarter.cacheexpiry.cache.TieredCache;
+import com.yookue.springstarter.cacheexpiry.codec.CacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.codec.CodecRedisSerializer;
+import com.yookue.springstarter.cacheexpiry.codec.CompactCacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.codec.JdkCacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.codec.SerializationPairCacheValueCodec;
+import com.yookue.springstarter.cacheexpiry.metrics.MicrometerCacheExpiryMetrics;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.RedisExpiryCacheResolver;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.TieredExpiryCacheResolver;
+import jakarta.annotation.Nonnull;
+
+
+class RedisExpiryCacheResolverTest {
+    private final MockExpiryTarget target = new MockExpiryTarget();
+    private final MockRedisCacheWriter cacheWriter = new MockRedisCacheWriter();
+    private final MockCacheLease cacheLease = new MockCacheLease();
+    private RedisExpiryCacheResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = createResolver();
+    }
+
+    @Test
+    void resolveExpressionExpiry() {
+        Cache cache = resolveCache(resolver, "dynamicTerm", "token", 5L);
+        cache.put("short", 5L);
+        Assertions.assertEquals(Duration.ofMinutes(5L), cacheWriter.getTtl("token::short"));
+        cache = resolveCache(resolver, "dynamicTerm", "token", 90L);
+        cache.put("long", 90L);
+        Assertions.assertEquals(Duration.ofMinutes(90L), cacheWriter.getTtl("token::long"));
+    }
+
+    @Test
+    void resolveAsyncRetrieval() {
+        Cache cache = resolveCache(resolver, "dynamicTerm", "token", 5L);
+        Assertions.assertEquals(5L, cache.retrieve("short", () -> CompletableFuture.supplyAsync(() -> 5L)).join());
+        Assertions.assertEquals(Duration.ofMinutes(5L), cacheWriter.getTtl("token::short"));
+        cache = resolveCache(resolver, "dynamicTerm", "token", 90L);
+        Assertions.assertEquals(90L, cache.retrieve("long", () -> CompletableFuture.supplyAsync(() -> 90L)).join());
+        Assertions.assertEquals(Duration.ofMinutes(90L), cacheWriter.getTtl("token::long"));
+        Assertions.assertEquals(5L, cache.retrieve("short", () -> CompletableFuture.completedFuture(0L)).join());
+    }
+
+    @Test
+    void deferConcurrentTtls() {
+        ContextualTtlFunction ttlFunction = new ContextualTtlFunction((key, value) -> Duration.ofHours(1L));
+        DeferredExpiryTtls deferredTtls = ttlFunction.getDeferredTtls();
+        // Two loads of the same key that complete before either of them is written
+        Object first = new StringBuilder("value");
+        Object second = new StringBuilder("value");
+        deferredTtls.defer("key", first, Duration.ofMinutes(5L));
+        deferredTtls.defer("key", second, Duration.ofMinutes(90L));
+        deferredTtls.defer("key", null, Duration.ofMinutes(1L));
+        Assertions.assertEquals(Duration.ofMinutes(90L), ttlFunction.getTimeToLive("key", second));
+        Assertions.assertEquals(Duration.ofMinutes(1L), ttlFunction.getTimeToLive("key", NullValue.INSTANCE));
+        Assertions.assertEquals(Duration.ofMinutes(5L), ttlFunction.getTimeToLive("key", first));
+        Assertions.assertEquals(Duration.ofHours(1L), ttlFunction.getTimeToLive("key", first));
+        deferredTtls.defer("key", first, Duration.ofMinutes(5L));
+        deferredTtls.discard("key", second);
+        Assertions.assertEquals(1, deferredTtls.size());
+        deferredTtls.discard("key", first);
+        Assertions.assertEquals(0, deferredTtls.size());
+    }
+
+    @Test
+    void resolveMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        resolver.setCacheMetrics(new MicrometerCacheExpiryMetrics(registry));
+        Cache cache = resolveCache(resolver, "dynamicTerm", "token", 5L);
+        Assertions.assertEquals(5L, cache.get("short", () -> 5L));
+        Assertions.assertEquals(5L, cache.get("short", () -> 0L));
+        cache.evict("short");
+        Assertions.assertEquals(1.0D, registry.get("cache.gets").tags("cache", "token", "backend", "redis", "ttl", "default", "result", "hit").functionCounter().count());
+        Assertions.assertEquals(1.0D, registry.get("cache.gets").tags("cache", "token", "result", "miss").functionCounter().count());
+        Assertions.assertEquals(1.0D, registry.get("cache.load").tags("cache", "token", "result", "success").functionCounter().count());
+        Assertions.assertEquals(1.0D, registry.get("cache.evictions").tag("cache", "token").functionCounter().count());
+        Assertions.assertEquals(1L, registry.get(MicrometerCacheExpiryMetrics.RESOLUTION_METER).tag("method", "dynamicTerm").timer().count());
+        resolver.releaseCaches("token");
+        Assertions.assertTrue(registry.find("cache.gets").tag("cache", "token").meters().isEmpty());
+        Assertions.assertTrue(registry.find("cache.load").tag("cache", "token").meters().isEmpty());
+    }
+
+    @Test
+    void resolveTtlOverride() {
+        resolveCache(resolver, "report", "report").put("daily", "report");
+        Assertions.assertEquals(Duration.ofMinutes(10L), cacheWriter.getTtl("report::daily"));
+        resolver.getMetadataIndex().getTtlOverrides().setTtl("report", Duration.ofMinutes(1L));
+        resolver.releaseCaches("report");
+        resolveCache(resolver, "report", "report").put("daily", "report");
+        Assertions.assertEquals(Duration.ofMinutes(1L), cacheWriter.getTtl("report::daily"));
+        Assertions.assertTrue(resolver.getExpiryCaches().keySet().stream().allMatch(key -> Duration.ofMinutes(1L).equals(key.getTtl())));
+        resolveCache(resolver, "dynamicTerm", "report", 90L).put("weekly", 90L);
+        Assertions.assertEquals(Duration.ofMinutes(1L), cacheWriter.getTtl("report::weekly"));
+    }
+
+    @Test
+    void resolveLeaseLoading() throws Exception {
+        // Two nodes that share one redis
+        RedisExpiryCacheResolver[] resolvers = {resolver, createResolver()};
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                RedisExpiryCacheResolver node = resolvers[i % resolvers.length];
+                futures.add(executor.submit(() -> resolveCache(node, "report", "report").get("daily", () -> {
+                    loads.incrementAndGet();
+                    Thread.sleep(200L);
+                    return "report";
+                })));
+            }
+            for (Future<String> future : futures) {
+                Assertions.assertEquals("report", future.get(5L, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertTrue(cacheLease.leases.isEmpty());
+        // Only one caller per node acquires or polls the lease
+        Assertions.assertTrue(cacheLease.tokens.size() <= resolvers.length);
+        Assertions.assertSame(resolveCache(resolver, "report", "report"), resolveCache(resolver, "report", "report"));
+    }
+
+    @Test
+    void resolveRedisLease() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory();
+        RedisCacheLease redisLease = new RedisCacheLease(connectionFactory);
+        Assertions.assertTrue(redisLease.tryAcquire("report::daily~lease", "first", Duration.ofSeconds(10L)));
+        Assertions.assertEquals(10000L, connectionFactory.getExpiry("report::daily~lease"));
+        Assertions.assertFalse(redisLease.tryAcquire("report::daily~lease", "second", Duration.ofSeconds(10L)));
+        Assertions.assertEquals("first", connectionFactory.getValue("report::daily~lease"));
+        // Only the holder releases the lease
+        redisLease.release("report::daily~lease", "second");
+        Assertions.assertEquals("first", connectionFactory.getValue("report::daily~lease"));
+        redisLease.release("report::daily~lease", "first");
+        Assertions.assertNull(connectionFactory.getValue("report::daily~lease"));
+        Assertions.assertTrue(redisLease.tryAcquire("report::daily~lease", "second", Duration.ofSeconds(10L)));
+        Assertions.assertEquals(List.of("SET report::daily~lease SET_IF_ABSENT 10000", "SET report::daily~lease SET_IF_ABSENT 10000", "EVAL report::daily~lease", "EVAL report::daily~lease", "SET report::daily~lease SET_IF_ABSENT 10000"), connectionFactory.getCommands());
+        // The loads through the resolver hold the lease until the value is written
+        resolver.setCacheLease(redisLease);
+        resolver.releaseCaches("report");
+        Assertions.assertEquals("report", resolveCache(resolver, "report", "report").get("weekly", () -> {
+            Assertions.assertNotNull(connectionFactory.getValue("report::weekly~lease"));
+            return "report";
+        }));
+        Assertions.assertNull(connectionFactory.getValue("report::weekly~lease"));
+        Assertions.assertNotNull(cacheWriter.getValue("report::weekly"));
+    }
+
+    @Test
+    void resolveTieredCache() {
+        TieredExpiryCacheResolver tieredResolver = (TieredExpiryCacheResolver) createResolver(true);
+        tieredResolver.setLocalMaxTtl(Duration.ofMinutes(30L));
+        Cache cache = resolveCache(tieredResolver, "dynamicTerm", "token", 5L);
+        cache.put("short", 5L);
+        TieredCache tieredCache = CacheDecorator.unwrap(cache, TieredCache.class);
+        Assertions.assertNotNull(tieredCache);
+        Duration expiresAfter = tieredCache.getLocalCache().policy().expireVariably().flatMap(policy -> policy.getExpiresAfter("short")).orElse(null);
+        Assertions.assertNotNull(expiresAfter);
+        Assertions.assertTrue(expiresAfter.compareTo(Duration.ofMinutes(5L)) <= 0 && expiresAfter.compareTo(Duration.ofMinutes(4L)) > 0);
+        // The local level still serves the value after redis is cleaned
+        cacheWriter.clean("token", new byte[0]);
+        Assertions.assertEquals(5L, cache.get("short", Long.class));
+        cache.evict("short");
+        Assertions.assertNull(cache.get("short"));
+    }
+
+    @Test
+    void resolveSingleFlight() throws InterruptedException {
+        // Redis caches load every miss, unlike caffeine caches that coalesce the loads by themselves
+        Cache cache = resolveCache(resolver, "dynamicTerm", "token", 5L);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.get("short", () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    release.await();
+                    return 5L;
+                })));
+            }
+            Assertions.assertTrue(started.await(5L, TimeUnit.SECONDS));
+            Thread.sleep(100L);
+            release.countDown();
+            for (Future<Long> future : futures) {
+                Assertions.assertEquals(5L, Assertions.assertDoesNotThrow(() -> future.get(5L, TimeUnit.SECONDS)));
+            }
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(Duration.ofMinutes(5L), cacheWriter.getTtl("token::short"));
+        } finally {
+            executor.shutdownNow();
+        }
+        // Errors are thrown as is, while the exceptions are wrapped as the contract of caches
+        Error error = new Error("short");
+        Assertions.assertSame(error, Assertions.assertThrows(Error.class, () -> cache.get("error", () -> {
+            throw error;
+        })));
+        Exception exception = new Exception("short");
+        Assertions.assertSame(exception, Assertions.assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("exception", () -> {
+            throw exception;
+        })).getCause());
+    }
+
+    @Test
+    void resolveTieredRemainingTtl() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory(cacheWriter);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("redisConnectionFactory", connectionFactory);
+        TieredExpiryCacheResolver tieredResolver = (TieredExpiryCacheResolver) createResolver(true);
+        tieredResolver.setBeanFactory(beanFactory);
+        tieredResolver.setLocalMaxTtl(Duration.ofMinutes(30L));
+        Cache cache = resolveCache(tieredResolver, "dynamicTerm", "token", 60L);
+        TieredCache tieredCache = CacheDecorator.unwrap(cache, TieredCache.class);
+        Assertions.assertNotNull(tieredCache);
+        // Writes fill the local level with their own ttls, without looking up redis
+        cache.put("written", 60L);
+        Assertions.assertTrue(connectionFactory.getCommands().isEmpty());
+        // Values that written by other nodes are capped by their remaining ttls in redis
+        byte[] value = RedisSerializer.java().serialize(60L);
+        cacheWriter.put("token", "token::shared".getBytes(StandardCharsets.UTF_8), Objects.requireNonNull(value), Duration.ofMinutes(60L));
+        connectionFactory.setRemainingTtl("token::shared", Duration.ofMinutes(2L));
+        Assertions.assertEquals(60L, cache.get("shared", Long.class));
+        Assertions.assertEquals(List.of("PTTL token::shared"), connectionFactory.getCommands());
+        Duration sharedExpiresAfter = getLocalExpiresAfter(tieredCache, "shared");
+        Assertions.assertTrue(sharedExpiresAfter.compareTo(Duration.ofMinutes(2L)) <= 0 && sharedExpiresAfter.compareTo(Duration.ofMinutes(1L)) > 0);
+        // Values that never expire in redis are capped by the local max ttl
+        cacheWriter.put("token", "token::eternal".getBytes(StandardCharsets.UTF_8), Objects.requireNonNull(value), null);
+        Assertions.assertEquals(60L, cache.get("eternal", Long.class));
+        Assertions.assertTrue(getLocalExpiresAfter(tieredCache, "eternal").compareTo(Duration.ofMinutes(29L)) > 0);
+        // Values that expired in redis meanwhile are not kept locally
+        cacheWriter.put("token", "token::expired".getBytes(StandardCharsets.UTF_8), Objects.requireNonNull(value), Duration.ofMinutes(60L));
+        connectionFactory.setRemainingTtl("token::expired", Duration.ofMillis(-2L));
+        Assertions.assertEquals(60L, cache.get("expired", Long.class));
+        Assertions.assertNull(tieredCache.getLocalCache().getIfPresent("expired"));
+    }
+
+    @Test
+    void refreshTrackedEntries() {
+        AtomicLong ticker = new AtomicLong();
+        AtomicInteger reloads = new AtomicInteger();
+        CacheValueReloader reloader = new CacheValueReloader() {
+            @Override
+            public Object reload() {
+                return reloads.incrementAndGet();
+            }
+
+            @Override
+            public Duration getTtl(Object value) {
+                return Duration.ofMinutes(60L);
+            }
+        };
+        RefreshAheadCache cache = new RefreshAheadCache(new ConcurrentMapCache("counter"), Duration.ofMinutes(30L), Runnable::run, 2, null, ticker::get);
+        CacheValueReloader previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            cache.put("first", 0);
+            cache.put("second", 0);
+            cache.put("third", 0);
+        } finally {
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+        Assertions.assertEquals(2, cache.getTrackedCount());
+        // Reads before the deadline keep the current values
+        ticker.addAndGet(Duration.ofMinutes(29L).toNanos());
+        Assertions.assertEquals(0, cache.get("first", Integer.class));
+        Assertions.assertEquals(0, reloads.get());
+        // The first read past the deadline reloads once, and tracks the reloaded value again
+        ticker.addAndGet(Duration.ofMinutes(2L).toNanos());
+        Assertions.assertEquals(0, cache.get("first", Integer.class));
+        Assertions.assertEquals(1, cache.get("first", Integer.class));
+        Assertions.assertEquals(1, reloads.get());
+        // At capacity, the entries past their deadlines are released along with their reloaders
+        previousReloader = ExpiryTtlContextHolder.setReloader(reloader);
+        try {
+            cache.put("third", 0);
+        } finally {
+            ExpiryTtlContextHolder.setReloader(previousReloader);
+        }
+        Assertions.assertEquals(2, cache.getTrackedCount());
+        Assertions.assertEquals(0, cache.get("second", Integer.class));
+        Assertions.assertEquals(1, reloads.get());
+    }
+
+    @Test
+    void resolveRefreshRemainingTtl() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory(cacheWriter);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("redisConnectionFactory", connectionFactory);
+        resolver.setBeanFactory(beanFactory);
+        resolver.setRefreshExecutor(Runnable::run);
+        Cache cache = resolveCache(resolver, "refreshTerm", "counter");
+        // The value that written by another node 50 minutes ago is past the refresh period of 30 minutes
+        byte[] value = RedisSerializer.java().serialize(7);
+        cacheWriter.put("counter", "counter::shared".getBytes(StandardCharsets.UTF_8), Objects.requireNonNull(value), Duration.ofMinutes(60L));
+        connectionFactory.setRemainingTtl("counter::shared", Duration.ofMinutes(10L));
+        Assertions.assertEquals(7, cache.get("shared", () -> 0));
+        Assertions.assertEquals(List.of("PTTL counter::shared"), connectionFactory.getCommands());
+        Assertions.assertEquals(1, cache.get("shared", Integer.class));
+        // The reloaded value is tracked locally, without looking up redis again
+        Assertions.assertEquals(1, cache.get("shared", () -> 0));
+        Assertions.assertEquals(1, connectionFactory.getCommands().size());
+    }
+
+    @Test
+    void resolveTieredLoads() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory(cacheWriter);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("redisConnectionFactory", connectionFactory);
+        TieredExpiryCacheResolver tieredResolver = (TieredExpiryCacheResolver) createResolver(true);
+        tieredResolver.setBeanFactory(beanFactory);
+        tieredResolver.setLocalMaxTtl(Duration.ofMinutes(30L));
+        tieredResolver.setRefreshExecutor(Runnable::run);
+        Cache tokenCache = resolveCache(tieredResolver, "dynamicTerm", "token", 60L);
+        TieredCache tieredCache = CacheDecorator.unwrap(tokenCache, TieredCache.class);
+        Assertions.assertNotNull(tieredCache);
+        // The values that loaded locally are capped by their write ttls, without looking up redis
+        Assertions.assertEquals(60L, tokenCache.get("loaded", () -> 60L));
+        Assertions.assertTrue(connectionFactory.getCommands().isEmpty());
+        Assertions.assertTrue(getLocalExpiresAfter(tieredCache, "loaded").compareTo(Duration.ofMinutes(29L)) > 0);
+        // The hits of the local level refresh too, since the refresh decorator is in front of the tier
+        Cache counterCache = resolveCache(tieredResolver, "refreshTerm", "counter");
+        byte[] value = RedisSerializer.java().serialize(7);
+        cacheWriter.put("counter", "counter::shared".getBytes(StandardCharsets.UTF_8), Objects.requireNonNull(value), Duration.ofMinutes(60L));
+        connectionFactory.setRemainingTtl("counter::shared", Duration.ofMinutes(10L));
+        Assertions.assertEquals(7, counterCache.get("shared", Integer.class));
+        TieredCache counterTier = CacheDecorator.unwrap(counterCache, TieredCache.class);
+        Assertions.assertNotNull(counterTier);
+        Assertions.assertNotNull(counterTier.getLocalCache().getIfPresent("shared"));
+        Assertions.assertEquals(7, counterCache.get("shared", () -> 0));
+        Assertions.assertEquals(1, counterCache.get("shared", Integer.class));
+    }
+
+    @Test
+    void resolveHotKeyPromotion() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        resolver.setCacheMetrics(new MicrometerCacheExpiryMetrics(registry));
+        resolver.setHotKeyDetection(true);
+        resolver.setHotKeyThreshold(3);
+        resolver.setHotKeyLocalTtl(Duration.ofMinutes(1L));
+        Cache cache = resolveCache(resolver, "dynamicTerm", "config", 5L);
+        cache.put("global", 5L);
+        cache.put("tenant", 5L);
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(5L, cache.get("global", Long.class));
+        }
+        Assertions.assertEquals(5L, cache.get("tenant", Long.class));
+        HotKeyCache hotKeyCache = CacheDecorator.unwrap(cache, HotKeyCache.class);
+        Assertions.assertNotNull(hotKeyCache);
+        Assertions.assertEquals(1L, hotKeyCache.getPromotionCount());
+        Assertions.assertEquals(List.of("global"), hotKeyCache.getHotKeys());
+        Assertions.assertTrue(resolver.getHotKeyCaches().contains(hotKeyCache));
+        // The promoted key is served locally after redis is cleaned
+        cacheWriter.clean("config", new byte[0]);
+        Assertions.assertEquals(5L, cache.get("global", Long.class));
+        Assertions.assertNull(cache.get("tenant"));
+        Assertions.assertEquals(1.0D, registry.get(MicrometerCacheExpiryMetrics.HOT_KEY_PROMOTION_METER).tag("cache", "config").functionCounter().count());
+        Assertions.assertEquals(hotKeyCache.getLocalHitCount(), registry.get(MicrometerCacheExpiryMetrics.HOT_KEY_HIT_METER).tag("cache", "config").functionCounter().count());
+        Assertions.assertEquals(1.0D, registry.get(MicrometerCacheExpiryMetrics.HOT_KEY_SIZE_METER).tag("cache", "config").gauge().value());
+        resolver.releaseCaches("config");
+        Assertions.assertTrue(registry.find(MicrometerCacheExpiryMetrics.HOT_KEY_PROMOTION_METER).meters().isEmpty());
+    }
+
+    @Test
+    void resolveCacheWriter() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("redisConnectionFactory", Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {RedisConnectionFactory.class}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        }));
+        resolver.setBeanFactory(beanFactory);
+        RedisCacheWriterOptions options = new RedisCacheWriterOptions();
+        options.setStatistics(true);
+        resolver.setCacheWriterOptions(Map.of("report", options));
+        RedisCache reportCache = CacheDecorator.unwrap(resolveCache(resolver, "report", "report"), RedisCache.class);
+        Assertions.assertNotNull(reportCache);
+        Assertions.assertNotSame(cacheWriter, reportCache.getNativeCache());
+        Assertions.assertNotNull(reportCache.getStatistics());
+        RedisCache tokenCache = CacheDecorator.unwrap(resolveCache(resolver, "dynamicTerm", "token", 5L), RedisCache.class);
+        Assertions.assertNotNull(tokenCache);
+        Assertions.assertSame(cacheWriter, tokenCache.getNativeCache());
+    }
+
+    @Test
+    void resolveCacheWriterWithoutFactory() {
+        RedisCacheWriterOptions options = new RedisCacheWriterOptions();
+        options.setBatchSize(100);
+        resolver.setCacheWriterOptions(Map.of("report", options));
+        // The options are not dropped silently for the writer of the cache manager
+        IllegalStateException ex = Assertions.assertThrows(IllegalStateException.class, () -> resolveCache(resolver, "report", "report"));
+        Assertions.assertTrue(ex.getMessage().contains("'report'"));
+        Assertions.assertNotNull(resolveCache(resolver, "dynamicTerm", "token", 5L));
+    }
+
+    @Test
+    void resolveGenerationalPrefix() {
+        resolver.setGenerationalPrefix(true);
+        resolver.setCacheGenerations(new MockCacheGenerations());
+        Cache cache = resolveCache(resolver, "report", "report");
+        cache.put("daily", "report");
+        Assertions.assertNotNull(cacheWriter.getTtl("report::g0::daily"));
+        cache.clear();
+        Assertions.assertNull(cache.get("daily"));
+        // The entries of old generations age out through their ttls
+        Assertions.assertNotNull(cacheWriter.getTtl("report::g0::daily"));
+        cache.put("daily", "report");
+        Assertions.assertNotNull(cacheWriter.getTtl("report::g1::daily"));
+        // The caches that may never expire keep their plain prefixes
+        resolveCache(resolver, "dynamicTerm", "token", 5L).put("short", 5L);
+        Assertions.assertEquals(Duration.ofMinutes(5L), cacheWriter.getTtl("token::short"));
+        RedisCacheManager cacheManager = new RedisCacheManager(cacheWriter, RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofHours(1L)));
+        cacheManager.afterPropertiesSet();
+        RedisExpiryCacheResolver expiringResolver = new RedisExpiryCacheResolver(cacheManager);
+        expiringResolver.setBeanFactory(new DefaultListableBeanFactory());
+        expiringResolver.setGenerationalPrefix(true);
+        expiringResolver.setCacheGenerations(new MockCacheGenerations());
+        resolveCache(expiringResolver, "dynamicTerm", "session", 5L).put("short", 5L);
+        Assertions.assertEquals(Duration.ofMinutes(5L), cacheWriter.getTtl("session::g0::short"));
+    }
+
+    @Test
+    void resolveValueCodec() {
+        resolver.setCacheCodecs(Map.of("report", CompactCacheValueCodec.NAME));
+        resolver.setCompressionThreshold(128);
+        Cache cache = resolveCache(resolver, "report", "report");
+        String content = "report".repeat(100);
+        cache.put("daily", content);
+        cache.put("weekly", List.of("short"));
+        byte[] daily = cacheWriter.getValue("report::daily");
+        Assertions.assertNotNull(daily);
+        Assertions.assertEquals((byte) 0x82, daily[2]);
+        Assertions.assertTrue(daily.length < content.length() / 2);
+        Assertions.assertEquals(content, cache.get("daily", String.class));
+        Assertions.assertEquals(List.of("short"), cache.get("weekly", List.class));
+        // The values that written before are read with the serializer of the cache configuration
+        cacheWriter.put("report", "report::monthly".getBytes(StandardCharsets.UTF_8), Objects.requireNonNull(RedisSerializer.java().serialize("legacy")), null);
+        Assertions.assertEquals("legacy", cache.get("monthly", String.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void decodeLegacyValues() {
+        // The values that written before by a raw serializer may start with any byte
+        RedisSerializer<Object> rawSerializer = (RedisSerializer<Object>) (RedisSerializer<?>) RedisSerializer.byteArray();
+        CacheValueCodec configurationCodec = new SerializationPairCacheValueCodec(RedisSerializationContext.SerializationPair.fromSerializer(rawSerializer));
+        CodecRedisSerializer serializer = new CodecRedisSerializer(new CompactCacheValueCodec(), List.of(new JdkCacheValueCodec(), configurationCodec), 16);
+        byte[][] legacyValues = {{0x02, 0x6c, 0x65}, {0x01, 0x00}, {(byte) 0x82, 0x11, 0x22}, {(byte) 0x9f}, {(byte) 0xfe, (byte) 0xce, (byte) 0x82, 0x33}, {(byte) 0xfe}};
+        for (byte[] legacyValue : legacyValues) {
+            Assertions.assertArrayEquals(legacyValue, (byte[]) serializer.deserialize(legacyValue));
+        }
+        String content = "report".repeat(10);
+        Assertions.assertEquals(content, serializer.deserialize(serializer.serialize(content)));
+        Assertions.assertEquals(List.of("short"), serializer.deserialize(serializer.serialize(List.of("short"))));
+    }
+
+    private Duration getLocalExpiresAfter(TieredCache tieredCache, Object key) {
+        Duration result = tieredCache.getLocalCache().policy().expireVariably().flatMap(policy -> policy.getExpiresAfter(key)).orElse(null);
+        Assertions.assertNotNull(result);
+        return result;
+    }
+
+    private RedisExpiryCacheResolver createResolver() {
+        return createResolver(false);
+    }
+
+    private RedisExpiryCacheResolver createResolver(boolean tiered) {
+        RedisCacheManager cacheManager = new RedisCacheManager(cacheWriter, RedisCacheConfiguration.defaultCacheConfig());
+        cacheManager.afterPropertiesSet();
+        RedisExpiryCacheResolver result = tiered ? new TieredExpiryCacheResolver(cacheManager) : new RedisExpiryCacheResolver(cacheManager);
+        result.setBeanFactory(new DefaultListableBeanFactory());
+        result.setCacheLease(cacheLease);
+        result.setLeasePollInterval(Duration.ofMillis(20L));
+        return result;
+    }
+
+    private Cache resolveCache(RedisExpiryCacheResolver resolver, String methodName, String cacheName, Object... args) {
+        Collection<? extends Cache> caches = resolver.resolveCaches(new MockInvocationContext(target, methodName, cacheName, args));
+        Assertions.assertEquals(1, caches.size());
+        return caches.iterator().next();
+    }
+
+
+    static class MockExpiryTarget {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @CacheExpiry(ttl = 10, unit = ChronoUnit.MINUTES, lease = true)
+        public String report() {
+            return "report";
+        }
+
+        @CacheExpiry(ttlExpression = "#result", unit = ChronoUnit.MINUTES)
+        public long dynamicTerm(long minutes) {
+            return minutes;
+        }
+
+        @CacheExpiry(ttl = 60, unit = ChronoUnit.MINUTES, refreshAfter = 30)
+        public int refreshTerm() {
+            return counter.incrementAndGet();
+        }
+    }
+
+
+    static class MockCacheGenerations implements CacheGenerations {
+        private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+        @Override
+        public long getGeneration(@Nonnull String counterKey) {
+            AtomicLong generation = generations.get(counterKey);
+            return (generation == null) ? 0L : generation.get();
+        }
+
+        @Override
+        public long increment(@Nonnull String counterKey) {
+            return generations.computeIfAbsent(counterKey, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+
+    static class MockCacheLease implements CacheLease {
+        private final Map<String, String> leases = new ConcurrentHashMap<>();
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean tryAcquire(@Nonnull String leaseKey, @Nonnull String token, @Nonnull Duration leaseTime) {
+            tokens.add(token);
+            return leases.putIfAbsent(leaseKey, token) == null;
+        }
+
+        @Override
+        public void release(@Nonnull String leaseKey, @Nonnull String token) {
+            leases.remove(leaseKey, token);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.cacheexpiry;
+
+
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.springstarter.cacheexpiry.annotation.CacheExpiry;
+import com.yookue.springstarter.cacheexpiry.resolver.impl.TargetClassNameResolver;
+
+
+class TargetClassNameResolverTest {
+    private final MockExpiryTarget target = new MockExpiryTarget();
+
+    @Test
+    void resolveNameSettings() {
+        TargetClassNameResolver nameResolver = new TargetClassNameResolver(true);
+        MockInvocationContext context = new MockInvocationContext(target, "shortTerm");
+        Assertions.assertEquals(Set.of("MockExpiryTarget"), nameResolver.getCacheNames(context));
+        // Each setting clears the memoized names, so that the next call generates them again
+        nameResolver.setMethodName(true);
+        Assertions.assertEquals(Set.of("MockExpiryTarget:shortTerm"), nameResolver.getCacheNames(context));
+        nameResolver.setIndentMethodName(false);
+        Assertions.assertEquals(Set.of("MockExpiryTarget.shortTerm"), nameResolver.getCacheNames(context));
+        nameResolver.setNamePrefix("app:");
+        nameResolver.setNameSuffix(":v2");
+        Assertions.assertEquals(Set.of("app:MockExpiryTarget.shortTerm:v2"), nameResolver.getCacheNames(context));
+        nameResolver.setShortClassName(false);
+        Assertions.assertEquals(Set.of("app:" + MockExpiryTarget.class.getCanonicalName() + ".shortTerm:v2"), nameResolver.getCacheNames(context));
+    }
+
+    static class MockExpiryTarget {
+        @CacheExpiry(ttl = 3, unit = ChronoUnit.MINUTES)
+        public String shortTerm() {
+            return "shortTerm";
+        }
+    }
+}